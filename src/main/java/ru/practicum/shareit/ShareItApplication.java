@@ -2,8 +2,15 @@ package ru.practicum.shareit;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import ru.practicum.shareit.config.ShareItRuntimeHints;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling
+@ImportRuntimeHints(ShareItRuntimeHints.class)
 public class ShareItApplication {
     public static void main(String[] args) {
         SpringApplication.run(ShareItApplication.class, args);
@@ -0,0 +1,121 @@
+package ru.practicum.shareit.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.practicum.shareit.exception.ErrorResponse;
+import ru.practicum.shareit.item.controller.ItemController;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Допуск запросов к контроллерам: лимит частоты на клиента (X-Sharer-User-Id) отдельно для чтения,
+ * поиска и записи (429 + Retry-After) и общий лимит одновременных запросов, который сбрасывает
+ * нагрузку раньше, чем закончится пул соединений с БД (503 + Retry-After). Стоит сразу после учёта SQL,
+ * до IdempotencyFilter: отклонённый запрос не читает тело и не занимает ключ идемпотентности.
+ */
+@Slf4j
+@Component
+@Order(AdmissionControlFilter.ORDER)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 2;
+
+    private final AdmissionProperties properties;
+    private final ClientRateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final Semaphore inFlight;
+    private final Map<EndpointClass, Counter> rateLimited = new EnumMap<>(EndpointClass.class);
+    private final Counter overloaded;
+
+    public AdmissionControlFilter(AdmissionProperties properties, ClientRateLimiter rateLimiter,
+                                  ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.inFlight = new Semaphore(properties.getMaxConcurrentRequests());
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            rateLimited.put(endpointClass, Counter.builder("shareit.admission.rejected")
+                    .tag("reason", "rate_limit")
+                    .tag("class", endpointClass.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        this.overloaded = Counter.builder("shareit.admission.rejected")
+                .tag("reason", "overload")
+                .tag("class", "all")
+                .register(meterRegistry);
+        meterRegistry.gauge("shareit.admission.in_flight", inFlight,
+                semaphore -> properties.getMaxConcurrentRequests() - semaphore.availablePermits());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return !properties.isEnabled() || uri.startsWith("/actuator") || uri.startsWith("/error");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = EndpointClass.of(request);
+        String client = client(request);
+        long waitNanos = rateLimiter.tryAcquire(client, endpointClass);
+        if (waitNanos > 0) {
+            rateLimited.get(endpointClass).increment();
+            log.warn("Клиент {} превысил лимит запросов класса {}", client, endpointClass);
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, waitNanos, "Слишком много запросов, повторите позже");
+            return;
+        }
+
+        boolean admitted;
+        try {
+            admitted = inFlight.tryAcquire(properties.getConcurrencyWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            overloaded.increment();
+            log.warn("Сервис перегружен: {} одновременных запросов", properties.getMaxConcurrentRequests());
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1),
+                    "Сервис перегружен, повторите позже");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private static String client(HttpServletRequest request) {
+        String userId = request.getHeader(ItemController.USER_HEADER);
+        return userId != null ? userId : "anonymous:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterNanos, String message)
+            throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999L));
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(message));
+    }
+}
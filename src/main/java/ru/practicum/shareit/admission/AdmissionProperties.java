@@ -0,0 +1,54 @@
+package ru.practicum.shareit.admission;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Неверные лимиты (нулевая частота, пустая корзина) останавливают запуск, а не всплывают на первом запросе.
+ */
+@Data
+@Validated
+@ConfigurationProperties("shareit.admission")
+public class AdmissionProperties {
+    private boolean enabled = true;
+    /**
+     * Сколько клиентов (значений X-Sharer-User-Id) держать в памяти одновременно.
+     */
+    @Positive
+    private int maxTrackedClients = 10_000;
+    /**
+     * Сколько запросов обрабатывается одновременно; держать в пределах 2-4 размеров пула соединений.
+     */
+    @Positive
+    private int maxConcurrentRequests = 40;
+    /**
+     * Сколько запрос ждёт свободного слота, прежде чем получить 503.
+     */
+    private Duration concurrencyWait = Duration.ofMillis(100);
+    @Valid
+    private Budget read = new Budget(100, 50);
+    @Valid
+    private Budget search = new Budget(20, 10);
+    @Valid
+    private Budget write = new Budget(20, 5);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Budget {
+        @Min(1)
+        private int burst;
+        @Positive
+        @DecimalMax("1e9")
+        private double perSecond;
+    }
+}
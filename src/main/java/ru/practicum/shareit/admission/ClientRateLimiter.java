@@ -0,0 +1,91 @@
+package ru.practicum.shareit.admission;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Корзины токенов клиентов: у каждого клиента по корзине на класс эндпоинта. В памяти не больше
+ * maxTrackedClients клиентов; они разложены по сегментам, каждый сегмент — LRU под своим монитором.
+ * Новый клиент в полном сегменте вытесняет того, кто обращался давнее всех, за O(1): вытесненный
+ * при следующем запросе получит полные корзины. Сами корзины неблокирующие, монитор держится только
+ * на время поиска клиента.
+ */
+@Component
+public class ClientRateLimiter {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final AdmissionProperties properties;
+    private final Segment[] segments;
+
+    public ClientRateLimiter(AdmissionProperties properties) {
+        this.properties = properties;
+        int count = Math.min(MAX_SEGMENTS, properties.getMaxTrackedClients());
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(properties.getMaxTrackedClients() / count);
+        }
+    }
+
+    /**
+     * @return 0, если запрос пропущен, иначе через сколько наносекунд можно повторить
+     */
+    public long tryAcquire(String client, EndpointClass endpointClass) {
+        long now = System.nanoTime();
+        Segment segment = segments[Math.floorMod(client.hashCode(), segments.length)];
+        TokenBucket[] buckets;
+        synchronized (segment) {
+            buckets = segment.computeIfAbsent(client, key -> newBuckets(now));
+        }
+        return buckets[endpointClass.ordinal()].tryAcquire(now);
+    }
+
+    /**
+     * Сколько клиентов сейчас в памяти.
+     */
+    int trackedClients() {
+        int total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                total += segment.size();
+            }
+        }
+        return total;
+    }
+
+    private TokenBucket[] newBuckets(long now) {
+        EndpointClass[] classes = EndpointClass.values();
+        TokenBucket[] buckets = new TokenBucket[classes.length];
+        for (EndpointClass endpointClass : classes) {
+            AdmissionProperties.Budget budget = budget(endpointClass);
+            buckets[endpointClass.ordinal()] = new TokenBucket(budget.getBurst(), budget.getPerSecond(), now);
+        }
+        return buckets;
+    }
+
+    private AdmissionProperties.Budget budget(EndpointClass endpointClass) {
+        return switch (endpointClass) {
+            case READ -> properties.getRead();
+            case SEARCH -> properties.getSearch();
+            case WRITE -> properties.getWrite();
+        };
+    }
+
+    /**
+     * LinkedHashMap в порядке обращений; без собственной синхронизации.
+     */
+    private static final class Segment extends LinkedHashMap<String, TokenBucket[]> {
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TokenBucket[]> eldest) {
+            return size() > capacity;
+        }
+    }
+}
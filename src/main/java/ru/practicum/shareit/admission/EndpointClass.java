@@ -0,0 +1,17 @@
+package ru.practicum.shareit.admission;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+public enum EndpointClass {
+    READ,
+    SEARCH,
+    WRITE;
+
+    public static EndpointClass of(HttpServletRequest request) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            return WRITE;
+        }
+        return request.getRequestURI().startsWith("/items/search") ? SEARCH : READ;
+    }
+}
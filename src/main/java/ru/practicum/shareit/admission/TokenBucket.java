@@ -0,0 +1,40 @@
+package ru.practicum.shareit.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Неблокирующий token bucket в форме GCRA: всё состояние — одно «теоретическое время прибытия»
+ * следующего запроса в AtomicLong, обновляемое CAS-ом.
+ * Запрос пропускается, если это время опережает текущее не больше, чем на burst - 1 интервалов.
+ */
+public class TokenBucket {
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(int burst, double perSecond, long nowNanos) {
+        if (burst < 1 || !(perSecond > 0) || perSecond > 1_000_000_000L) {
+            throw new IllegalArgumentException("Нужны burst >= 1 и perSecond в (0, 1e9]: " + burst + ", " + perSecond);
+        }
+        this.intervalNanos = (long) (1_000_000_000L / perSecond);
+        this.toleranceNanos = Math.multiplyExact(intervalNanos, (long) burst - 1);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * @return 0, если запрос пропущен, иначе через сколько наносекунд появится следующий токен
+     */
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long arrival = Math.max(current, nowNanos);
+            long wait = arrival - nowNanos - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(current, arrival + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+}
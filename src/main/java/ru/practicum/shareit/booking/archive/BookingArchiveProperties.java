@@ -0,0 +1,29 @@
+package ru.practicum.shareit.booking.archive;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("shareit.booking-archive")
+public class BookingArchiveProperties {
+    private boolean enabled = true;
+    /**
+     * Бронирования, закончившиеся раньше, чем horizon назад, переносятся в bookings_archive.
+     */
+    private Duration horizon = Duration.ofDays(365);
+    /**
+     * Сколько бронирований переносится одной транзакцией.
+     */
+    private int batchSize = 500;
+    /**
+     * Пауза между запусками архиватора; первый запуск — через interval после старта.
+     */
+    private Duration interval = Duration.ofHours(1);
+    /**
+     * Аренда архивации (scheduled_locks) продлевается каждой порцией на lease; пока она не истекла,
+     * другие узлы не архивируют. Если узел остановился посреди работы, другой продолжит через lease.
+     */
+    private Duration lease = Duration.ofMinutes(10);
+}
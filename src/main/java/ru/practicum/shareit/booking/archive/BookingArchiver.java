@@ -0,0 +1,179 @@
+package ru.practicum.shareit.booking.archive;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.storage.BookingArchiveStorage;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.booking.storage.BookingTimelineStore;
+import ru.practicum.shareit.coherence.InvalidationBus;
+import ru.practicum.shareit.coherence.ItemReloads;
+import ru.practicum.shareit.item.storage.ItemStatsStore;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Переносит завершённые бронирования старше горизонта из bookings в bookings_archive порциями по batchSize,
+ * каждая порция — отдельная транзакция. Подтверждённые бронирования до удаления добавляются в сводку
+ * booking_summaries, а все — в помесячные счётчики вещей booking_month_summaries, из которых ItemStatsStore
+ * берёт архивную статистику. Другие узлы получают инвалидацию бронирований каждой затронутой вещи и убирают
+ * перенесённые бронирования из своих таймлайнов. Не ленивый: иначе при spring.main.lazy-initialization
+ * расписание не запустится.
+ * <p>
+ * Расписание срабатывает на каждом узле, но архивирует только тот, у кого аренда booking-archive в scheduled_locks:
+ * каждая порция в своей транзакции берёт или продлевает её, и узел, которому аренда не досталась, пропускает запуск.
+ */
+@Slf4j
+@Lazy(false)
+@Component
+public class BookingArchiver {
+    static final String LEASE = "booking-archive";
+
+    private final String node = UUID.randomUUID().toString();
+    private final BookingArchiveProperties properties;
+    private final BookingStorage bookingStorage;
+    private final BookingArchiveStorage bookingArchiveStorage;
+    private final BookingTimelineStore bookingTimelineStore;
+    private final ItemReloads itemReloads;
+    private final InvalidationBus invalidationBus;
+    private final TransactionTemplate transaction;
+    private final Counter archivedCounter;
+
+    public BookingArchiver(BookingArchiveProperties properties, BookingStorage bookingStorage,
+                           BookingArchiveStorage bookingArchiveStorage, BookingTimelineStore bookingTimelineStore,
+                           ItemReloads itemReloads, InvalidationBus invalidationBus,
+                           PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.bookingStorage = bookingStorage;
+        this.bookingArchiveStorage = bookingArchiveStorage;
+        this.bookingTimelineStore = bookingTimelineStore;
+        this.itemReloads = itemReloads;
+        this.invalidationBus = invalidationBus;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.archivedCounter = meterRegistry.counter("shareit.booking_archive.archived");
+    }
+
+    @Scheduled(initialDelayString = "${shareit.booking-archive.interval:PT1H}",
+            fixedDelayString = "${shareit.booking-archive.interval:PT1H}")
+    public void archiveExpired() {
+        if (properties.isEnabled()) {
+            archive(LocalDateTime.now().minus(properties.getHorizon()));
+        }
+    }
+
+    /**
+     * Переносит в архив бронирования, закончившиеся раньше horizon; возвращает их число.
+     */
+    public int archive(LocalDateTime horizon) {
+        long started = System.nanoTime();
+        int total = 0;
+        Integer moved;
+        try {
+            do {
+                moved = transaction.execute(status -> archiveBatch(horizon));
+                if (moved == null) {
+                    log.debug("Архивацию выполняет другой узел, запуск пропущен");
+                    break;
+                }
+                total += moved;
+            } while (moved == properties.getBatchSize());
+        } finally {
+            transaction.executeWithoutResult(status ->
+                    bookingArchiveStorage.releaseLease(LEASE, node, LocalDateTime.now()));
+        }
+        if (total > 0) {
+            log.info("В архив перенесено {} бронирований, закончившихся до {}, {} мс",
+                    total, horizon, (System.nanoTime() - started) / 1_000_000);
+        }
+        return total;
+    }
+
+    /**
+     * Возвращает число перенесённых бронирований или null, если аренда у другого узла.
+     */
+    private Integer archiveBatch(LocalDateTime horizon) {
+        LocalDateTime now = LocalDateTime.now();
+        if (bookingArchiveStorage.lease(LEASE, node, now, now.plus(properties.getLease())) == 0) {
+            return null;
+        }
+        List<BookingOut> batch = bookingStorage.findArchivable(horizon, Limit.of(properties.getBatchSize()));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Map<List<Long>, Summary> summaries = new HashMap<>();
+        Map<MonthKey, MonthSummary> months = new HashMap<>();
+        for (BookingOut booking : batch) {
+            if (booking.getStatus() == Status.APPROVED) {
+                summaries.merge(List.of(booking.getItemId(), booking.getBookerId()),
+                        new Summary(1, booking.getEnd()), Summary::plus);
+            }
+            months.merge(new MonthKey(booking.getItemId(), YearMonth.from(booking.getStart()).toString()),
+                    MonthSummary.of(booking), MonthSummary::plus);
+        }
+        summaries.forEach((key, summary) -> {
+            if (bookingArchiveStorage.addToSummary(key.get(0), key.get(1), summary.approved(), summary.lastEnd())
+                    == 0) {
+                bookingArchiveStorage.insertSummary(key.get(0), key.get(1), summary.approved(), summary.lastEnd());
+            }
+        });
+        months.forEach((key, month) -> {
+            if (bookingArchiveStorage.addToMonthSummary(key.itemId(), key.month(), month.bookings(),
+                    month.approved(), month.rejected(), month.bookedDays()) == 0) {
+                bookingArchiveStorage.insertMonthSummary(key.itemId(), key.month(), month.bookings(),
+                        month.approved(), month.rejected(), month.bookedDays());
+            }
+        });
+        List<Long> ids = batch.stream().map(BookingOut::getId).toList();
+        bookingArchiveStorage.copyFromBookings(ids, now);
+        bookingStorage.deleteByIds(ids);
+        Set<Long> items = new TreeSet<>();
+        batch.forEach(booking -> items.add(booking.getItemId()));
+        for (Long itemId : items) {
+            itemReloads.changing(itemId);
+            invalidationBus.publishBookings(itemId);
+        }
+        bookingTimelineStore.onArchived(batch);
+        archivedCounter.increment(batch.size());
+        log.debug("Порция архива: {} бронирований, {} строк сводки, {} месяцев вещей", batch.size(),
+                summaries.size(), months.size());
+        return batch.size();
+    }
+
+    private record Summary(long approved, LocalDateTime lastEnd) {
+        Summary plus(Summary other) {
+            return new Summary(approved + other.approved,
+                    lastEnd.isAfter(other.lastEnd) ? lastEnd : other.lastEnd);
+        }
+    }
+
+    private record MonthKey(long itemId, String month) {
+    }
+
+    private record MonthSummary(long bookings, long approved, long rejected, long bookedDays) {
+        static MonthSummary of(BookingOut booking) {
+            boolean approved = booking.getStatus() == Status.APPROVED;
+            return new MonthSummary(1, approved ? 1 : 0, booking.getStatus() == Status.REJECTED ? 1 : 0,
+                    approved ? ItemStatsStore.bookedDays(booking.getStart(), booking.getEnd()) : 0);
+        }
+
+        MonthSummary plus(MonthSummary other) {
+            return new MonthSummary(bookings + other.bookings, approved + other.approved,
+                    rejected + other.rejected, bookedDays + other.bookedDays);
+        }
+    }
+}
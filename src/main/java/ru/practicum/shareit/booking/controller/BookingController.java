@@ -3,12 +3,17 @@ package ru.practicum.shareit.booking.controller;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.BookingExpand;
 import ru.practicum.shareit.booking.model.BookingOut;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.sql.SqlBudget;
 
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RestController
@@ -21,52 +26,86 @@ public class BookingController {
     public static final String USER_ID_HEADER = "X-Sharer-User-Id";
 
     @PostMapping
+    @SqlBudget(statements = 5)
     public BookingOut create(@RequestHeader(USER_ID_HEADER) Long bookerId,
-                             @Valid @RequestBody BookingDto bookingDto) {
+                             @Valid @RequestBody BookingDto bookingDto,
+                             @RequestParam(required = false) List<String> expand) {
         log.info("POST /bookings - Создание бронирования: bookerId: {}, bookingDto: {}", bookerId, bookingDto);
         log.debug("Детали бронирования - start: {}, end: {}, itemId: {}",
                 bookingDto.getStart(), bookingDto.getEnd(), bookingDto.getItemId());
-        BookingOut result = bookingService.create(bookerId, bookingDto);
+        BookingOut result = bookingService.create(bookerId, bookingDto, BookingExpand.parse(expand));
         log.info("Бронирование успешно создано: {}", result);
         return result;
     }
 
     @PatchMapping("/{bookingId}")
+    @SqlBudget(statements = 11)
     public BookingOut update(@PathVariable Long bookingId,
                              @RequestParam(name = "approved", required = true) boolean approved,
-                             @RequestHeader(USER_ID_HEADER) Long ownerId) {
+                             @RequestHeader(USER_ID_HEADER) Long ownerId,
+                             @RequestParam(required = false) List<String> expand) {
         log.info("PATCH /bookings/{} - Обновление статуса бронирования: ownerId: {}, approved: {}",
                 bookingId, ownerId, approved);
-        BookingOut result = bookingService.update(ownerId, approved, bookingId);
+        BookingOut result = bookingService.update(ownerId, approved, bookingId, BookingExpand.parse(expand));
         log.info("Статус бронирования обновлен: {}", result);
         return result;
     }
 
+    /**
+     * Поток изменений статуса бронирований, где пользователь арендатор или владелец вещи.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(USER_ID_HEADER) Long userId) {
+        log.info("GET /bookings/stream - Подписка на изменения бронирований: userId: {}", userId);
+        return bookingService.subscribe(userId);
+    }
+
     @GetMapping("/{bookingId}")
+    @SqlBudget(statements = 1)
     public BookingOut getBooking(@PathVariable Long bookingId,
-                                 @RequestHeader(USER_ID_HEADER) Long userId) {
+                                 @RequestHeader(USER_ID_HEADER) Long userId,
+                                 @RequestParam(required = false) List<String> expand) {
         log.info("GET /bookings/{} - Получение бронирования пользователем: userId: {}", bookingId, userId);
-        BookingOut result = bookingService.getBooking(userId, bookingId);
+        BookingOut result = bookingService.getBooking(userId, bookingId, BookingExpand.parse(expand));
         log.info("Найдено бронирование: {}", result);
         return result;
     }
 
+    @GetMapping(params = "ids")
+    @SqlBudget(statements = 2)
+    public Map<Long, BookingOut> getBookings(@RequestHeader(USER_ID_HEADER) Long userId,
+                                             @RequestParam List<Long> ids,
+                                             @RequestParam(required = false) List<String> expand) {
+        log.info("GET /bookings?ids - Пакетное получение бронирований: userId: {}, ids: {}", userId, ids);
+        Map<Long, BookingOut> result = bookingService.getBookings(userId, ids, BookingExpand.parse(expand));
+        log.info("Найдено {} бронирований", result.size());
+        return result;
+    }
+
     @GetMapping("/owner")
+    @SqlBudget(statements = 5)
     public List<BookingOut> getBookingsByOwner(
             @RequestHeader(USER_ID_HEADER) Long userId,
-            @RequestParam(defaultValue = "ALL") String state) {
+            @RequestParam(defaultValue = "ALL") String state,
+            @RequestParam(defaultValue = "false") boolean includeArchived,
+            @RequestParam(required = false) List<String> expand) {
         log.info("GET /bookings/owner - Получение бронирований владельца: userId: {}, state: {}", userId, state);
-        List<BookingOut> result = bookingService.getBookingsByOwner(userId, state);
+        List<BookingOut> result = bookingService.getBookingsByOwner(userId, state, includeArchived,
+                BookingExpand.parse(expand));
         log.info("Найдено {} бронирований для владельца", result.size());
         log.debug("Список бронирований владельца: {}", result);
         return result;
     }
 
     @GetMapping
+    @SqlBudget(statements = 3)
     public List<BookingOut> getBookingsByUser(@RequestHeader(USER_ID_HEADER) Long userId,
-                                              @RequestParam(defaultValue = "ALL") String state) {
+                                              @RequestParam(defaultValue = "ALL") String state,
+                                              @RequestParam(defaultValue = "false") boolean includeArchived,
+            @RequestParam(required = false) List<String> expand) {
         log.info("GET /bookings - Получение бронирований пользователя: userId: {}, state: {}", userId, state);
-        List<BookingOut> result = bookingService.getBookingsByUser(userId, state);
+        List<BookingOut> result = bookingService.getBookingsByUser(userId, state, includeArchived,
+                BookingExpand.parse(expand));
         log.info("Найдено {} бронирований для пользователя", result.size());
         log.debug("Список бронирований пользователя: {}", result);
         return result;
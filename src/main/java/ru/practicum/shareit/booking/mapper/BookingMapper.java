@@ -4,9 +4,7 @@ import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingOut;
 import ru.practicum.shareit.booking.model.Status;
-import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
-import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 
 public class BookingMapper {
@@ -39,13 +37,7 @@ public class BookingMapper {
         if (booking == null) {
             return null;
         }
-        BookingOut dto = new BookingOut();
-        dto.setId(booking.getId());
-        dto.setStart(booking.getStart());
-        dto.setEnd(booking.getEnd());
-        dto.setBooker(UserMapper.toUserDto(booking.getBooker()));
-        dto.setItem(ItemMapper.toItemDto(booking.getItem()));
-        dto.setStatus(booking.getStatus());
-        return dto;
+        return new BookingOut(booking.getId(), booking.getStart(), booking.getEnd(), booking.getStatus(),
+                booking.getItem().getId(), booking.getBooker().getId());
     }
 }
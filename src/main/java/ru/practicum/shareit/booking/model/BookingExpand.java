@@ -0,0 +1,32 @@
+package ru.practicum.shareit.booking.model;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Вложенные объекты, которые подставляются в BookingOut только по запросу (?expand=item,booker).
+ */
+public enum BookingExpand {
+    ITEM,
+    BOOKER;
+
+    public static Set<BookingExpand> parse(Collection<String> values) {
+        Set<BookingExpand> result = EnumSet.noneOf(BookingExpand.class);
+        if (values == null) {
+            return result;
+        }
+        for (String value : values) {
+            if (value.isBlank()) {
+                continue;
+            }
+            try {
+                result.add(valueOf(value.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown expand: " + value);
+            }
+        }
+        return result;
+    }
+}
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.booking.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,17 +15,17 @@ import java.time.LocalDateTime;
 public class BookingOut {
 
     private Long id;
-    private ItemDto item;
     private LocalDateTime start;
     private LocalDateTime end;
-    private UserDto booker;
     private Status status;
+    private Long itemId;
+    private Long bookerId;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ItemDto item;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private UserDto booker;
 
-    public Long getItemId() {
-        return item.getId();
-    }
-
-    public Long getBookerId() {
-        return booker.getId();
+    public BookingOut(Long id, LocalDateTime start, LocalDateTime end, Status status, Long itemId, Long bookerId) {
+        this(id, start, end, status, itemId, bookerId, null, null);
     }
 }
@@ -0,0 +1,55 @@
+package ru.practicum.shareit.booking.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.BookingExpand;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.user.mapper.UserMapper;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.storage.UserStorage;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Подставляет в BookingOut вложенные item и booker, если их запросили через expand.
+ * Вещи и пользователи загружаются одним IN-запросом на тип для всего списка.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingExpander {
+    private final ItemStorage itemStorage;
+    private final UserStorage userStorage;
+
+    public BookingOut expand(BookingOut booking, Set<BookingExpand> expand) {
+        if (booking != null) {
+            expand(List.of(booking), expand);
+        }
+        return booking;
+    }
+
+    public List<BookingOut> expand(List<BookingOut> bookings, Set<BookingExpand> expand) {
+        if (bookings.isEmpty() || expand.isEmpty()) {
+            return bookings;
+        }
+        if (expand.contains(BookingExpand.ITEM)) {
+            Map<Long, Item> items = itemStorage.findAllWithOwnerByIdIn(ids(bookings, BookingOut::getItemId)).stream()
+                    .collect(Collectors.toMap(Item::getId, Function.identity()));
+            bookings.forEach(booking -> booking.setItem(ItemMapper.toItemDto(items.get(booking.getItemId()))));
+        }
+        if (expand.contains(BookingExpand.BOOKER)) {
+            Map<Long, User> users = userStorage.findAllById(ids(bookings, BookingOut::getBookerId)).stream()
+                    .collect(Collectors.toMap(User::getId, Function.identity()));
+            bookings.forEach(booking -> booking.setBooker(UserMapper.toUserDto(users.get(booking.getBookerId()))));
+        }
+        return bookings;
+    }
+
+    private static Set<Long> ids(List<BookingOut> bookings, Function<BookingOut, Long> id) {
+        return bookings.stream().map(id).collect(Collectors.toCollection(HashSet::new));
+    }
+}
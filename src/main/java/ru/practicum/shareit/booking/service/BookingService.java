@@ -1,18 +1,28 @@
 package ru.practicum.shareit.booking.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.BookingExpand;
 import ru.practicum.shareit.booking.model.BookingOut;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface BookingService {
-    BookingOut create(Long bookerId, BookingDto bookingDto);
+    BookingOut create(Long bookerId, BookingDto bookingDto, Set<BookingExpand> expand);
 
-    BookingOut update(Long bookerId, Boolean approved, Long bookingId);
+    BookingOut update(Long bookerId, Boolean approved, Long bookingId, Set<BookingExpand> expand);
 
-    BookingOut getBooking(Long userId, Long bookingId);
+    BookingOut getBooking(Long userId, Long bookingId, Set<BookingExpand> expand);
 
-    List<BookingOut> getBookingsByUser(Long userId, String state);
+    List<BookingOut> getBookingsByUser(Long userId, String state, boolean includeArchived, Set<BookingExpand> expand);
 
-    List<BookingOut> getBookingsByOwner(Long userId, String state);
+    List<BookingOut> getBookingsByOwner(Long userId, String state, boolean includeArchived,
+                                        Set<BookingExpand> expand);
+
+    Map<Long, BookingOut> getBookings(Long userId, Collection<Long> bookingIds, Set<BookingExpand> expand);
+
+    SseEmitter subscribe(Long userId);
 }
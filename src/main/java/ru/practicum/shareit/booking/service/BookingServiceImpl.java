@@ -1,39 +1,70 @@
 package ru.practicum.shareit.booking.service;
 
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingExpand;
 import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.storage.BookingArchiveStorage;
 import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.booking.storage.BookingTimelineStore;
+import ru.practicum.shareit.booking.stream.BookingEventStream;
+import ru.practicum.shareit.coherence.InvalidationBus;
+import ru.practicum.shareit.coherence.ItemReloads;
 import ru.practicum.shareit.exception.AccessDeniedException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemDashboardService;
+import ru.practicum.shareit.item.storage.ItemStatsStore;
 import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.item.storage.ItemSuggestionIndex;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.storage.UserStorage;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class BookingServiceImpl implements BookingService {
+    private static final int MAX_BATCH_SIZE = 100;
 
     private final BookingStorage bookingStorage;
+    private final BookingArchiveStorage bookingArchiveStorage;
     private final ItemStorage itemStorage;
     private final UserStorage userStorage;
+    private final ItemDashboardService itemDashboardService;
+    private final BookingExpander bookingExpander;
+    private final BookingTimelineStore bookingTimelineStore;
+    private final ItemSuggestionIndex itemSuggestionIndex;
+    private final ItemStatsStore itemStatsStore;
+    private final BookingEventStream bookingEventStream;
+    private final ItemReloads itemReloads;
+    private final InvalidationBus invalidationBus;
 
     @Transactional
     @Override
-    public BookingOut create(Long bookerId, BookingDto bookingDto) {
+    public BookingOut create(Long bookerId, BookingDto bookingDto, Set<BookingExpand> expand) {
         log.info("Создание нового бронирования. Пользователь ID={}, Вещь ID={}", bookerId, bookingDto.getItemId());
 
         if (!bookingDto.getStart().isBefore(bookingDto.getEnd())) {
@@ -55,13 +86,16 @@ public class BookingServiceImpl implements BookingService {
 
         Booking booking = BookingMapper.toBooking(bookingDto, item, user);
         bookingStorage.save(booking);
+        bookingsChanged(item.getId());
+        bookingTimelineStore.onSaved(booking);
+        itemStatsStore.onBookingCreated(booking);
         log.info("Бронирование ID={} успешно создано", booking.getId());
-        return BookingMapper.toBookingOut(booking);
+        return bookingExpander.expand(BookingMapper.toBookingOut(booking), expand);
     }
 
     @Transactional
     @Override
-    public BookingOut update(Long ownerId, Boolean approved, Long bookingId) {
+    public BookingOut update(Long ownerId, Boolean approved, Long bookingId, Set<BookingExpand> expand) {
         log.info("Обновление бронирования ID={} пользователем ID={} с approved={}", bookingId, ownerId, approved);
         Booking booking = getBookingOrThrow(bookingId);
 
@@ -79,12 +113,20 @@ public class BookingServiceImpl implements BookingService {
 
         booking.setStatus(approved ? Status.APPROVED : Status.REJECTED);
         bookingStorage.save(booking);
+        bookingsChanged(booking.getItem().getId());
+        bookingTimelineStore.onSaved(booking);
+        itemStatsStore.onBookingDecided(booking);
+        if (booking.getStatus() == Status.APPROVED) {
+            itemDashboardService.refresh(booking.getItem().getId());
+            itemSuggestionIndex.onBookingApproved(booking.getItem().getId());
+        }
+        bookingEventStream.publish(BookingMapper.toBookingOut(booking), ownerId);
         log.info("Бронирование ID={} обновлено. Новый статус={}", bookingId, booking.getStatus());
-        return BookingMapper.toBookingOut(booking);
+        return bookingExpander.expand(BookingMapper.toBookingOut(booking), expand);
     }
 
     @Override
-    public BookingOut getBooking(Long userId, Long bookingId) {
+    public BookingOut getBooking(Long userId, Long bookingId, Set<BookingExpand> expand) {
         log.info("Получение бронирования ID={} пользователем ID={}", bookingId, userId);
         Booking booking = getBookingOrThrow(bookingId);
 
@@ -94,96 +136,106 @@ public class BookingServiceImpl implements BookingService {
         }
 
         log.info("Бронирование ID={} возвращено пользователю ID={}", bookingId, userId);
-        return BookingMapper.toBookingOut(booking);
+        return bookingExpander.expand(BookingMapper.toBookingOut(booking), expand);
     }
 
+    /**
+     * Недоступные пользователю и несуществующие бронирования в ответ не попадают.
+     */
     @Override
-    public List<BookingOut> getBookingsByUser(Long userId, String state) {
-        log.info("Получение всех бронирований пользователя ID={} с фильтром state={}", userId, state);
+    public Map<Long, BookingOut> getBookings(Long userId, Collection<Long> bookingIds, Set<BookingExpand> expand) {
+        Set<Long> ids = checkBatchSize(bookingIds);
+        log.info("Пакетное получение {} бронирований пользователем ID={}", ids.size(), userId);
         getUserOrThrow(userId);
-        LocalDateTime now = LocalDateTime.now();
-
-        List<Booking> bookings;
-
-        switch (state.toUpperCase()) {
-            case "ALL":
-                bookings = bookingStorage.findByBookerIdOrderByStartDesc(userId);
-                break;
-            case "CURRENT":
-                bookings = bookingStorage.findByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(userId, now, now);
-                break;
-            case "PAST":
-                bookings = bookingStorage.findByBookerIdAndEndBeforeOrderByStartDesc(userId, now);
-                break;
-            case "FUTURE":
-                bookings = bookingStorage.findByBookerIdAndStartAfterOrderByStartDesc(userId, now);
-                break;
-            case "WAITING":
-                bookings = bookingStorage.findByBookerIdAndStatusOrderByStartDesc(userId, Status.WAITING);
-                break;
-            case "REJECTED":
-                bookings = bookingStorage.findByBookerIdAndStatusOrderByStartDesc(userId, Status.REJECTED);
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown state: " + state);
+
+        Map<Long, BookingOut> found = bookingExpander.expand(bookingStorage.findAccessibleBookings(ids, userId), expand)
+                .stream()
+                .collect(Collectors.toMap(BookingOut::getId, Function.identity()));
+        Map<Long, BookingOut> result = new LinkedHashMap<>();
+        for (Long id : ids) {
+            BookingOut booking = found.get(id);
+            if (booking != null) {
+                result.put(id, booking);
+            }
         }
+        log.info("Пользователю ID={} доступно {} бронирований из {} запрошенных", userId, result.size(), ids.size());
+        return result;
+    }
 
-        List<BookingOut> result = bookings.stream()
-                .map(BookingMapper::toBookingOut)
-                .collect(Collectors.toList());
+    @Override
+    public SseEmitter subscribe(Long userId) {
+        getUserOrThrow(userId);
+        return bookingEventStream.subscribe(userId);
+    }
+
+    @Override
+    public List<BookingOut> getBookingsByUser(Long userId, String state, boolean includeArchived,
+                                              Set<BookingExpand> expand) {
+        log.info("Получение всех бронирований пользователя ID={} с фильтром state={}", userId, state);
+        getUserOrThrow(userId);
+        BookingState bookingState = BookingState.from(state);
+
+        List<BookingOut> result = bookingStorage.findBookerBookings(userId, bookingState, LocalDateTime.now());
+        if (includeArchived) {
+            result = withArchived(result, bookingState, () -> bookingArchiveStorage.findBookerBookings(userId));
+        }
 
         log.info("Найдено {} бронирований для пользователя ID={} с фильтром state={}", result.size(), userId, state);
-        return result;
+        return bookingExpander.expand(result, expand);
     }
 
     @Override
-    public List<BookingOut> getBookingsByOwner(Long ownerId, String state) {
+    public List<BookingOut> getBookingsByOwner(Long ownerId, String state, boolean includeArchived,
+                                               Set<BookingExpand> expand) {
         log.info("Получение всех бронирований владельца ID={} с фильтром state={}", ownerId, state);
         getUserOrThrow(ownerId);
-        LocalDateTime now = LocalDateTime.now();
-
-        List<Booking> bookings;
-
-        switch (state.toUpperCase()) {
-            case "ALL":
-                bookings = bookingStorage.findAllByItemOwnerIdOrderByStartDesc(ownerId);
-                break;
-            case "CURRENT":
-                bookings = bookingStorage.findByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(ownerId, now, now);
-                break;
-            case "PAST":
-                bookings = bookingStorage.findByItemOwnerIdAndEndBeforeOrderByStartDesc(ownerId, now);
-                break;
-            case "FUTURE":
-                bookings = bookingStorage.findByItemOwnerIdAndStartAfterOrderByStartDesc(ownerId, now);
-                break;
-            case "WAITING":
-                bookings = bookingStorage.findByItemOwnerIdAndStatusOrderByStartDesc(ownerId, Status.WAITING);
-                break;
-            case "REJECTED":
-                bookings = bookingStorage.findByItemOwnerIdAndStatusOrderByStartDesc(ownerId, Status.REJECTED);
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown state: " + state);
-        }
+        BookingState bookingState = BookingState.from(state);
 
-        List<BookingOut> result = bookings.stream()
-                .map(BookingMapper::toBookingOut)
-                .collect(Collectors.toList());
+        List<BookingOut> result = bookingStorage.findOwnerBookings(ownerId, bookingState, LocalDateTime.now());
+        if (includeArchived) {
+            result = withArchived(result, bookingState, () -> bookingArchiveStorage.findOwnerBookings(ownerId));
+        }
 
         log.info("Найдено {} бронирований для владельца ID={} с фильтром state={}", result.size(), ownerId, state);
-        return result;
+        return bookingExpander.expand(result, expand);
     }
 
-    private boolean filterByState(Booking booking, String state, LocalDateTime now) {
-        return switch (state.toUpperCase()) {
-            case "CURRENT" -> booking.getStart().isBefore(now) && booking.getEnd().isAfter(now);
-            case "PAST" -> booking.getEnd().isBefore(now);
-            case "FUTURE" -> booking.getStart().isAfter(now);
-            case "WAITING" -> booking.getStatus() == Status.WAITING;
-            case "REJECTED" -> booking.getStatus() == Status.REJECTED;
-            default -> true;
+    /**
+     * Добавляет к выборке архивные бронирования. Все они закончились в прошлом, поэтому в CURRENT и FUTURE
+     * не попадают и архив не читается.
+     */
+    private List<BookingOut> withArchived(List<BookingOut> live, BookingState state,
+                                          Supplier<List<BookingOut>> archive) {
+        Predicate<BookingOut> matches = switch (state) {
+            case ALL, PAST -> booking -> true;
+            case WAITING -> booking -> booking.getStatus() == Status.WAITING;
+            case REJECTED -> booking -> booking.getStatus() == Status.REJECTED;
+            case CURRENT, FUTURE -> null;
         };
+        if (matches == null) {
+            return live;
+        }
+        List<BookingOut> result = new ArrayList<>(live);
+        archive.get().stream().filter(matches).forEach(result::add);
+        result.sort(Comparator.comparing(BookingOut::getStart).reversed());
+        return result;
+    }
+
+    /**
+     * Таймлайн, статистику и популярность вещи на этом узле меняют вызовы после коммита, другие узлы
+     * перечитывают их из БД по инвалидации.
+     */
+    private void bookingsChanged(Long itemId) {
+        itemReloads.changing(itemId);
+        invalidationBus.publishBookings(itemId);
+    }
+
+    private Set<Long> checkBatchSize(Collection<Long> ids) {
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        if (unique.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Можно запросить не более " + MAX_BATCH_SIZE + " бронирований за раз");
+        }
+        return unique;
     }
 
     private User getUserOrThrow(Long id) {
@@ -0,0 +1,129 @@
+package ru.practicum.shareit.booking.storage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.shareit.booking.model.ArchivedBooking;
+import ru.practicum.shareit.booking.model.BookingOut;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Архив завершённых бронирований и сводки по нему: число подтверждённых бронирований и последнее окончание
+ * для пары вещь-арендатор (booking_summaries) и счётчики статистики вещи по месяцам (booking_month_summaries).
+ * Сводки отвечают на проверку права оставить отзыв и на статистику без чтения архива.
+ */
+public interface BookingArchiveStorage extends JpaRepository<ArchivedBooking, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO bookings_archive (id, start_date, end_date, item_id, booker_id, status, archived_at) " +
+            "SELECT b.id, b.start_date, b.end_date, b.item_id, b.booker_id, b.status, :archivedAt " +
+            "FROM bookings b " +
+            "WHERE b.id IN :ids", nativeQuery = true)
+    int copyFromBookings(@Param("ids") Collection<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
+
+    /**
+     * Берёт или продлевает до until аренду задачи name для узла node: удаётся, если аренда свободна, истекла
+     * или уже принадлежит node. Строка блокируется до конца транзакции, поэтому одновременная попытка другого узла
+     * дожидается коммита и находит аренду занятой. Возвращает 1, если аренда получена.
+     */
+    @Modifying
+    @Query(value = "UPDATE scheduled_locks SET locked_until = :until, locked_by = :node " +
+            "WHERE name = :name AND (locked_until <= :now OR locked_by = :node)", nativeQuery = true)
+    int lease(@Param("name") String name, @Param("node") String node, @Param("now") LocalDateTime now,
+              @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query(value = "UPDATE scheduled_locks SET locked_until = :now " +
+            "WHERE name = :name AND locked_by = :node AND locked_until > :now", nativeQuery = true)
+    int releaseLease(@Param("name") String name, @Param("node") String node, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "UPDATE booking_summaries " +
+            "SET approved_count = approved_count + :approved, last_end = GREATEST(last_end, :lastEnd) " +
+            "WHERE item_id = :itemId AND booker_id = :bookerId", nativeQuery = true)
+    int addToSummary(@Param("itemId") Long itemId, @Param("bookerId") Long bookerId,
+                     @Param("approved") long approved, @Param("lastEnd") LocalDateTime lastEnd);
+
+    @Modifying
+    @Query(value = "INSERT INTO booking_summaries (item_id, booker_id, approved_count, last_end) " +
+            "VALUES (:itemId, :bookerId, :approved, :lastEnd)", nativeQuery = true)
+    void insertSummary(@Param("itemId") Long itemId, @Param("bookerId") Long bookerId,
+                       @Param("approved") long approved, @Param("lastEnd") LocalDateTime lastEnd);
+
+    @Query(value = "SELECT COUNT(*) FROM booking_summaries " +
+            "WHERE item_id = :itemId AND booker_id = :bookerId AND approved_count > 0", nativeQuery = true)
+    long countSummaries(@Param("itemId") Long itemId, @Param("bookerId") Long bookerId);
+
+    default boolean existsApprovedBooking(Long itemId, Long bookerId) {
+        return countSummaries(itemId, bookerId) > 0;
+    }
+
+    /**
+     * Прибавляет перенесённые в архив бронирования к помесячной сводке вещи; 0 — строки за этот месяц ещё нет.
+     * startMonth — месяц начала бронирования, YearMonth.toString().
+     */
+    @Modifying
+    @Query(value = "UPDATE booking_month_summaries " +
+            "SET bookings = bookings + :bookings, approved = approved + :approved, rejected = rejected + :rejected, " +
+            "booked_days = booked_days + :bookedDays " +
+            "WHERE item_id = :itemId AND start_month = :startMonth", nativeQuery = true)
+    int addToMonthSummary(@Param("itemId") Long itemId, @Param("startMonth") String startMonth,
+                          @Param("bookings") long bookings, @Param("approved") long approved,
+                          @Param("rejected") long rejected, @Param("bookedDays") long bookedDays);
+
+    @Modifying
+    @Query(value = "INSERT INTO booking_month_summaries " +
+            "(item_id, start_month, bookings, approved, rejected, booked_days) " +
+            "VALUES (:itemId, :startMonth, :bookings, :approved, :rejected, :bookedDays)", nativeQuery = true)
+    void insertMonthSummary(@Param("itemId") Long itemId, @Param("startMonth") String startMonth,
+                            @Param("bookings") long bookings, @Param("approved") long approved,
+                            @Param("rejected") long rejected, @Param("bookedDays") long bookedDays);
+
+    @Query(value = "SELECT s.item_id AS itemId, i.owner_id AS ownerId, s.start_month AS startMonth, " +
+            "s.bookings AS bookings, s.approved AS approved, s.rejected AS rejected, s.booked_days AS bookedDays " +
+            "FROM booking_month_summaries s JOIN items i ON i.id = s.item_id", nativeQuery = true)
+    List<MonthSummary> findMonthSummaries();
+
+    @Query(value = "SELECT s.item_id AS itemId, i.owner_id AS ownerId, s.start_month AS startMonth, " +
+            "s.bookings AS bookings, s.approved AS approved, s.rejected AS rejected, s.booked_days AS bookedDays " +
+            "FROM booking_month_summaries s JOIN items i ON i.id = s.item_id " +
+            "WHERE s.item_id = :itemId", nativeQuery = true)
+    List<MonthSummary> findItemMonthSummaries(@Param("itemId") long itemId);
+
+    @Query("SELECT new ru.practicum.shareit.booking.model.BookingOut(a.id, a.start, a.end, a.status, " +
+            "a.itemId, a.bookerId) " +
+            "FROM ArchivedBooking a " +
+            "WHERE a.bookerId = :bookerId " +
+            "ORDER BY a.start DESC")
+    List<BookingOut> findBookerBookings(@Param("bookerId") Long bookerId);
+
+    @Query("SELECT new ru.practicum.shareit.booking.model.BookingOut(a.id, a.start, a.end, a.status, " +
+            "a.itemId, a.bookerId) " +
+            "FROM ArchivedBooking a JOIN Item i ON i.id = a.itemId " +
+            "WHERE i.owner.id = :ownerId " +
+            "ORDER BY a.start DESC")
+    List<BookingOut> findOwnerBookings(@Param("ownerId") Long ownerId);
+
+    /**
+     * Счётчики статистики вещи за месяц по её бронированиям в архиве.
+     */
+    interface MonthSummary {
+        Long getItemId();
+
+        Long getOwnerId();
+
+        String getStartMonth();
+
+        Long getBookings();
+
+        Long getApproved();
+
+        Long getRejected();
+
+        Long getBookedDays();
+    }
+}
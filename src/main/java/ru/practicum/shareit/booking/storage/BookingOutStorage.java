@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.storage;
+
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.booking.model.BookingState;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Выборки бронирований сразу в BookingOut, без загрузки сущностей Booking, Item и User.
+ */
+public interface BookingOutStorage {
+    List<BookingOut> findBookerBookings(Long bookerId, BookingState state, LocalDateTime now);
+
+    List<BookingOut> findOwnerBookings(Long ownerId, BookingState state, LocalDateTime now);
+}
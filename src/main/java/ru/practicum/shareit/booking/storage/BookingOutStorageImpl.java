@@ -0,0 +1,58 @@
+package ru.practicum.shareit.booking.storage;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.*;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.booking.model.Status;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class BookingOutStorageImpl implements BookingOutStorage {
+    private final EntityManager entityManager;
+
+    @Override
+    public List<BookingOut> findBookerBookings(Long bookerId, BookingState state, LocalDateTime now) {
+        return find(booking -> booking.get("booker").get("id"), bookerId, state, now);
+    }
+
+    @Override
+    public List<BookingOut> findOwnerBookings(Long ownerId, BookingState state, LocalDateTime now) {
+        return find(booking -> booking.get("item").get("owner").get("id"), ownerId, state, now);
+    }
+
+    private List<BookingOut> find(PartyPath party, Long userId, BookingState state, LocalDateTime now) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookingOut> query = cb.createQuery(BookingOut.class);
+        Root<Booking> booking = query.from(Booking.class);
+
+        Path<LocalDateTime> start = booking.get("start");
+        Path<LocalDateTime> end = booking.get("end");
+        Path<Status> status = booking.get("status");
+        Predicate byUser = cb.equal(party.of(booking), userId);
+        Predicate byState = switch (state) {
+            case ALL -> cb.conjunction();
+            case CURRENT -> cb.and(cb.lessThan(start, now), cb.greaterThan(end, now));
+            case PAST -> cb.lessThan(end, now);
+            case FUTURE -> cb.greaterThan(start, now);
+            case WAITING -> cb.equal(status, Status.WAITING);
+            case REJECTED -> cb.equal(status, Status.REJECTED);
+        };
+
+        query.select(cb.construct(BookingOut.class,
+                        booking.get("id"), start, end, status,
+                        booking.get("item").get("id"), booking.get("booker").get("id")))
+                .where(byUser, byState)
+                .orderBy(cb.desc(start));
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @FunctionalInterface
+    private interface PartyPath {
+        Path<Object> of(Root<Booking> booking);
+    }
+}
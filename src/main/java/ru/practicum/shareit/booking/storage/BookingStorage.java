@@ -1,17 +1,23 @@
 package ru.practicum.shareit.booking.storage;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingOut;
 import ru.practicum.shareit.booking.model.Status;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface BookingStorage extends JpaRepository<Booking, Long> {
-    List<Booking> findByBookerIdOrderByStartDesc(Long bookerId);
+public interface BookingStorage extends JpaRepository<Booking, Long>, BookingOutStorage {
 
     @Query("SELECT CASE WHEN COUNT(b) > 0 THEN true ELSE false END " +
             "FROM Booking b " +
@@ -23,36 +29,153 @@ public interface BookingStorage extends JpaRepository<Booking, Long> {
                                   @Param("userId") Long userId,
                                   @Param("status") Status status);
 
-    Optional<Booking> findFirstByItemIdAndEndBeforeAndStatusOrderByEndDesc(
-            Long itemId, LocalDateTime now, Status status);
+    /**
+     * Бронирования из ids, доступные пользователю: он арендатор или владелец вещи.
+     */
+    @Query("SELECT new ru.practicum.shareit.booking.model.BookingOut(b.id, b.start, b.end, b.status, " +
+            "b.item.id, b.booker.id) " +
+            "FROM Booking b " +
+            "WHERE b.id IN :ids " +
+            "AND (b.booker.id = :userId OR b.item.owner.id = :userId)")
+    List<BookingOut> findAccessibleBookings(@Param("ids") Collection<Long> ids,
+                                            @Param("userId") Long userId);
+
+    /**
+     * Все бронирования для загрузки BookingTimelineStore; читается потоком, без сущностей в контексте.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new ru.practicum.shareit.booking.model.BookingOut(b.id, b.start, b.end, b.status, " +
+            "b.item.id, b.booker.id) " +
+            "FROM Booking b " +
+            "ORDER BY b.item.id, b.start, b.id")
+    Stream<BookingOut> streamTimelineRows();
+
+    /**
+     * Бронирования вещи для перечитывания её таймлайна, в порядке начала.
+     */
+    @Query("SELECT new ru.practicum.shareit.booking.model.BookingOut(b.id, b.start, b.end, b.status, " +
+            "b.item.id, b.booker.id) " +
+            "FROM Booking b " +
+            "WHERE b.item.id = :itemId " +
+            "ORDER BY b.start, b.id")
+    List<BookingOut> findTimelineRows(@Param("itemId") long itemId);
+
+    /**
+     * Подтверждённые бронирования по вещам вместе с перенесёнными в архив (по сводке booking_summaries).
+     */
+    @Query(value = "SELECT c.item_id AS itemId, CAST(SUM(c.bookings) AS BIGINT) AS bookings " +
+            "FROM (SELECT b.item_id, COUNT(*) AS bookings FROM bookings b " +
+            "WHERE b.status = 'APPROVED' GROUP BY b.item_id " +
+            "UNION ALL " +
+            "SELECT s.item_id, s.approved_count FROM booking_summaries s) c " +
+            "GROUP BY c.item_id", nativeQuery = true)
+    List<ItemBookingCount> countApprovedByItem();
+
+    @Query(value = "SELECT CAST((SELECT COUNT(*) FROM bookings b " +
+            "WHERE b.item_id = :itemId AND b.status = 'APPROVED') + " +
+            "COALESCE((SELECT SUM(s.approved_count) FROM booking_summaries s WHERE s.item_id = :itemId), 0) " +
+            "AS BIGINT)", nativeQuery = true)
+    long countApproved(@Param("itemId") long itemId);
+
+    /**
+     * Бронирования, закончившиеся раньше horizon, в порядке id. Последнее из закончившихся раньше horizon
+     * подтверждённых бронирований вещи остаётся в bookings: по нему строится lastBooking в карточке вещи,
+     * даже если у вещи есть более поздние подтверждённые бронирования.
+     */
+    @Query("SELECT new ru.practicum.shareit.booking.model.BookingOut(b.id, b.start, b.end, b.status, " +
+            "b.item.id, b.booker.id) " +
+            "FROM Booking b " +
+            "WHERE b.end < :horizon " +
+            "AND NOT (b.status = ru.practicum.shareit.booking.model.Status.APPROVED AND b.end = " +
+            "(SELECT MAX(l.end) FROM Booking l " +
+            "WHERE l.item = b.item AND l.status = ru.practicum.shareit.booking.model.Status.APPROVED " +
+            "AND l.end < :horizon)) " +
+            "ORDER BY b.id")
+    List<BookingOut> findArchivable(@Param("horizon") LocalDateTime horizon, Limit limit);
+
+    @Modifying
+    @Query("DELETE FROM Booking b WHERE b.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Для каждой вещи из itemIds — бронирование со статусом status, закончившееся до now позже всех
+     * (при равном окончании — с большим id).
+     */
+    @Query("SELECT new ru.practicum.shareit.booking.model.BookingOut(b.id, b.start, b.end, b.status, " +
+            "b.item.id, b.booker.id) " +
+            "FROM Booking b " +
+            "WHERE b.item.id IN :itemIds AND b.status = :status AND b.end < :now " +
+            "AND NOT EXISTS (SELECT l.id FROM Booking l " +
+            "WHERE l.item.id = b.item.id AND l.status = :status AND l.end < :now " +
+            "AND (l.end > b.end OR (l.end = b.end AND l.id > b.id)))")
+    List<BookingOut> findLastEnded(@Param("itemIds") Collection<Long> itemIds, @Param("now") LocalDateTime now,
+                                   @Param("status") Status status);
+
+    /**
+     * Для каждой вещи из itemIds — ближайшее бронирование со статусом status, начинающееся после now.
+     */
+    @Query("SELECT new ru.practicum.shareit.booking.model.BookingOut(b.id, b.start, b.end, b.status, " +
+            "b.item.id, b.booker.id) " +
+            "FROM Booking b " +
+            "WHERE b.item.id IN :itemIds AND b.status = :status AND b.start > :now " +
+            "AND NOT EXISTS (SELECT n.id FROM Booking n " +
+            "WHERE n.item.id = b.item.id AND n.status = :status AND n.start > :now " +
+            "AND (n.start < b.start OR (n.start = b.start AND n.id < b.id)))")
+    List<BookingOut> findNextStarting(@Param("itemIds") Collection<Long> itemIds, @Param("now") LocalDateTime now,
+                                      @Param("status") Status status);
+
+    /**
+     * Для каждой вещи из itemIds — ближайшее окончание после now среди бронирований со статусом status.
+     */
+    @Query("SELECT b.item.id AS itemId, MIN(b.end) AS moment " +
+            "FROM Booking b " +
+            "WHERE b.item.id IN :itemIds AND b.status = :status AND b.end > :now " +
+            "GROUP BY b.item.id")
+    List<ItemMoment> findNextEnds(@Param("itemIds") Collection<Long> itemIds, @Param("now") LocalDateTime now,
+                                  @Param("status") Status status);
 
-    Optional<Booking> findFirstByItemIdAndStartAfterAndStatusOrderByStartAsc(
-            Long itemId, LocalDateTime now, Status status);
+    @Query("SELECT MIN(b.id) FROM Booking b")
+    Long findMinId();
 
-    List<Booking> findAllByItemOwnerIdOrderByStartDesc(Long ownerId);
+    @Query("SELECT MAX(b.id) FROM Booking b")
+    Long findMaxId();
 
-    List<Booking> findByBookerIdAndStartBeforeAndEndAfterOrderByStartDesc(
-            Long bookerId, LocalDateTime start, LocalDateTime end);
+    /**
+     * Бронирования с id из [fromId, toId) для пересчёта статистики вещей.
+     */
+    @Query("SELECT b.item.id AS itemId, b.item.owner.id AS ownerId, b.start AS startTime, b.end AS endTime, " +
+            "b.status AS status " +
+            "FROM Booking b " +
+            "WHERE b.id >= :fromId AND b.id < :toId")
+    List<StatsRow> findStatsRows(@Param("fromId") long fromId, @Param("toId") long toId);
 
-    List<Booking> findByBookerIdAndEndBeforeOrderByStartDesc(Long bookerId, LocalDateTime end);
+    @Query("SELECT b.item.id AS itemId, b.item.owner.id AS ownerId, b.start AS startTime, b.end AS endTime, " +
+            "b.status AS status " +
+            "FROM Booking b " +
+            "WHERE b.item.id = :itemId")
+    List<StatsRow> findItemStatsRows(@Param("itemId") long itemId);
 
-    List<Booking> findByBookerIdAndStartAfterOrderByStartDesc(Long bookerId, LocalDateTime start);
+    interface ItemMoment {
+        Long getItemId();
 
-    List<Booking> findByBookerIdAndStatusOrderByStartDesc(Long bookerId, Status status);
+        LocalDateTime getMoment();
+    }
 
-    List<Booking> findByItemOwnerIdAndStartBeforeAndEndAfterOrderByStartDesc(
-            Long ownerId, LocalDateTime start, LocalDateTime end);
+    interface StatsRow {
+        Long getItemId();
 
-    List<Booking> findByItemOwnerIdAndEndBeforeOrderByStartDesc(Long ownerId, LocalDateTime end);
+        Long getOwnerId();
 
-    List<Booking> findByItemOwnerIdAndStartAfterOrderByStartDesc(Long ownerId, LocalDateTime start);
+        LocalDateTime getStartTime();
 
-    List<Booking> findByItemOwnerIdAndStatusOrderByStartDesc(Long ownerId, Status status);
+        LocalDateTime getEndTime();
 
-    List<Booking> findByItemIdInAndEndBeforeAndStatusOrderByEndDesc(
-            List<Long> itemIds, LocalDateTime end, Status status);
+        Status getStatus();
+    }
 
-    List<Booking> findByItemIdInAndStartAfterAndStatusOrderByStartAsc(
-            List<Long> itemIds, LocalDateTime start, Status status);
+    interface ItemBookingCount {
+        Long getItemId();
 
+        Long getBookings();
+    }
 }
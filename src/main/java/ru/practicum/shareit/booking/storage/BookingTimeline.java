@@ -0,0 +1,335 @@
+package ru.practicum.shareit.booking.storage;
+
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.booking.model.Status;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Неизменяемый снимок бронирований одной вещи в виде параллельных примитивных массивов, отсортированных по началу.
+ * Время хранится в микросекундах от эпохи (точность TIMESTAMP в БД). Поиск выполняется бинарным поиском
+ * и не создаёт объектов; изменения создают новый снимок (copy-on-write).
+ * <p>
+ * Дни, которых касаются подтверждённые бронирования, отмечены в битовой карте: проверка свободного окна
+ * стоит столько, сколько в нём дней, и только для занятых дней уточняется по самим бронированиям.
+ */
+public final class BookingTimeline {
+    public static final BookingTimeline EMPTY = new BookingTimeline(new long[0], new long[0], new long[0],
+            new long[0], new byte[0]);
+
+    private static final Status[] STATUSES = Status.values();
+    private static final int APPROVED_MASK = mask(Status.APPROVED);
+    private static final long MICROS_PER_DAY = 86_400_000_000L;
+
+    private final long[] starts;
+    private final long[] ends;
+    private final long[] ids;
+    private final long[] bookerIds;
+    private final byte[] statuses;
+    /**
+     * Индексы бронирований в порядке возрастания окончания.
+     */
+    private final int[] byEnd;
+    /**
+     * maxEnds[i] — наибольшее окончание среди бронирований 0..i, отсекает перебор при поиске пересечений.
+     */
+    private final long[] maxEnds;
+    /**
+     * Бит d — день firstApprovedDay + d (UTC) пересекается хотя бы с одним подтверждённым бронированием.
+     */
+    private final BitSet approvedDays = new BitSet();
+    private final long firstApprovedDay;
+
+    private BookingTimeline(long[] starts, long[] ends, long[] ids, long[] bookerIds, byte[] statuses) {
+        this.starts = starts;
+        this.ends = ends;
+        this.ids = ids;
+        this.bookerIds = bookerIds;
+        this.statuses = statuses;
+        this.byEnd = sortByEnd(ends);
+        this.maxEnds = new long[ends.length];
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < ends.length; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+        long firstDay = 0;
+        for (int i = 0; i < starts.length; i++) {
+            if (statuses[i] != Status.APPROVED.ordinal()) {
+                continue;
+            }
+            long startDay = dayOf(starts[i]);
+            if (approvedDays.isEmpty()) {
+                firstDay = startDay;
+            }
+            long endDay = Math.max(startDay, dayOf(ends[i] - 1));
+            approvedDays.set((int) (startDay - firstDay), (int) (endDay - firstDay) + 1);
+        }
+        this.firstApprovedDay = firstDay;
+    }
+
+    public static int mask(Status... statuses) {
+        int mask = 0;
+        for (Status status : statuses) {
+            mask |= 1 << status.ordinal();
+        }
+        return mask;
+    }
+
+    public static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    public static LocalDateTime toDateTime(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Индекс бронирования с наибольшим окончанием строго раньше time или -1.
+     */
+    public int lastEndedBefore(long time, int statusMask) {
+        for (int p = lowerBound(ends, byEnd, time) - 1; p >= 0; p--) {
+            int i = byEnd[p];
+            if (matches(i, statusMask)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Индекс бронирования с наименьшим началом строго позже time или -1.
+     */
+    public int nextStartingAfter(long time, int statusMask) {
+        for (int i = upperBound(starts, time); i < starts.length; i++) {
+            if (matches(i, statusMask)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Есть ли бронирование, пересекающееся с полуинтервалом [from, to).
+     */
+    public boolean overlaps(long from, long to, int statusMask) {
+        for (int i = lowerBound(starts, to) - 1; i >= 0 && maxEnds[i] > from; i--) {
+            if (ends[i] > from && matches(i, statusMask)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Свободна ли вещь на полуинтервале [from, to): нет пересекающихся с ним подтверждённых бронирований.
+     */
+    public boolean isFree(long from, long to) {
+        long fromDay = dayOf(from) - firstApprovedDay;
+        long toDay = dayOf(to - 1) - firstApprovedDay;
+        if (toDay < 0 || fromDay >= approvedDays.length()) {
+            return true;
+        }
+        int occupied = approvedDays.nextSetBit((int) Math.max(0, fromDay));
+        if (occupied < 0 || occupied > toDay) {
+            return true;
+        }
+        return !overlaps(from, to, APPROVED_MASK);
+    }
+
+    public BookingOut toBookingOut(long itemId, int index) {
+        if (index < 0) {
+            return null;
+        }
+        return new BookingOut(ids[index], toDateTime(starts[index]), toDateTime(ends[index]),
+                STATUSES[statuses[index]], itemId, bookerIds[index]);
+    }
+
+    /**
+     * Новый снимок, в котором бронирование id добавлено или заменено.
+     */
+    public BookingTimeline with(long id, long start, long end, long bookerId, Status status) {
+        int existing = indexOf(id);
+        int size = existing < 0 ? ids.length : ids.length - 1;
+        Builder builder = new Builder(size + 1);
+        boolean inserted = false;
+        for (int i = 0; i < ids.length; i++) {
+            if (i == existing) {
+                continue;
+            }
+            if (!inserted && starts[i] > start) {
+                builder.add(id, start, end, bookerId, status);
+                inserted = true;
+            }
+            builder.add(ids[i], starts[i], ends[i], bookerIds[i], STATUSES[statuses[i]]);
+        }
+        if (!inserted) {
+            builder.add(id, start, end, bookerId, status);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Новый снимок без бронирований из removed (отсортированного по возрастанию).
+     */
+    public BookingTimeline without(long[] removed) {
+        Builder builder = new Builder(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            if (Arrays.binarySearch(removed, ids[i]) < 0) {
+                builder.add(ids[i], starts[i], ends[i], bookerIds[i], STATUSES[statuses[i]]);
+            }
+        }
+        return builder.isEmpty() ? EMPTY : builder.build();
+    }
+
+    private int indexOf(long id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long dayOf(long micros) {
+        return Math.floorDiv(micros, MICROS_PER_DAY);
+    }
+
+    private boolean matches(int index, int statusMask) {
+        return (statusMask & (1 << statuses[index])) != 0;
+    }
+
+    /**
+     * Первая позиция, значение на которой не меньше key.
+     */
+    private static int lowerBound(long[] values, long key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int lowerBound(long[] values, int[] order, long key) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[order[mid]] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Первая позиция, значение на которой больше key.
+     */
+    private static int upperBound(long[] values, long key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Сортировка индексов по окончанию слиянием, без упаковки в Integer.
+     */
+    private static int[] sortByEnd(long[] ends) {
+        int[] order = new int[ends.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[ends.length];
+        for (int width = 1; width < order.length; width *= 2) {
+            for (int left = 0; left < order.length - width; left += 2 * width) {
+                int mid = left + width;
+                int right = Math.min(left + 2 * width, order.length);
+                int i = left;
+                int j = mid;
+                int k = left;
+                while (i < mid && j < right) {
+                    buffer[k++] = ends[order[j]] < ends[order[i]] ? order[j++] : order[i++];
+                }
+                while (i < mid) {
+                    buffer[k++] = order[i++];
+                }
+                while (j < right) {
+                    buffer[k++] = order[j++];
+                }
+                System.arraycopy(buffer, left, order, left, right - left);
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Собирает снимок из бронирований, добавляемых в порядке возрастания начала.
+     */
+    static final class Builder {
+        private long[] starts;
+        private long[] ends;
+        private long[] ids;
+        private long[] bookerIds;
+        private byte[] statuses;
+        private int size;
+
+        Builder(int capacity) {
+            starts = new long[capacity];
+            ends = new long[capacity];
+            ids = new long[capacity];
+            bookerIds = new long[capacity];
+            statuses = new byte[capacity];
+        }
+
+        Builder add(long id, long start, long end, long bookerId, Status status) {
+            if (size == ids.length) {
+                int capacity = Math.max(8, size * 2);
+                starts = Arrays.copyOf(starts, capacity);
+                ends = Arrays.copyOf(ends, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+                bookerIds = Arrays.copyOf(bookerIds, capacity);
+                statuses = Arrays.copyOf(statuses, capacity);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            ids[size] = id;
+            bookerIds[size] = bookerId;
+            statuses[size] = (byte) status.ordinal();
+            size++;
+            return this;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        BookingTimeline build() {
+            return new BookingTimeline(Arrays.copyOf(starts, size), Arrays.copyOf(ends, size),
+                    Arrays.copyOf(ids, size), Arrays.copyOf(bookerIds, size), Arrays.copyOf(statuses, size));
+        }
+    }
+}
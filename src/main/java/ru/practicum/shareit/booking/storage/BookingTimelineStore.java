@@ -0,0 +1,151 @@
+package ru.practicum.shareit.booking.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.config.AfterCommit;
+import ru.practicum.shareit.config.StoreLoad;
+import ru.practicum.shareit.config.StoreProperties;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Таймлайны бронирований по вещам. Загружается из БД при старте, до открытия HTTP-порта или в фоне
+ * (shareit.stores.warmup, см. StoreLoad); дальше изменения применяются после коммита транзакции, сохранившей
+ * бронирование. Изменения других узлов приходят через шину инвалидаций, и таймлайн вещи перечитывается из БД
+ * (ItemCacheCoherence). Не ленивый и при spring.main.lazy-initialization: иначе загрузка при старте не произойдёт.
+ */
+@Slf4j
+@Lazy(false)
+@Component
+public class BookingTimelineStore implements SmartInitializingSingleton {
+    private final BookingStorage bookingStorage;
+    private final TransactionTemplate readOnlyTransaction;
+    private final StoreLoad load;
+    private final Map<Long, BookingTimeline> timelines = new ConcurrentHashMap<>();
+
+    public BookingTimelineStore(BookingStorage bookingStorage, PlatformTransactionManager transactionManager,
+                                StoreProperties storeProperties) {
+        this.bookingStorage = bookingStorage;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.load = new StoreLoad("booking-timelines", storeProperties);
+    }
+
+    public BookingTimeline get(Long itemId) {
+        load.await();
+        return timelines.getOrDefault(itemId, BookingTimeline.EMPTY);
+    }
+
+    public void onSaved(Booking booking) {
+        load.await();
+        long itemId = booking.getItem().getId();
+        long id = booking.getId();
+        long start = BookingTimeline.toMicros(booking.getStart());
+        long end = BookingTimeline.toMicros(booking.getEnd());
+        long bookerId = booking.getBooker().getId();
+        Status status = booking.getStatus();
+        AfterCommit.run(() -> timelines.compute(itemId, (key, timeline) ->
+                (timeline != null ? timeline : BookingTimeline.EMPTY).with(id, start, end, bookerId, status)));
+    }
+
+    /**
+     * Убирает перенесённые в архив бронирования после коммита транзакции архиватора.
+     */
+    public void onArchived(Collection<BookingOut> archived) {
+        load.await();
+        Map<Long, long[]> byItem = archived.stream().collect(Collectors.groupingBy(BookingOut::getItemId,
+                Collectors.collectingAndThen(Collectors.toList(),
+                        rows -> rows.stream().mapToLong(BookingOut::getId).sorted().toArray())));
+        AfterCommit.run(() -> byItem.forEach((itemId, ids) -> timelines.computeIfPresent(itemId, (key, timeline) -> {
+            BookingTimeline remaining = timeline.without(ids);
+            return remaining.size() == 0 ? null : remaining;
+        })));
+    }
+
+    /**
+     * Читает бронирования вещи из БД; возвращённое действие заменяет ими её таймлайн.
+     */
+    public Runnable read(long itemId) {
+        load.await();
+        Map<Long, BookingTimeline> loaded = new HashMap<>();
+        readOnlyTransaction.executeWithoutResult(status ->
+                load(bookingStorage.findTimelineRows(itemId).iterator(), loaded));
+        BookingTimeline timeline = loaded.get(itemId);
+        return () -> {
+            if (timeline == null) {
+                timelines.remove(itemId);
+            } else {
+                timelines.put(itemId, timeline);
+            }
+        };
+    }
+
+    /**
+     * Читает все бронирования из БД; возвращённое действие заменяет ими все таймлайны.
+     */
+    public Runnable readAll() {
+        load.await();
+        return scan();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load.start(() -> {
+            long started = System.nanoTime();
+            scan().run();
+            log.info("Таймлайны бронирований загружены: вещей {}, {} мс",
+                    timelines.size(), (System.nanoTime() - started) / 1_000_000);
+        });
+    }
+
+    private Runnable scan() {
+        Map<Long, BookingTimeline> loaded = new HashMap<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<BookingOut> rows = bookingStorage.streamTimelineRows()) {
+                load(rows.iterator(), loaded);
+            }
+        });
+        return () -> {
+            timelines.keySet().retainAll(loaded.keySet());
+            timelines.putAll(loaded);
+        };
+    }
+
+    /**
+     * Строки приходят упорядоченными по вещи и началу бронирования.
+     */
+    private static void load(Iterator<BookingOut> rows, Map<Long, BookingTimeline> target) {
+        Long itemId = null;
+        BookingTimeline.Builder builder = new BookingTimeline.Builder(16);
+        while (rows.hasNext()) {
+            BookingOut row = rows.next();
+            if (!row.getItemId().equals(itemId)) {
+                flush(itemId, builder, target);
+                itemId = row.getItemId();
+                builder = new BookingTimeline.Builder(16);
+            }
+            builder.add(row.getId(), BookingTimeline.toMicros(row.getStart()),
+                    BookingTimeline.toMicros(row.getEnd()), row.getBookerId(), row.getStatus());
+        }
+        flush(itemId, builder, target);
+    }
+
+    private static void flush(Long itemId, BookingTimeline.Builder builder, Map<Long, BookingTimeline> target) {
+        if (itemId != null && !builder.isEmpty()) {
+            target.put(itemId, builder.build());
+        }
+    }
+}
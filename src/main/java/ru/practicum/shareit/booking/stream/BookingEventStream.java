@@ -0,0 +1,175 @@
+package ru.practicum.shareit.booking.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.config.AfterCommit;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылка изменений статуса бронирований подписчикам GET /bookings/stream (SSE).
+ * <p>
+ * У каждого подписчика своя ограниченная очередь и свой виртуальный поток, который пишет из неё в соединение.
+ * Публикация только кладёт событие в очереди и никогда не ждёт сеть; подписчик, чья очередь переполнена,
+ * отключается и после переподключения дочитывает пропущенное обычными GET-запросами.
+ */
+@Slf4j
+@Component
+public class BookingEventStream {
+    public static final String EVENT_NAME = "booking";
+
+    private final BookingStreamProperties properties;
+    private final Map<Long, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private final Counter dropped;
+    private final Counter published;
+    private final ThreadFactory senders;
+
+    @Autowired
+    public BookingEventStream(BookingStreamProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Thread.ofVirtual().factory());
+    }
+
+    /**
+     * senders создаёт потоки, которые пишут события подписчиков в соединения.
+     */
+    BookingEventStream(BookingStreamProperties properties, MeterRegistry meterRegistry, ThreadFactory senders) {
+        this.properties = properties;
+        this.senders = senders;
+        this.dropped = meterRegistry.counter("shareit.booking_stream.dropped");
+        this.published = meterRegistry.counter("shareit.booking_stream.events");
+        meterRegistry.gauge("shareit.booking_stream.subscribers", count);
+    }
+
+    public SseEmitter subscribe(Long userId) {
+        if (count.incrementAndGet() > properties.getMaxSubscribers()) {
+            count.decrementAndGet();
+            throw new ServiceUnavailableException("Слишком много подписчиков на поток бронирований");
+        }
+        Subscriber subscriber = new Subscriber(userId, new SseEmitter(properties.getTimeout().toMillis()));
+        try {
+            subscribers.compute(userId, (key, own) -> {
+                Set<Subscriber> result = own != null ? own : ConcurrentHashMap.newKeySet();
+                if (result.size() >= properties.getMaxSubscribersPerUser()) {
+                    throw new IllegalArgumentException("Не более " + properties.getMaxSubscribersPerUser()
+                            + " подписок на пользователя");
+                }
+                result.add(subscriber);
+                return result;
+            });
+        } catch (IllegalArgumentException e) {
+            count.decrementAndGet();
+            throw e;
+        }
+        subscriber.emitter.onCompletion(subscriber::close);
+        subscriber.emitter.onTimeout(subscriber::close);
+        subscriber.emitter.onError(error -> subscriber.close());
+        Thread sender = senders.newThread(subscriber::send);
+        sender.setName("booking-stream-" + userId);
+        subscriber.sender = sender;
+        sender.start();
+        log.debug("Пользователь ID={} подписался на поток бронирований", userId);
+        return subscriber.emitter;
+    }
+
+    /**
+     * Отправляет событие брони её арендатору и владельцу вещи после коммита транзакции.
+     */
+    public void publish(BookingOut booking, Long ownerId) {
+        AfterCommit.run(() -> {
+            published.increment();
+            offer(booking.getBookerId(), booking);
+            if (!ownerId.equals(booking.getBookerId())) {
+                offer(ownerId, booking);
+            }
+        });
+    }
+
+    public int subscriberCount() {
+        return count.get();
+    }
+
+    private void offer(Long userId, BookingOut booking) {
+        Set<Subscriber> own = subscribers.get(userId);
+        if (own == null) {
+            return;
+        }
+        for (Subscriber subscriber : own) {
+            if (!subscriber.queue.offer(booking)) {
+                dropped.increment();
+                log.warn("Подписчик пользователя ID={} не успевает читать поток бронирований и отключён", userId);
+                subscriber.emitter.complete();
+                subscriber.close();
+            }
+        }
+    }
+
+    private final class Subscriber {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final BlockingQueue<BookingOut> queue = new ArrayBlockingQueue<>(properties.getBufferSize());
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile Thread sender;
+
+        private Subscriber(Long userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private void send() {
+            long heartbeat = properties.getHeartbeat().toMillis();
+            try {
+                emitter.send(SseEmitter.event().comment("connected"));
+                while (!closed.get()) {
+                    BookingOut booking = queue.poll(heartbeat, TimeUnit.MILLISECONDS);
+                    if (booking == null) {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    } else {
+                        emitter.send(SseEmitter.event()
+                                .name(EVENT_NAME)
+                                .id(booking.getId() + ":" + booking.getStatus())
+                                .data(booking, MediaType.APPLICATION_JSON));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Соединение потока бронирований пользователя ID={} закрыто: {}", userId, e.getMessage());
+                emitter.completeWithError(e);
+            } finally {
+                close();
+            }
+        }
+
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            subscribers.computeIfPresent(userId, (key, own) -> {
+                own.remove(this);
+                return own.isEmpty() ? null : own;
+            });
+            count.decrementAndGet();
+            Thread thread = sender;
+            if (thread != null && thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+        }
+    }
+}
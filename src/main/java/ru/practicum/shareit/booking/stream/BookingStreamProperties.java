@@ -0,0 +1,25 @@
+package ru.practicum.shareit.booking.stream;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("shareit.booking-stream")
+public class BookingStreamProperties {
+    /**
+     * Сколько неотправленных событий держится на подписчика; при переполнении подписчик отключается.
+     */
+    private int bufferSize = 64;
+    private int maxSubscribers = 20_000;
+    private int maxSubscribersPerUser = 5;
+    /**
+     * Как часто в тишине отправляется комментарий, чтобы обнаружить оборванные соединения.
+     */
+    private Duration heartbeat = Duration.ofSeconds(15);
+    /**
+     * Через сколько поток закрывается сервером; клиент переподключается с помощью EventSource.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.coherence;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("shareit.coherence")
+public class CoherenceProperties {
+    /**
+     * local — узлы в одной JVM (тесты, один экземпляр), postgres — LISTEN/NOTIFY общей БД.
+     */
+    private String bus = "local";
+    /**
+     * Канал NOTIFY; должен быть простым идентификатором PostgreSQL.
+     */
+    private String channel = "shareit_invalidations";
+    /**
+     * Как долго слушатель ждёт уведомлений за один опрос соединения.
+     */
+    private Duration pollTimeout = Duration.ofMillis(500);
+    /**
+     * Пауза перед повторным подключением слушателя после обрыва.
+     */
+    private Duration reconnectDelay = Duration.ofSeconds(5);
+}
@@ -0,0 +1,18 @@
+package ru.practicum.shareit.coherence;
+
+/**
+ * Рассылка инвалидаций кэшей вещей другим узлам, работающим с той же БД.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Вызывается внутри транзакции, изменившей вещь; другие узлы получают сообщение только после её коммита.
+     */
+    void publish(long itemId, long version);
+
+    /**
+     * Вызывается внутри транзакции, изменившей бронирования вещи; другие узлы после её коммита перечитывают
+     * данные, построенные по бронированиям вещи.
+     */
+    void publishBookings(long itemId);
+}
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.coherence;
+
+public interface InvalidationListener {
+
+    /**
+     * Изменение вещи на другом узле.
+     */
+    void onInvalidation(ItemInvalidation invalidation);
+
+    /**
+     * Сообщения могли потеряться (например, слушатель переподключался) — кэши надо сверить с БД.
+     */
+    void onResync();
+}
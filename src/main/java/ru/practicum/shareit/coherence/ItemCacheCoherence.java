@@ -0,0 +1,167 @@
+package ru.practicum.shareit.coherence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.storage.BookingTimelineStore;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.storage.ItemGeoIndex;
+import ru.practicum.shareit.item.storage.ItemStatsStore;
+import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.item.storage.ItemSuggestionIndex;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Держит индексы вещей этого узла в согласии с изменениями, сделанными на других узлах.
+ * <p>
+ * Инвалидация не несёт данных: если индексы уже видели версию из сообщения или более новую, оно запоздало
+ * и отбрасывается, иначе вещь перечитывается из БД и применяется к индексам с версией из БД.
+ * <p>
+ * Инвалидация бронирований вещи перечитывает из БД всё, что узел строит по ним: таймлайн, статистику
+ * и популярность в подсказках. Перечитывание упорядочено со своими коммитами узла через ItemReloads.
+ */
+@Slf4j
+@Component
+public class ItemCacheCoherence implements InvalidationListener {
+    private static final int RELOAD_BATCH = 500;
+
+    private final ItemStorage itemStorage;
+    private final ItemSuggestionIndex itemSuggestionIndex;
+    private final ItemGeoIndex itemGeoIndex;
+    private final BookingTimelineStore bookingTimelineStore;
+    private final ItemStatsStore itemStatsStore;
+    private final ItemReloads itemReloads;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Counter applied;
+    private final Counter stale;
+    private final Counter bookings;
+    private final Counter resyncs;
+
+    public ItemCacheCoherence(ItemStorage itemStorage, ItemSuggestionIndex itemSuggestionIndex,
+                              ItemGeoIndex itemGeoIndex, BookingTimelineStore bookingTimelineStore,
+                              ItemStatsStore itemStatsStore, ItemReloads itemReloads,
+                              PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.itemStorage = itemStorage;
+        this.itemSuggestionIndex = itemSuggestionIndex;
+        this.itemGeoIndex = itemGeoIndex;
+        this.bookingTimelineStore = bookingTimelineStore;
+        this.itemStatsStore = itemStatsStore;
+        this.itemReloads = itemReloads;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.applied = meterRegistry.counter("shareit.coherence.invalidations", "outcome", "applied");
+        this.stale = meterRegistry.counter("shareit.coherence.invalidations", "outcome", "stale");
+        this.bookings = meterRegistry.counter("shareit.coherence.invalidations", "outcome", "bookings");
+        this.resyncs = meterRegistry.counter("shareit.coherence.resyncs");
+    }
+
+    @Override
+    public void onInvalidation(ItemInvalidation invalidation) {
+        long id = invalidation.itemId();
+        if (invalidation.subject() == ItemInvalidation.Subject.BOOKINGS) {
+            bookings.increment();
+            itemReloads.reload(id, this::readBookings);
+            return;
+        }
+        if (known(id) >= invalidation.version()) {
+            stale.increment();
+            log.debug("Запоздавшая инвалидация вещи ID={} версии {} отброшена", id, invalidation.version());
+            return;
+        }
+        applied.increment();
+        reload(List.of(id), Map.of(id, invalidation.version()));
+    }
+
+    /**
+     * Сравнивает версии всех вещей в БД с индексами и перечитывает расходящиеся; данные по бронированиям
+     * перечитываются целиком в фоне.
+     */
+    @Override
+    public void onResync() {
+        long started = System.nanoTime();
+        resyncs.increment();
+        itemReloads.reloadAll(this::readAllBookings, this::readBookings);
+        List<Long> changed = new ArrayList<>();
+        Set<Long> existing = new HashSet<>();
+        readOnlyTransaction.executeWithoutResult(status -> itemStorage.findVersions().forEach(row -> {
+            existing.add(row.getId());
+            if (known(row.getId()) < row.getVersion()) {
+                changed.add(row.getId());
+            }
+        }));
+        Map<Long, Long> removed = new HashMap<>();
+        Set<Long> indexed = new HashSet<>(itemSuggestionIndex.indexedIds());
+        indexed.addAll(itemGeoIndex.indexedIds());
+        for (Long id : indexed) {
+            if (!existing.contains(id)) {
+                changed.add(id);
+                removed.put(id, Math.max(itemSuggestionIndex.version(id), itemGeoIndex.version(id)) + 1);
+            }
+        }
+        for (int from = 0; from < changed.size(); from += RELOAD_BATCH) {
+            reload(changed.subList(from, Math.min(changed.size(), from + RELOAD_BATCH)), removed);
+        }
+        log.info("Индексы вещей сверены с БД: перечитано {}, {} мс",
+                changed.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private Runnable readBookings(long itemId) {
+        Runnable timeline = bookingTimelineStore.read(itemId);
+        Runnable stats = itemStatsStore.read(itemId);
+        Runnable popularity = itemSuggestionIndex.readPopularity(itemId);
+        return () -> {
+            timeline.run();
+            stats.run();
+            popularity.run();
+        };
+    }
+
+    private Runnable readAllBookings() {
+        long started = System.nanoTime();
+        Runnable timelines = bookingTimelineStore.readAll();
+        Runnable stats = itemStatsStore.readAll();
+        Runnable popularity = itemSuggestionIndex.readAllPopularity();
+        log.info("Данные бронирований перечитаны из БД: {} мс", (System.nanoTime() - started) / 1_000_000);
+        return () -> {
+            timelines.run();
+            stats.run();
+            popularity.run();
+        };
+    }
+
+    /**
+     * Наименьшая из версий вещи в индексах: сообщение запоздало, только если его видели все.
+     */
+    private long known(long id) {
+        return Math.min(itemSuggestionIndex.version(id), itemGeoIndex.version(id));
+    }
+
+    /**
+     * Индексы применяют изменения после коммита транзакции чтения; отсутствующие в БД вещи удаляются
+     * с версией из removedVersions.
+     */
+    private void reload(List<Long> ids, Map<Long, Long> removedVersions) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            Set<Long> missing = new HashSet<>(ids);
+            for (Item item : itemStorage.findAllById(ids)) {
+                missing.remove(item.getId());
+                itemSuggestionIndex.onItemSaved(item);
+                itemGeoIndex.onItemSaved(item);
+            }
+            for (Long id : missing) {
+                long version = removedVersions.getOrDefault(id, known(id) + 1);
+                itemSuggestionIndex.onItemRemoved(id, version);
+                itemGeoIndex.onItemRemoved(id, version);
+            }
+        });
+    }
+}
@@ -0,0 +1,38 @@
+package ru.practicum.shareit.coherence;
+
+/**
+ * Сообщение узла node о том, что вещь itemId изменилась или удалена и её версия теперь не меньше version,
+ * либо (subject = BOOKINGS) что изменились бронирования вещи; версии у бронирований нет, version = 0.
+ */
+public record ItemInvalidation(String node, long itemId, long version, Subject subject) {
+
+    public enum Subject {
+        ITEM,
+        BOOKINGS
+    }
+
+    public ItemInvalidation(String node, long itemId, long version) {
+        this(node, itemId, version, Subject.ITEM);
+    }
+
+    /**
+     * Сообщения о вещах сохраняют прежний вид node:itemId:version, к сообщениям о бронированиях добавляется :BOOKINGS.
+     */
+    public String toPayload() {
+        String payload = node + ":" + itemId + ":" + version;
+        return subject == Subject.ITEM ? payload : payload + ":" + subject;
+    }
+
+    public static ItemInvalidation parse(String payload) {
+        String[] parts = payload.split(":");
+        if (parts.length != 3 && parts.length != 4) {
+            throw new IllegalArgumentException("Некорректная инвалидация: " + payload);
+        }
+        try {
+            return new ItemInvalidation(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]),
+                    parts.length == 3 ? Subject.ITEM : Subject.valueOf(parts[3]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Некорректная инвалидация: " + payload);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ru.practicum.shareit.coherence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Перечитывание из БД данных, которые узел строит по бронированиям вещи, когда их изменил другой узел.
+ * <p>
+ * Свои изменения узел применяет в памяти после коммита, прибавляя к счётчикам. Перечитывание, наложившееся
+ * на такой коммит, потеряло бы изменение или учло его дважды, поэтому оно не применяется, пока у вещи есть
+ * транзакция между beforeCommit и afterCompletion, и повторяется, если такая транзакция началась за время чтения.
+ * Замков на время коммита нет: транзакции не ждут перечитываний.
+ * <p>
+ * Перечитывания выполняются по одному в потоке coherence-reload. Чтение возвращает действие, которое
+ * заменяет данные в памяти; оно выполняется под монитором этого объекта.
+ */
+@Slf4j
+@Component
+public class ItemReloads implements DisposableBean {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("coherence-reload").daemon().factory());
+    private final Map<Long, Integer> committing = new HashMap<>();
+    private final Set<Long> reading = new HashSet<>();
+    private final Set<Long> overtaken = new HashSet<>();
+    private final Map<Long, LongFunction<Runnable>> deferred = new HashMap<>();
+    private boolean readingAll;
+
+    /**
+     * Вызывается в транзакции, которая меняет бронирования вещи и после коммита применит это в памяти.
+     */
+    public void changing(long itemId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean started;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                started = true;
+                synchronized (ItemReloads.this) {
+                    committing.merge(itemId, 1, Integer::sum);
+                    if (readingAll || reading.contains(itemId)) {
+                        overtaken.add(itemId);
+                    }
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (!started) {
+                    return;
+                }
+                LongFunction<Runnable> retry = null;
+                synchronized (ItemReloads.this) {
+                    if (committing.computeIfPresent(itemId, (key, count) -> count == 1 ? null : count - 1) == null) {
+                        retry = deferred.remove(itemId);
+                    }
+                }
+                if (retry != null) {
+                    reload(itemId, retry);
+                }
+            }
+        });
+    }
+
+    /**
+     * Перечитывает данные вещи: read читает БД и возвращает действие, заменяющее данные в памяти.
+     */
+    public void reload(long itemId, LongFunction<Runnable> read) {
+        submit(() -> readItem(itemId, read));
+    }
+
+    /**
+     * Перечитывает всё; вещи, чьи транзакции наложились на чтение, затем перечитываются по одной через readItem.
+     */
+    public void reloadAll(Supplier<Runnable> readAll, LongFunction<Runnable> readItem) {
+        submit(() -> {
+            Set<Long> retry;
+            synchronized (this) {
+                readingAll = true;
+                retry = new HashSet<>(committing.keySet());
+            }
+            Runnable apply = null;
+            try {
+                apply = readAll.get();
+            } finally {
+                synchronized (this) {
+                    readingAll = false;
+                    if (apply != null) {
+                        apply.run();
+                    }
+                    retry.addAll(overtaken);
+                    retry.addAll(committing.keySet());
+                    overtaken.clear();
+                }
+            }
+            retry.forEach(itemId -> readItem(itemId, readItem));
+        });
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void readItem(long itemId, LongFunction<Runnable> read) {
+        synchronized (this) {
+            if (committing.containsKey(itemId)) {
+                deferred.put(itemId, read);
+                return;
+            }
+            reading.add(itemId);
+        }
+        Runnable apply;
+        try {
+            apply = read.apply(itemId);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                reading.remove(itemId);
+                overtaken.remove(itemId);
+            }
+            throw e;
+        }
+        boolean again;
+        synchronized (this) {
+            reading.remove(itemId);
+            again = overtaken.remove(itemId);
+            if (committing.containsKey(itemId)) {
+                deferred.put(itemId, read);
+                return;
+            }
+            if (!again) {
+                apply.run();
+            }
+        }
+        if (again) {
+            log.debug("Перечитывание бронирований вещи ID={} наложилось на коммит, повтор", itemId);
+            submit(() -> readItem(itemId, read));
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.warn("Перечитывание данных бронирований не выполнено: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Узел остановлен, перечитывание пропущено");
+        }
+    }
+}
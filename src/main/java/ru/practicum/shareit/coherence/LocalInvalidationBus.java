@@ -0,0 +1,82 @@
+package ru.practicum.shareit.coherence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.config.AfterCommit;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Замена LISTEN/NOTIFY для узлов в одной JVM: контексты приложения с одинаковым URL базы данных
+ * получают инвалидации друг друга. Доставка асинхронная, после коммита, в порядке публикации.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "shareit.coherence", name = "bus", havingValue = "local", matchIfMissing = true)
+public class LocalInvalidationBus implements InvalidationBus, DisposableBean {
+    private static final Map<String, Set<LocalInvalidationBus>> NODES = new ConcurrentHashMap<>();
+
+    private final String node = UUID.randomUUID().toString();
+    private final String database;
+    private final InvalidationListener listener;
+    private final ExecutorService delivery = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("coherence-local").daemon().factory());
+
+    public LocalInvalidationBus(DataSourceProperties dataSourceProperties, InvalidationListener listener) {
+        this.database = dataSourceProperties.determineUrl();
+        this.listener = listener;
+        NODES.computeIfAbsent(database, key -> ConcurrentHashMap.newKeySet()).add(this);
+    }
+
+    @Override
+    public void publish(long itemId, long version) {
+        send(new ItemInvalidation(node, itemId, version));
+    }
+
+    @Override
+    public void publishBookings(long itemId) {
+        send(new ItemInvalidation(node, itemId, 0, ItemInvalidation.Subject.BOOKINGS));
+    }
+
+    private void send(ItemInvalidation invalidation) {
+        AfterCommit.run(() -> {
+            for (LocalInvalidationBus other : NODES.getOrDefault(database, Set.of())) {
+                if (other != this) {
+                    other.deliver(invalidation);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        NODES.computeIfPresent(database, (key, nodes) -> {
+            nodes.remove(this);
+            return nodes.isEmpty() ? null : nodes;
+        });
+        delivery.shutdownNow();
+    }
+
+    private void deliver(ItemInvalidation invalidation) {
+        try {
+            delivery.execute(() -> {
+                try {
+                    listener.onInvalidation(invalidation);
+                } catch (RuntimeException e) {
+                    log.warn("Инвалидация {} не применена: {}", invalidation, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Узел остановлен, инвалидация {} пропущена", invalidation);
+        }
+    }
+}
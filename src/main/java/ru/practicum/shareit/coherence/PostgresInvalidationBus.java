@@ -0,0 +1,149 @@
+package ru.practicum.shareit.coherence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Инвалидации через LISTEN/NOTIFY PostgreSQL.
+ * <p>
+ * NOTIFY выполняется в транзакции, изменившей вещь или её бронирования, поэтому уходит только при её коммите.
+ * Слушатель держит отдельное соединение вне пула Hikari и опрашивает его в своём потоке. После каждого подключения,
+ * включая первое, индексы сверяются с БД: уведомления, отправленные без слушателя, PostgreSQL не хранит.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "shareit.coherence", name = "bus", havingValue = "postgres")
+public class PostgresInvalidationBus implements InvalidationBus, SmartLifecycle {
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]*");
+
+    private final String node = UUID.randomUUID().toString();
+    private final CoherenceProperties properties;
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final InvalidationListener listener;
+
+    private volatile boolean running;
+    private volatile Thread thread;
+    private volatile Connection connection;
+
+    public PostgresInvalidationBus(CoherenceProperties properties, DataSourceProperties dataSourceProperties,
+                                   JdbcTemplate jdbcTemplate, InvalidationListener listener) {
+        if (!CHANNEL.matcher(properties.getChannel()).matches()) {
+            throw new IllegalArgumentException("Некорректное имя канала: " + properties.getChannel());
+        }
+        this.properties = properties;
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.listener = listener;
+    }
+
+    @Override
+    public void publish(long itemId, long version) {
+        send(new ItemInvalidation(node, itemId, version));
+    }
+
+    @Override
+    public void publishBookings(long itemId) {
+        send(new ItemInvalidation(node, itemId, 0, ItemInvalidation.Subject.BOOKINGS));
+    }
+
+    private void send(ItemInvalidation invalidation) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, properties.getChannel(), invalidation.toPayload());
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = Thread.ofPlatform().name("coherence-listener").daemon().start(this::listen);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread listening = thread;
+        if (listening != null) {
+            listening.interrupt();
+        }
+        closeConnection();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection listening = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword())) {
+                connection = listening;
+                try (Statement statement = listening.createStatement()) {
+                    statement.execute("LISTEN " + properties.getChannel());
+                }
+                log.info("Узел {} слушает инвалидации в канале {}", node, properties.getChannel());
+                listener.onResync();
+                PGConnection pg = listening.unwrap(PGConnection.class);
+                int timeout = (int) properties.getPollTimeout().toMillis();
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(timeout);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            deliver(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Слушатель инвалидаций отключился, повтор через {}: {}",
+                        properties.getReconnectDelay(), e.getMessage());
+                try {
+                    Thread.sleep(properties.getReconnectDelay());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    private void deliver(String payload) {
+        ItemInvalidation invalidation;
+        try {
+            invalidation = ItemInvalidation.parse(payload);
+        } catch (IllegalArgumentException e) {
+            log.warn(e.getMessage());
+            return;
+        }
+        if (!node.equals(invalidation.node())) {
+            listener.onInvalidation(invalidation);
+        }
+    }
+
+    private void closeConnection() {
+        Connection listening = connection;
+        if (listening == null) {
+            return;
+        }
+        try {
+            listening.close();
+        } catch (SQLException e) {
+            log.debug("Соединение слушателя инвалидаций закрыто с ошибкой: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.shareit.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Чтение, которое должно видеть только что закоммиченные записи: read-only транзакции внутри call
+ * берут соединение основной БД, даже если настроена реплика (см. ReadReplicaDataSourceConfig).
+ * Без реплики ничего не меняет.
+ */
+public final class PrimaryReads {
+    private static final ThreadLocal<Boolean> REQUIRED = new ThreadLocal<>();
+
+    private PrimaryReads() {
+    }
+
+    public static <T> T call(Supplier<T> reader) {
+        if (required()) {
+            return reader.get();
+        }
+        REQUIRED.set(Boolean.TRUE);
+        try {
+            return reader.get();
+        } finally {
+            REQUIRED.remove();
+        }
+    }
+
+    static boolean required() {
+        return REQUIRED.get() != null;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.shareit.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Маршрутизация чтения на реплику. Включается, если задан shareit.datasource.replica.jdbc-url.
+ * <p>
+ * Транзакции с readOnly = true помечают соединение как read-only до первого запроса,
+ * и LazyConnectionDataSourceProxy берёт для них соединение из пула реплики, остальные идут в основную БД.
+ * <p>
+ * Реплика отстаёт от основной БД, и read-only транзакция может не увидеть только что закоммиченную запись.
+ * Чтения, которым это недопустимо, выполняются внутри PrimaryReads.call и идут в основную БД:
+ * так читает SingleFlight, иначе запрос после записи получил бы устаревший результат с реплики и раздал его
+ * всем ожидающим.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "shareit.datasource.replica", name = "jdbc-url")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @ConfigurationProperties("shareit.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource replica = new HikariDataSource();
+        replica.setPoolName("shareit-replica");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource) {
+        log.info("Чтение в read-only транзакциях направляется на реплику {}", replicaDataSource.getJdbcUrl());
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primaryDataSource);
+        routing.setReadOnlyDataSource(new DelegatingDataSource(replicaDataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return PrimaryReads.required() ? primaryDataSource.getConnection() : super.getConnection();
+            }
+        });
+        return routing;
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.shareit.config;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import ru.practicum.shareit.booking.model.ArchivedBooking;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.exception.ErrorResponse;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.CommentDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemDashboard;
+import ru.practicum.shareit.item.model.ItemDto;
+import ru.practicum.shareit.request.ItemRequest;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.model.UserDto;
+
+/**
+ * Подсказки для native-image (профиль native) там, где Spring AOT сам не видит рефлексию.
+ */
+public class ShareItRuntimeHints implements RuntimeHintsRegistrar {
+    private static final Class<?>[] ENTITIES = {
+            Item.class, Booking.class, ArchivedBooking.class, User.class, Comment.class, ItemRequest.class, ItemDashboard.class
+    };
+    /**
+     * Типы, которые Jackson пишет и читает не через контроллеры: JSON в item_dashboards
+     * и тело ответа 429/503 в AdmissionControlFilter.
+     */
+    private static final Class<?>[] JSON_TYPES = {
+            BookingOut.class, CommentDto.class, ItemDto.class, UserDto.class, ErrorResponse.class
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> entity : ENTITIES) {
+            hints.reflection().registerType(entity, MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+        }
+        // BookingOut создаётся Hibernate через конструктор в "select new" и CriteriaBuilder.construct
+        hints.reflection().registerType(BookingOut.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), JSON_TYPES);
+    }
+}
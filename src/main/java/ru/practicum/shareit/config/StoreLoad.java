@@ -0,0 +1,64 @@
+package ru.practicum.shareit.config;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Начальная загрузка хранилища в памяти. В режиме eager выполняется сразу в start, в режиме background —
+ * в потоке store-load-*, и каждый публичный метод хранилища сначала ждёт её в await (не дольше
+ * shareit.stores.load-wait, потом 503). Изменения ждут загрузку до коммита своей транзакции, поэтому
+ * ни одно из них не попадает одновременно в прочитанные строки и в прибавку к счётчикам после коммита.
+ * Пока start не вызван, ждать нечего.
+ */
+@Slf4j
+public final class StoreLoad {
+    private final String name;
+    private final StoreProperties properties;
+    private volatile CompletableFuture<Void> loaded = CompletableFuture.completedFuture(null);
+
+    public StoreLoad(String name, StoreProperties properties) {
+        this.name = name;
+        this.properties = properties;
+    }
+
+    public void start(Runnable load) {
+        if (properties.getWarmup() == StoreProperties.Warmup.EAGER) {
+            load.run();
+            return;
+        }
+        CompletableFuture<Void> loading = new CompletableFuture<>();
+        loaded = loading;
+        Thread.ofPlatform().name("store-load-" + name).daemon().start(() -> {
+            try {
+                load.run();
+                loading.complete(null);
+            } catch (RuntimeException | Error e) {
+                log.error("Хранилище {} не загружено", name, e);
+                loading.completeExceptionally(e);
+            }
+        });
+    }
+
+    public void await() {
+        CompletableFuture<Void> loading = loaded;
+        if (loading.state() == Future.State.SUCCESS) {
+            return;
+        }
+        try {
+            loading.get(properties.getLoadWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("Хранилище " + name + " ещё загружается");
+        } catch (ExecutionException e) {
+            throw new ServiceUnavailableException("Хранилище " + name + " не загружено: " + e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Ожидание загрузки хранилища " + name + " прервано");
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.shareit.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("shareit.stores")
+public class StoreProperties {
+    /**
+     * Когда хранилища в памяти (таймлайны, статистика, подсказки, гео-индекс) читают свои таблицы, см. StoreLoad.
+     */
+    private Warmup warmup = Warmup.EAGER;
+    /**
+     * Сколько запрос ждёт незаконченную фоновую загрузку, прежде чем ответить 503.
+     */
+    private Duration loadWait = Duration.ofSeconds(30);
+
+    public enum Warmup {
+        /**
+         * При старте, до открытия HTTP-порта.
+         */
+        EAGER,
+        /**
+         * В фоновых потоках после создания бинов; порт открывается, не дожидаясь загрузки.
+         */
+        BACKGROUND
+    }
+}
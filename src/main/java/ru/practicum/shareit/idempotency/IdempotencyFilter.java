@@ -0,0 +1,281 @@
+package ru.practicum.shareit.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import ru.practicum.shareit.admission.AdmissionControlFilter;
+import ru.practicum.shareit.exception.ErrorResponse;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
+import ru.practicum.shareit.item.controller.ItemController;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Заголовок Idempotency-Key на создающих POST-запросах: повтор с тем же ключом от того же клиента
+ * получает сохранённый ответ первого запроса (с заголовком Idempotent-Replayed), не выполняя его заново.
+ * Повтор, пришедший во время выполнения первого, ждёт его ответа. Тот же ключ с другим запросом — 422,
+ * не дождавшийся ответа повтор — 409. Ответы 5xx и 429 не сохраняются: такой запрос можно повторить.
+ * Стоит после AdmissionControlFilter, чтобы не читать тело и не занимать ключ у отклонённого запроса.
+ * Отпечаток запроса — метод, путь, параметры и тело; заголовки в него не входят.
+ */
+@Slf4j
+@Component
+@Order(AdmissionControlFilter.ORDER + 1)
+public class IdempotencyFilter extends OncePerRequestFilter {
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String REPLAYED = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyProperties properties;
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public IdempotencyFilter(IdempotencyProperties properties, IdempotencyStore store, ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gauge("shareit.idempotency.keys", store, IdempotencyStore::size);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !properties.isEnabled() || !"POST".equals(request.getMethod())
+                || request.getHeader(IDEMPOTENCY_KEY) == null
+                || !properties.getPaths().contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY);
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            reject(response, HttpStatus.BAD_REQUEST, "Idempotency-Key должен быть непустым и не длиннее "
+                    + MAX_KEY_LENGTH + " символов");
+            return;
+        }
+        CachedBodyRequest cached = new CachedBodyRequest(request);
+        String fingerprint = fingerprint(cached);
+        String key = request.getHeader(ItemController.USER_HEADER) + ':' + request.getRequestURI() + ':'
+                + idempotencyKey;
+
+        while (true) {
+            IdempotencyStore.Claim claim;
+            try {
+                claim = store.claim(key, fingerprint);
+            } catch (ServiceUnavailableException e) {
+                count("overflow");
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                reject(response, HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+                return;
+            }
+            if (!claim.entry().fingerprint().equals(fingerprint)) {
+                count("mismatch");
+                log.warn("Ключ идемпотентности {} повторно использован с другим запросом", idempotencyKey);
+                reject(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key уже использован с другим запросом");
+                return;
+            }
+            if (claim.owner()) {
+                execute(key, claim.entry(), cached, response, chain);
+                return;
+            }
+            IdempotencyStore.StoredResponse stored;
+            try {
+                stored = claim.entry().response().get(properties.getWaitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                count("conflict");
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                reject(response, HttpStatus.CONFLICT, "Запрос с этим Idempotency-Key ещё выполняется");
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ServletException(e);
+            } catch (ExecutionException e) {
+                throw new ServletException(e.getCause());
+            }
+            if (stored != null) {
+                count("replayed");
+                log.debug("Повтор по ключу идемпотентности {}: возвращён сохранённый ответ", idempotencyKey);
+                response.setStatus(stored.status());
+                response.setHeader(REPLAYED, "true");
+                if (stored.contentType() != null) {
+                    response.setContentType(stored.contentType());
+                }
+                response.setContentLength(stored.body().length);
+                response.getOutputStream().write(stored.body());
+                return;
+            }
+            // первый запрос не дал ответа, который можно повторить: пробуем выполнить сами
+        }
+    }
+
+    private void execute(String key, IdempotencyStore.Entry entry, CachedBodyRequest request,
+                         HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        IdempotencyStore.StoredResponse stored = null;
+        try {
+            chain.doFilter(request, wrapper);
+            int status = wrapper.getStatus();
+            if (status < 500 && status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+                stored = new IdempotencyStore.StoredResponse(status, wrapper.getContentType(),
+                        wrapper.getContentAsByteArray());
+            }
+            count("executed");
+        } finally {
+            store.complete(key, entry, stored);
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("shareit.idempotency.requests", "outcome", outcome).increment();
+    }
+
+    private static String fingerprint(CachedBodyRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((request.getMethod() + ' ' + request.getRequestURI() + '?' + request.getQueryString()
+                    + '\n').getBytes(StandardCharsets.UTF_8));
+            digest.update(request.body);
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), new ErrorResponse(message));
+    }
+
+    /**
+     * Тело запроса читается один раз для отпечатка и затем отдаётся контроллеру из памяти.
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+        private final CachedBodyInputStream input;
+
+        CachedBodyRequest(HttpServletRequest request) throws IOException {
+            super(request);
+            this.body = request.getInputStream().readAllBytes();
+            this.input = new CachedBodyInputStream(body);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return input;
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Тело уже в памяти, поэтому поток всегда готов к чтению. Неблокирующий читатель получает onDataAvailable
+     * сразу в setReadListener и onAllDataRead, как только прочитает всё.
+     */
+    private static final class CachedBodyInputStream extends ServletInputStream {
+        private final ByteArrayInputStream input;
+        private ReadListener listener;
+        private boolean inDataAvailable;
+        private boolean allDataReadSent;
+
+        CachedBodyInputStream(byte[] body) {
+            this.input = new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return input.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            if (readListener == null) {
+                throw new NullPointerException("ReadListener не задан");
+            }
+            if (listener != null) {
+                throw new IllegalStateException("ReadListener уже установлен");
+            }
+            listener = readListener;
+            try {
+                if (!isFinished()) {
+                    inDataAvailable = true;
+                    try {
+                        listener.onDataAvailable();
+                    } finally {
+                        inDataAvailable = false;
+                    }
+                }
+                allDataRead();
+            } catch (IOException | RuntimeException e) {
+                listener.onError(e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = input.read();
+            allDataRead();
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = input.read(buffer, offset, length);
+            allDataRead();
+            return read;
+        }
+
+        /**
+         * onAllDataRead вызывается один раз и не изнутри onDataAvailable: после него в setReadListener
+         * или после последнего чтения, если читатель дочитывает тело позже.
+         */
+        private void allDataRead() throws IOException {
+            if (listener != null && !inDataAvailable && isFinished() && !allDataReadSent) {
+                allDataReadSent = true;
+                listener.onAllDataRead();
+            }
+        }
+    }
+}
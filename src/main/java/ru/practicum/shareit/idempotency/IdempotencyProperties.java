@@ -0,0 +1,29 @@
+package ru.practicum.shareit.idempotency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+@Data
+@ConfigurationProperties("shareit.idempotency")
+public class IdempotencyProperties {
+    private boolean enabled = true;
+    /**
+     * POST-эндпоинты, на которых учитывается заголовок Idempotency-Key.
+     */
+    private List<String> paths = List.of("/bookings", "/items");
+    /**
+     * Сколько хранится ответ на запрос с ключом; повтор позже выполнится заново.
+     */
+    private Duration ttl = Duration.ofHours(1);
+    /**
+     * Сколько ключей держать в памяти; при переполнении вытесняются самые старые.
+     */
+    private int maxKeys = 10_000;
+    /**
+     * Сколько повтор ждёт завершения первого запроса с тем же ключом, прежде чем получить 409.
+     */
+    private Duration waitTimeout = Duration.ofSeconds(10);
+}
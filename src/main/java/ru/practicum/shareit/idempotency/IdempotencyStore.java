@@ -0,0 +1,102 @@
+package ru.practicum.shareit.idempotency;
+
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Ответы на запросы с Idempotency-Key. Записи живут ttl и не больше maxKeys штук; порядок вставки совпадает
+ * с порядком истечения, поэтому устаревшие и лишние записи снимаются с головы. Запись появляется до выполнения
+ * запроса, и повторы ждут её ответа, а не выполняют запрос сами. Записи выполняющихся запросов не вытесняются:
+ * иначе повтор выполнил бы запрос второй раз. Если места нет только из-за них, новый ключ не принимается (503).
+ */
+@Component
+public class IdempotencyStore {
+    private final IdempotencyProperties properties;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public IdempotencyStore(IdempotencyProperties properties) {
+        this.properties = properties;
+    }
+
+    public record StoredResponse(int status, String contentType, byte[] body) {
+    }
+
+    public static final class Entry {
+        private final String fingerprint;
+        private final long createdNanos;
+        private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+        private Entry(String fingerprint, long createdNanos) {
+            this.fingerprint = fingerprint;
+            this.createdNanos = createdNanos;
+        }
+
+        public String fingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * Завершается сохранённым ответом или null, если первый запрос не дал ответа, который можно повторить.
+         */
+        public CompletableFuture<StoredResponse> response() {
+            return response;
+        }
+    }
+
+    /**
+     * @param owner true — запись создана этим вызовом, и запрос должен выполнить вызывающий
+     */
+    public record Claim(Entry entry, boolean owner) {
+    }
+
+    public synchronized Claim claim(String key, String fingerprint) {
+        long now = System.nanoTime();
+        evict(now);
+        Entry existing = entries.get(key);
+        if (existing != null) {
+            return new Claim(existing, false);
+        }
+        if (entries.size() >= properties.getMaxKeys()) {
+            throw new ServiceUnavailableException("Слишком много запросов с Idempotency-Key выполняется одновременно");
+        }
+        Entry entry = new Entry(fingerprint, now);
+        entries.put(key, entry);
+        return new Claim(entry, true);
+    }
+
+    /**
+     * Сохраняет ответ владельца записи; response == null убирает запись, и следующий повтор выполнится заново.
+     */
+    public void complete(String key, Entry entry, StoredResponse response) {
+        if (response == null) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+        }
+        entry.response.complete(response);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evict(long now) {
+        long ttl = properties.getTtl().toNanos();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            if (!eldest.response.isDone()) {
+                continue;
+            }
+            if (entries.size() < properties.getMaxKeys() && now - eldest.createdNanos < ttl) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+}
@@ -5,12 +5,20 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.booking.model.BookingExpand;
 import ru.practicum.shareit.item.model.CommentDto;
 import ru.practicum.shareit.item.model.ItemDto;
+import ru.practicum.shareit.item.model.ItemSearchFilter;
+import ru.practicum.shareit.item.model.ItemSuggestion;
 import ru.practicum.shareit.item.model.ItemWithComment;
+import ru.practicum.shareit.item.model.OwnerStats;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.sql.SqlBudget;
 
+import java.time.YearMonth;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 
 @Slf4j
@@ -22,6 +30,7 @@ public class ItemController {
     private final ItemService itemService;
 
     @PostMapping
+    @SqlBudget(statements = 12)
     public ResponseEntity<ItemDto> create(@RequestHeader(USER_HEADER) Long userId,
                                           @Valid @RequestBody ItemDto itemDto) {
         ItemDto item = itemService.create(itemDto, userId);
@@ -30,6 +39,7 @@ public class ItemController {
     }
 
     @PatchMapping("/{itemId}")
+    @SqlBudget(statements = 10)
     public ResponseEntity<ItemDto> update(@RequestHeader(USER_HEADER) Long userId,
                                           @RequestBody ItemDto itemDto,
                                           @PathVariable("itemId") Long itemId) {
@@ -39,6 +49,7 @@ public class ItemController {
     }
 
     @DeleteMapping("/{itemId}")
+    @SqlBudget(statements = 6)
     public ResponseEntity<Void> delete(@RequestHeader(USER_HEADER) Long userId,
                                        @PathVariable Long itemId) {
         itemService.delete(itemId, userId);
@@ -47,28 +58,65 @@ public class ItemController {
     }
 
     @GetMapping()
-    public ResponseEntity<Collection<ItemWithComment>> allItems(@RequestHeader(USER_HEADER) Long userId) {
-        Collection<ItemWithComment> allItems = itemService.getAllItems(userId);
+    @SqlBudget(statements = 8)
+    public ResponseEntity<Collection<ItemWithComment>> allItems(@RequestHeader(USER_HEADER) Long userId,
+                                                               @RequestParam(required = false) List<String> expand) {
+        Collection<ItemWithComment> allItems = itemService.getAllItems(userId, BookingExpand.parse(expand));
         log.info("ItemController: количество всех вещей: {}", allItems.size());
         return ResponseEntity.ok(allItems);
     }
 
+    @GetMapping(params = "ids")
+    @SqlBudget(statements = 8)
+    public ResponseEntity<Map<Long, ItemWithComment>> getItems(@RequestHeader(USER_HEADER) Long userId,
+                                                               @RequestParam List<Long> ids,
+                                                               @RequestParam(required = false) List<String> expand) {
+        Map<Long, ItemWithComment> items = itemService.getItems(userId, ids, BookingExpand.parse(expand));
+        log.info("ItemController: пакетно получено {} вещей", items.size());
+        return ResponseEntity.ok(items);
+    }
+
     @GetMapping("/{itemId}")
+    @SqlBudget(statements = 5)
     public ResponseEntity<ItemWithComment> getUserById(@RequestHeader(USER_HEADER) Long userId,
                                                        @PathVariable("itemId")
-                                                       Long itemId) {
+                                                       Long itemId,
+                                                       @RequestParam(required = false) List<String> expand) {
         log.info("ItemController: запрошена вещ с id: {}", itemId);
-        return ResponseEntity.ok(itemService.getItemById(userId, itemId));
+        return ResponseEntity.ok(itemService.getItemById(userId, itemId, BookingExpand.parse(expand)));
     }
 
     @GetMapping("/search")
+    @SqlBudget(statements = 2)
     public ResponseEntity<Collection<ItemDto>> searchItems(@RequestHeader(USER_HEADER) Long userId,
-                                                           @RequestParam(name = "text") String text) {
+                                                           @RequestParam(name = "text") String text,
+                                                           ItemSearchFilter filter) {
         log.info("GET Запрос на поиск предметов");
-        return ResponseEntity.ok(itemService.search(text));
+        return ResponseEntity.ok(itemService.search(text, filter));
+    }
+
+    @GetMapping("/suggest")
+    @SqlBudget(statements = 0)
+    public ResponseEntity<List<ItemSuggestion>> suggest(@RequestHeader(USER_HEADER) Long userId,
+                                                        @RequestParam(name = "text") String text,
+                                                        @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(itemService.suggest(text, limit));
+    }
+
+    /**
+     * Статистика бронирований вещей владельца; from и to — месяцы в формате yyyy-MM.
+     */
+    @GetMapping("/stats")
+    @SqlBudget(statements = 1)
+    public ResponseEntity<OwnerStats> stats(@RequestHeader(USER_HEADER) Long userId,
+                                            @RequestParam(required = false) YearMonth from,
+                                            @RequestParam(required = false) YearMonth to) {
+        log.info("ItemController: запрошена статистика владельца: {}", userId);
+        return ResponseEntity.ok(itemService.getStats(userId, from, to));
     }
 
     @PostMapping("/{itemId}/comment")
+    @SqlBudget(statements = 14)
     public CommentDto createComment(@RequestHeader(USER_HEADER) Long userId, @PathVariable Long itemId,
                                     @Valid @RequestBody CommentDto commentDto) {
         return itemService.createComment(userId, itemId, commentDto);
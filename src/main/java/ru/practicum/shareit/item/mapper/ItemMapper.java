@@ -6,6 +6,7 @@ import lombok.extern.slf4j.Slf4j;
 import ru.practicum.shareit.booking.model.BookingOut;
 import ru.practicum.shareit.item.model.CommentDto;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemDashboard;
 import ru.practicum.shareit.item.model.ItemDto;
 import ru.practicum.shareit.item.model.ItemWithComment;
 
@@ -20,7 +21,10 @@ public class ItemMapper {
         itemDto.setName(item.getName());
         itemDto.setDescription(item.getDescription());
         itemDto.setAvailable(item.getAvailable());
-        itemDto.setRequest(item.getRequest());
+        itemDto.setRequestId(item.getRequest() != null ? item.getRequest().getId() : null);
+        itemDto.setCategory(item.getCategory());
+        itemDto.setLatitude(item.getLatitude());
+        itemDto.setLongitude(item.getLongitude());
         return itemDto;
     }
 
@@ -34,6 +38,9 @@ public class ItemMapper {
         item.setName(dto.getName());
         item.setDescription(dto.getDescription());
         item.setAvailable(dto.getAvailable());
+        item.setCategory(dto.getCategory());
+        item.setLatitude(dto.getLatitude());
+        item.setLongitude(dto.getLongitude());
         return item;
     }
 
@@ -50,5 +57,18 @@ public class ItemMapper {
         return dto;
     }
 
+    public static ItemWithComment toItemWithComment(ItemDashboard row, BookingOut lastBooking, BookingOut nextBooking,
+                                                    List<CommentDto> comments) {
+        ItemWithComment dto = new ItemWithComment();
+        dto.setId(row.getItemId());
+        dto.setName(row.getName());
+        dto.setDescription(row.getDescription());
+        dto.setAvailable(row.getAvailable());
+        dto.setLastBooking(lastBooking);
+        dto.setNextBooking(nextBooking);
+        dto.setComments(comments);
+        return dto;
+    }
+
 
 }
@@ -0,0 +1,26 @@
+package ru.practicum.shareit.item.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingStats {
+    private long bookings;
+    private long approved;
+    private long rejected;
+    /**
+     * Суммарное число дней, которых касаются подтверждённые бронирования.
+     */
+    private long bookedDays;
+
+    /**
+     * Доля подтверждённых среди рассмотренных владельцем бронирований; null, пока рассмотренных нет.
+     */
+    public Double getApprovalRate() {
+        long decided = approved + rejected;
+        return decided == 0 ? null : (double) approved / decided;
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.shareit.item.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Денормализованная строка витрины владельца: всё, что нужно для ответа GET /items по одной вещи.
+ * Бронирования и комментарии хранятся готовыми JSON-документами.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "item_dashboards")
+public class ItemDashboard {
+    @Id
+    @Column(name = "item_id")
+    private Long itemId;
+
+    @Column(name = "owner_id", nullable = false)
+    private Long ownerId;
+
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "description", nullable = false)
+    private String description;
+
+    @Column(name = "available", nullable = false)
+    private Boolean available;
+
+    @Column(name = "last_booking")
+    private String lastBooking;
+
+    @Column(name = "next_booking")
+    private String nextBooking;
+
+    @Column(name = "comment_count", nullable = false)
+    private Integer commentCount;
+
+    @Column(name = "comments")
+    private String comments;
+
+    /**
+     * Момент, после которого последнее/следующее бронирование могут смениться без записи в БД
+     * (следующее бронирование началось или текущее закончилось), или момент, когда сменилось имя автора
+     * комментария. Null — пересчёт не нужен.
+     */
+    @Column(name = "refresh_after")
+    private LocalDateTime refreshAfter;
+}
@@ -1,12 +1,14 @@
 package ru.practicum.shareit.item.model;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import ru.practicum.shareit.request.ItemRequest;
 
 @Builder
 @AllArgsConstructor
@@ -20,7 +22,15 @@ public class ItemDto {
     private String description;
     @NotNull
     private Boolean available;
-    private ItemRequest request;
+    private Long requestId;
+    @Size(max = 64)
+    private String category;
+    @DecimalMin("-90.0")
+    @DecimalMax("90.0")
+    private Double latitude;
+    @DecimalMin("-180.0")
+    @DecimalMax("180.0")
+    private Double longitude;
 
 
 }
@@ -0,0 +1,25 @@
+package ru.practicum.shareit.item.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Необязательные фильтры поиска вещей: категория, круг на карте и окно, в которое вещь должна быть свободна.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemSearchFilter {
+    private String category;
+    private Double lat;
+    private Double lon;
+    private Double radiusKm;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+}
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.item.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+import java.util.SortedMap;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemStats {
+    private Long itemId;
+    private BookingStats total;
+    /**
+     * По месяцам начала бронирований.
+     */
+    private SortedMap<YearMonth, BookingStats> months;
+}
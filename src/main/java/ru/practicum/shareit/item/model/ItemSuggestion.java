@@ -0,0 +1,17 @@
+package ru.practicum.shareit.item.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ItemSuggestion {
+    private Long id;
+    private String name;
+    /**
+     * Количество подтверждённых бронирований, по нему упорядочены подсказки.
+     */
+    private Long bookings;
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.item.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.YearMonth;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * Ответ GET /items/stats: итоги владельца по всем вещам и по месяцам, и то же для каждой его вещи с бронированиями.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OwnerStats {
+    private Long ownerId;
+    private BookingStats total;
+    private SortedMap<YearMonth, BookingStats> months;
+    private List<ItemStats> items;
+}
@@ -0,0 +1,44 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Пересобирает строки витрины, у которых наступил refresh_after, вне запросов: чтения витрины остаются read-only
+ * и могут идти на реплику. Каждая строка — отдельная транзакция с блокировкой строки вещи, поэтому одновременный
+ * запуск на нескольких узлах лишь повторяет пересборку. Не ленивый: иначе при spring.main.lazy-initialization
+ * расписание не запустится.
+ */
+@Slf4j
+@Lazy(false)
+@Component
+public class ItemDashboardRefresher {
+    private final ItemDashboardService itemDashboardService;
+    private final int batchSize;
+
+    public ItemDashboardRefresher(ItemDashboardService itemDashboardService,
+                                  @Value("${shareit.dashboard.refresh-batch-size:500}") int batchSize) {
+        this.itemDashboardService = itemDashboardService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${shareit.dashboard.refresh-interval:PT1M}",
+            fixedDelayString = "${shareit.dashboard.refresh-interval:PT1M}")
+    public void refreshExpired() {
+        int total = 0;
+        List<Long> expired;
+        do {
+            expired = itemDashboardService.findExpired(batchSize);
+            expired.forEach(itemDashboardService::refresh);
+            total += expired.size();
+        } while (expired.size() == batchSize);
+        if (total > 0) {
+            log.debug("Пересобрано {} устаревших строк витрины", total);
+        }
+    }
+}
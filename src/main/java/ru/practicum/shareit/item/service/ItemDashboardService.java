@@ -0,0 +1,24 @@
+package ru.practicum.shareit.item.service;
+
+import ru.practicum.shareit.item.model.ItemWithComment;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface ItemDashboardService {
+    void refresh(Long itemId);
+
+    void refreshForUser(Long userId);
+
+    void remove(Long itemId);
+
+    /**
+     * Вещи, строки витрины которых пора пересобрать (наступил refresh_after), начиная с самых давних.
+     */
+    List<Long> findExpired(int limit);
+
+    List<ItemWithComment> getOwnerDashboard(Long ownerId);
+
+    Map<Long, ItemWithComment> getItems(Collection<Long> itemIds, Long viewerId);
+}
@@ -0,0 +1,278 @@
+package ru.practicum.shareit.item.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.CommentDto;
+import ru.practicum.shareit.item.model.ItemDashboard;
+import ru.practicum.shareit.item.model.ItemWithComment;
+import ru.practicum.shareit.item.storage.CommentRepository;
+import ru.practicum.shareit.item.storage.ItemDashboardRepository;
+import ru.practicum.shareit.item.storage.ItemStorage;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Поддерживает витрину владельца (таблица item_dashboards) в актуальном состоянии.
+ * Строка вещи пересобирается целиком при каждой записи, которая её затрагивает: изменение вещи,
+ * подтверждение бронирования, новый комментарий. Пересборки одной вещи упорядочены блокировкой строки вещи
+ * в items: строки витрины может ещё не быть. В строке хранятся последние LATEST_COMMENTS комментариев
+ * и их общее число.
+ * <p>
+ * Смена имени автора комментариев не пересобирает его строки (их может быть сколько угодно), а одним UPDATE
+ * сдвигает им refresh_after на текущий момент. Строки, у которых наступил refresh_after (началось или
+ * закончилось бронирование, сменилось имя автора), чтение не перезаписывает: бронирования и последние
+ * комментарии для всех таких строк ответа читаются четырьмя запросами IN, а в таблице строки обновляет
+ * ItemDashboardRefresher.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+@Transactional
+public class ItemDashboardServiceImpl implements ItemDashboardService {
+    /**
+     * Сколько последних комментариев хранит строка витрины.
+     */
+    static final int LATEST_COMMENTS = 10;
+    private static final TypeReference<List<CommentDto>> COMMENTS_TYPE = new TypeReference<>() {
+    };
+
+    private final ItemDashboardRepository itemDashboardRepository;
+    private final ItemStorage itemStorage;
+    private final BookingStorage bookingStorage;
+    private final CommentRepository commentRepository;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void refresh(Long itemId) {
+        rebuild(List.of(itemId));
+    }
+
+    @Override
+    public void refreshForUser(Long userId) {
+        int expired = itemDashboardRepository.expireForAuthor(userId, LocalDateTime.now());
+        log.debug("Строк витрины с комментариями пользователя ID: {} к пересборке: {}", userId, expired);
+    }
+
+    @Override
+    public void remove(Long itemId) {
+        log.debug("Удаление строки витрины для вещи ID: {}", itemId);
+        itemDashboardRepository.deleteById(itemId);
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<Long> findExpired(int limit) {
+        return itemDashboardRepository.findItemIdsToRefresh(LocalDateTime.now(), Limit.of(limit));
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    public List<ItemWithComment> getOwnerDashboard(Long ownerId) {
+        List<ItemDashboard> rows = itemDashboardRepository.findByOwnerIdOrderByItemIdDesc(ownerId);
+        log.debug("Из витрины получено {} строк для владельца ID: {}", rows.size(), ownerId);
+
+        return new ArrayList<>(toItems(rows).values());
+    }
+
+    /**
+     * Строки читаются одним запросом IN. Бронирования остаются только у вещей, которыми владеет viewerId.
+     * Вещей без строки витрины не существует, такие id просто отсутствуют в результате.
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public Map<Long, ItemWithComment> getItems(Collection<Long> itemIds, Long viewerId) {
+        Map<Long, ItemDashboard> rows = itemDashboardRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(ItemDashboard::getItemId, row -> row));
+        log.debug("Из витрины получено {} строк из {} запрошенных", rows.size(), itemIds.size());
+
+        Map<Long, ItemWithComment> items = toItems(itemIds.stream()
+                .map(rows::get)
+                .filter(Objects::nonNull)
+                .toList());
+        items.values().stream()
+                .filter(item -> !rows.get(item.getId()).getOwnerId().equals(viewerId))
+                .forEach(item -> {
+                    item.setLastBooking(null);
+                    item.setNextBooking(null);
+                });
+        return items;
+    }
+
+    /**
+     * Строки в том же порядке; у устаревших бронирования и комментарии читаются заново, по четыре запроса
+     * на все строки.
+     */
+    private Map<Long, ItemWithComment> toItems(List<ItemDashboard> rows) {
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> stale = rows.stream()
+                .filter(row -> row.getRefreshAfter() != null && !row.getRefreshAfter().isAfter(now))
+                .map(ItemDashboard::getItemId)
+                .collect(Collectors.toSet());
+        Map<Long, Bookings> bookings = stale.isEmpty() ? Map.of() : findBookings(stale, now);
+        Map<Long, List<CommentDto>> comments = stale.isEmpty() ? Map.of() : findLatestComments(stale);
+        if (!stale.isEmpty()) {
+            log.debug("Устаревших строк витрины: {}, бронирования и комментарии прочитаны заново", stale.size());
+        }
+
+        Map<Long, ItemWithComment> result = new LinkedHashMap<>();
+        for (ItemDashboard row : rows) {
+            ItemWithComment item = toItemWithComment(row);
+            if (stale.contains(row.getItemId())) {
+                Bookings fresh = bookings.getOrDefault(row.getItemId(), Bookings.NONE);
+                item.setLastBooking(fresh.last());
+                item.setNextBooking(fresh.next());
+                item.setComments(comments.getOrDefault(row.getItemId(), List.of()));
+            }
+            result.put(row.getItemId(), item);
+        }
+        return result;
+    }
+
+    /**
+     * Пересобирает строки вещей itemIds одним набором запросов, сколько бы вещей ни было; строки вещей,
+     * которых уже нет, удаляются.
+     */
+    private void rebuild(Collection<Long> itemIds) {
+        List<ItemStorage.DashboardItem> items = itemStorage.lockForDashboard(itemIds);
+        Map<Long, ItemDashboard> stored = itemDashboardRepository.findAllById(itemIds).stream()
+                .collect(Collectors.toMap(ItemDashboard::getItemId, row -> row));
+        Set<Long> existing = items.stream().map(ItemStorage.DashboardItem::getId).collect(Collectors.toSet());
+        stored.values().stream()
+                .filter(row -> !existing.contains(row.getItemId()))
+                .forEach(itemDashboardRepository::delete);
+        if (items.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Bookings> bookings = findBookings(existing, LocalDateTime.now());
+        Map<Long, List<CommentDto>> comments = findLatestComments(existing);
+        List<Long> capped = comments.entrySet().stream()
+                .filter(entry -> entry.getValue().size() >= LATEST_COMMENTS)
+                .map(Map.Entry::getKey)
+                .toList();
+        Map<Long, Long> counts = capped.isEmpty() ? Map.of() : commentRepository.countByItemIds(capped).stream()
+                .collect(Collectors.toMap(CommentRepository.ItemCommentCount::getItemId,
+                        CommentRepository.ItemCommentCount::getComments));
+
+        List<ItemDashboard> rows = new ArrayList<>(items.size());
+        for (ItemStorage.DashboardItem item : items) {
+            List<CommentDto> itemComments = comments.getOrDefault(item.getId(), List.of());
+            long commentCount = counts.getOrDefault(item.getId(), (long) itemComments.size());
+            rows.add(build(item, stored.getOrDefault(item.getId(), new ItemDashboard()),
+                    bookings.getOrDefault(item.getId(), Bookings.NONE), itemComments, commentCount));
+        }
+        itemDashboardRepository.saveAll(rows);
+    }
+
+    /**
+     * Заполняет row по текущим данным вещи.
+     */
+    private ItemDashboard build(ItemStorage.DashboardItem item, ItemDashboard row, Bookings bookings,
+                                List<CommentDto> comments, long commentCount) {
+        row.setItemId(item.getId());
+        row.setOwnerId(item.getOwnerId());
+        row.setName(item.getName());
+        row.setDescription(item.getDescription());
+        row.setAvailable(item.getAvailable());
+        row.setLastBooking(write(bookings.last()));
+        row.setNextBooking(write(bookings.next()));
+        row.setCommentCount(Math.toIntExact(commentCount));
+        row.setComments(write(comments));
+        row.setRefreshAfter(earliest(bookings.next() != null ? bookings.next().getStart() : null,
+                bookings.nextEnd()));
+
+        log.debug("Строка витрины для вещи ID: {} собрана, комментариев: {}", item.getId(), commentCount);
+        return row;
+    }
+
+    /**
+     * Последние LATEST_COMMENTS комментариев каждой вещи, от новых к старым.
+     */
+    private Map<Long, List<CommentDto>> findLatestComments(Collection<Long> itemIds) {
+        return commentRepository.findLatestByItemIds(itemIds, LATEST_COMMENTS).stream()
+                .collect(Collectors.groupingBy(CommentDto::getItemId, LinkedHashMap::new, Collectors.toList()));
+    }
+
+    /**
+     * Последнее закончившееся, следующее и ближайшее окончание подтверждённых бронирований для каждой вещи.
+     */
+    private Map<Long, Bookings> findBookings(Collection<Long> itemIds, LocalDateTime now) {
+        Map<Long, Bookings> result = new HashMap<>();
+        for (BookingOut last : bookingStorage.findLastEnded(itemIds, now, Status.APPROVED)) {
+            result.merge(last.getItemId(), new Bookings(last, null, null), Bookings::plus);
+        }
+        for (BookingOut next : bookingStorage.findNextStarting(itemIds, now, Status.APPROVED)) {
+            result.merge(next.getItemId(), new Bookings(null, next, null), Bookings::plus);
+        }
+        for (BookingStorage.ItemMoment end : bookingStorage.findNextEnds(itemIds, now, Status.APPROVED)) {
+            result.merge(end.getItemId(), new Bookings(null, null, end.getMoment()), Bookings::plus);
+        }
+        return result;
+    }
+
+    private ItemWithComment toItemWithComment(ItemDashboard row) {
+        BookingOut lastBooking = row.getLastBooking() != null ? read(row.getLastBooking(), BookingOut.class) : null;
+        BookingOut nextBooking = row.getNextBooking() != null ? read(row.getNextBooking(), BookingOut.class) : null;
+        List<CommentDto> comments = row.getComments() != null ? read(row.getComments(), COMMENTS_TYPE)
+                : Collections.emptyList();
+        return ItemMapper.toItemWithComment(row, lastBooking, nextBooking, comments);
+    }
+
+    private static LocalDateTime earliest(LocalDateTime first, LocalDateTime second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return first.isBefore(second) ? first : second;
+    }
+
+    private record Bookings(BookingOut last, BookingOut next, LocalDateTime nextEnd) {
+        static final Bookings NONE = new Bookings(null, null, null);
+
+        Bookings plus(Bookings other) {
+            return new Bookings(last != null ? last : other.last, next != null ? next : other.next,
+                    nextEnd != null ? nextEnd : other.nextEnd);
+        }
+    }
+
+    private String write(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать строку витрины", e);
+        }
+    }
+
+    private <T> T read(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать строку витрины", e);
+        }
+    }
+
+    private <T> T read(String json, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать строку витрины", e);
+        }
+    }
+}
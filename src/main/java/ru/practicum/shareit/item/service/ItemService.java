@@ -1,10 +1,18 @@
 package ru.practicum.shareit.item.service;
 
+import ru.practicum.shareit.booking.model.BookingExpand;
 import ru.practicum.shareit.item.model.CommentDto;
 import ru.practicum.shareit.item.model.ItemDto;
+import ru.practicum.shareit.item.model.ItemSearchFilter;
+import ru.practicum.shareit.item.model.ItemSuggestion;
 import ru.practicum.shareit.item.model.ItemWithComment;
+import ru.practicum.shareit.item.model.OwnerStats;
 
+import java.time.YearMonth;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface ItemService {
     ItemDto create(ItemDto item, Long owner);
@@ -13,11 +21,17 @@ public interface ItemService {
 
     ItemDto update(Long userId, ItemDto itemDto, Long itemId);
 
-    ItemWithComment getItemById(Long userId, Long itemId);
+    ItemWithComment getItemById(Long userId, Long itemId, Set<BookingExpand> expand);
 
-    Collection<ItemWithComment> getAllItems(Long userId);
+    Collection<ItemWithComment> getAllItems(Long userId, Set<BookingExpand> expand);
 
-    Collection<ItemDto> search(String text);
+    Collection<ItemDto> search(String text, ItemSearchFilter filter);
 
     CommentDto createComment(Long userId, Long itemId, CommentDto commentDto);
+
+    Map<Long, ItemWithComment> getItems(Long userId, Collection<Long> itemIds, Set<BookingExpand> expand);
+
+    List<ItemSuggestion> suggest(String text, int limit);
+
+    OwnerStats getStats(Long ownerId, YearMonth from, YearMonth to);
 }
@@ -1,38 +1,70 @@
 package ru.practicum.shareit.item.service;
 
-import jakarta.transaction.Transactional;
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import ru.practicum.shareit.booking.mapper.BookingMapper;
-import ru.practicum.shareit.booking.model.Booking;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.BookingExpand;
 import ru.practicum.shareit.booking.model.BookingOut;
 import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.service.BookingExpander;
+import ru.practicum.shareit.booking.storage.BookingArchiveStorage;
 import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.booking.storage.BookingTimeline;
+import ru.practicum.shareit.booking.storage.BookingTimelineStore;
+import ru.practicum.shareit.coherence.InvalidationBus;
 import ru.practicum.shareit.exception.AccessDeniedException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.mapper.CommentMapper;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.*;
 import ru.practicum.shareit.item.storage.CommentRepository;
+import ru.practicum.shareit.item.storage.ItemGeoIndex;
+import ru.practicum.shareit.item.storage.ItemStatsStore;
 import ru.practicum.shareit.item.storage.ItemStorage;
+import ru.practicum.shareit.item.storage.ItemSuggestionIndex;
+import ru.practicum.shareit.singleflight.SingleFlight;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.storage.UserStorage;
 
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
-@Transactional
+@Transactional(readOnly = true)
 public class ItemServiceImpl implements ItemService {
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int APPROVED = BookingTimeline.mask(Status.APPROVED);
+    private static final String GET_ITEM = "getItemById";
+    private static final String SEARCH = "search";
+
     private final ItemStorage itemStorage;
     private final UserStorage userStorage;
     private final BookingStorage bookingStorage;
+    private final BookingArchiveStorage bookingArchiveStorage;
     private final CommentRepository commentRepository;
+    private final ItemDashboardService itemDashboardService;
+    private final BookingExpander bookingExpander;
+    private final BookingTimelineStore bookingTimelineStore;
+    private final ItemSuggestionIndex itemSuggestionIndex;
+    private final ItemGeoIndex itemGeoIndex;
+    private final ItemStatsStore itemStatsStore;
+    private final InvalidationBus invalidationBus;
+    private final SingleFlight singleFlight;
+
+    /**
+     * Вещь с комментариями — часть карточки, одинаковая для всех пользователей; её чтение схлопывается.
+     */
+    private record ItemCard(Long id, String name, String description, Boolean available, Long ownerId,
+                            List<CommentDto> comments) {
+    }
 
     @Transactional
     @Override
@@ -66,7 +98,13 @@ public class ItemServiceImpl implements ItemService {
         log.debug("AFTER MAPPING - Item available: {}", item.getAvailable());
 
         item.setOwner(owner);
-        Item savedItem = itemStorage.save(item);
+        validatePlace(item);
+        Item savedItem = itemStorage.saveAndFlush(item);
+        itemDashboardService.refresh(savedItem.getId());
+        singleFlight.forgetAll(SEARCH);
+        itemSuggestionIndex.onItemSaved(savedItem);
+        itemGeoIndex.onItemSaved(savedItem);
+        invalidationBus.publish(savedItem.getId(), savedItem.getVersion());
 
 
         log.debug("AFTER SAVE - Saved Item available: {}", savedItem.getAvailable());
@@ -81,7 +119,14 @@ public class ItemServiceImpl implements ItemService {
         Item item = getItemOrThrow(itemId);
         validateItemOwnership(item, userId);
         log.info("Удаление вещи с ID: {}", itemId);
+        itemDashboardService.remove(itemId);
+        singleFlight.forget(GET_ITEM, itemId);
+        singleFlight.forgetAll(SEARCH);
         itemStorage.delete(item);
+        long removedVersion = item.getVersion() + 1;
+        itemSuggestionIndex.onItemRemoved(itemId, removedVersion);
+        itemGeoIndex.onItemRemoved(itemId, removedVersion);
+        invalidationBus.publish(itemId, removedVersion);
         log.debug("Вещь с ID: {} успешно удалена", itemId);
     }
 
@@ -95,7 +140,7 @@ public class ItemServiceImpl implements ItemService {
         validateItemOwnership(oldItem, userId);
 
         Item item = ItemMapper.toItem(itemDto);
-        if (Objects.isNull(item.getAvailable())) {
+        if (Objects.isNull(itemDto.getAvailable())) {
             item.setAvailable(oldItem.getAvailable());
         }
         if (item.getDescription() == null || item.getDescription().isBlank()) {
@@ -104,117 +149,77 @@ public class ItemServiceImpl implements ItemService {
         if (item.getName() == null || item.getName().isBlank()) {
             item.setName(oldItem.getName());
         }
+        if (item.getCategory() == null) {
+            item.setCategory(oldItem.getCategory());
+        }
+        if (item.getLatitude() == null && item.getLongitude() == null) {
+            item.setLatitude(oldItem.getLatitude());
+            item.setLongitude(oldItem.getLongitude());
+        }
+        validatePlace(item);
         item.setId(oldItem.getId());
+        item.setVersion(oldItem.getVersion());
         item.setRequest(oldItem.getRequest());
         item.setOwner(oldItem.getOwner());
 
-        Item updatedItem = itemStorage.save(item);
+        Item updatedItem = itemStorage.saveAndFlush(item);
+        itemDashboardService.refresh(itemId);
+        singleFlight.forget(GET_ITEM, itemId);
+        singleFlight.forgetAll(SEARCH);
+        itemSuggestionIndex.onItemSaved(updatedItem);
+        itemGeoIndex.onItemSaved(updatedItem);
+        invalidationBus.publish(itemId, updatedItem.getVersion());
         log.debug("Вещь с ID: {} успешно обновлена", itemId);
         return ItemMapper.toItemDto(updatedItem);
 
 
     }
 
+    /**
+     * Без общей транзакции: одинаковые одновременные чтения карточки ждут одно чтение из БД (SingleFlight),
+     * не занимая соединений. Бронирования видит только владелец, они берутся из таймлайна уже после.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     @Override
-    public ItemWithComment getItemById(Long userId, Long itemId) {
+    public ItemWithComment getItemById(Long userId, Long itemId, Set<BookingExpand> expand) {
         getUserOrThrow(userId);
-        Item item = getItemOrThrow(itemId);
-        List<Comment> comments = commentRepository.findAllByItemIdOrderByCreatedDesc(itemId);
-        List<CommentDto> commentsDto = comments.stream()
-                .map(CommentMapper::toCommentDto)
-                .collect(Collectors.toList());
+        ItemCard card = singleFlight.read(GET_ITEM, itemId, () -> {
+            Item item = getItemOrThrow(itemId);
+            List<CommentDto> comments = commentRepository.findDtosByItemId(itemId);
+            return new ItemCard(item.getId(), item.getName(), item.getDescription(), item.getAvailable(),
+                    item.getOwner().getId(), comments);
+        });
         BookingOut lastBooking = null;
         BookingOut nextBooking = null;
 
-        if (item.getOwner().getId().equals(userId)) {
-            LocalDateTime now = LocalDateTime.now();
-            log.debug("User is owner, checking bookings for item {} at time {}", itemId, now);
+        if (card.ownerId().equals(userId)) {
+            long now = BookingTimeline.toMicros(LocalDateTime.now());
+            BookingTimeline timeline = bookingTimelineStore.get(itemId);
+            log.debug("User is owner, checking {} bookings for item {}", timeline.size(), itemId);
 
-            Booking last = bookingStorage.findFirstByItemIdAndEndBeforeAndStatusOrderByEndDesc(
-                    itemId, now, Status.APPROVED).orElse(null);
-            Booking next = bookingStorage.findFirstByItemIdAndStartAfterAndStatusOrderByStartAsc(
-                    itemId, now, Status.APPROVED).orElse(null);
-            log.debug("Found last booking: {}, next booking: {}", last, next);
-
-            lastBooking = last != null ? BookingMapper.toBookingOut(last) : null;
-            nextBooking = next != null ? BookingMapper.toBookingOut(next) : null;
+            lastBooking = timeline.toBookingOut(itemId, timeline.lastEndedBefore(now, APPROVED));
+            nextBooking = timeline.toBookingOut(itemId, timeline.nextStartingAfter(now, APPROVED));
+            bookingExpander.expand(Stream.of(lastBooking, nextBooking).filter(Objects::nonNull).toList(), expand);
+            log.debug("Found last booking: {}, next booking: {}", lastBooking, nextBooking);
         } else {
             log.debug("User is not owner, not showing booking information");
         }
-        return ItemMapper.toItemWithComment(item,
-                lastBooking,
-                nextBooking,
-                commentsDto);
+        return new ItemWithComment(card.id(), card.name(), card.description(), card.available(),
+                lastBooking, nextBooking, card.comments());
     }
 
     @Override
-    public Collection<ItemWithComment> getAllItems(Long userId) {
+    public Collection<ItemWithComment> getAllItems(Long userId, Set<BookingExpand> expand) {
         log.info("Начало получения всех вещей для пользователя с ID: {}", userId);
 
         getUserOrThrow(userId);
         log.debug("Пользователь с ID {} существует и проверен", userId);
 
-        List<Item> items = itemStorage.findByOwnerIdOrderByIdDesc(userId);
-        log.debug("Найдено {} вещей для пользователя с ID: {}", items.size(), userId);
-
-        if (items.isEmpty()) {
-            log.info("Для пользователя с ID {} не найдено ни одной вещи. Возвращаем пустой список", userId);
-            return Collections.emptyList();
-        }
-
-        log.debug("Получаем ID всех найденных вещей");
-        List<Long> itemIds = items.stream().map(Item::getId).collect(Collectors.toList());
-        log.debug("Получено {} ID вещей", itemIds.size());
-
-        LocalDateTime now = LocalDateTime.now();
-        log.debug("Текущее время для фильтрации бронирований: {}", now);
-
-        log.debug("Загружаем комментарии для всех вещей");
-        List<Comment> allComments = commentRepository.findAllByItemIdIn(itemIds);
-        log.debug("Загружено {} комментариев для {} вещей", allComments.size(), itemIds.size());
-
-        Map<Long, List<CommentDto>> commentsByItem = allComments.stream()
-                .collect(Collectors.groupingBy(
-                        comment -> comment.getItem().getId(),
-                        Collectors.mapping(CommentMapper::toCommentDto, Collectors.toList())
-                ));
-        log.debug("Комментарии сгруппированы по ID вещей");
-
-        log.debug("Загружаем последние бронирования (завершенные до текущего момента)");
-        List<Booking> allLastBookings = bookingStorage.findByItemIdInAndEndBeforeAndStatusOrderByEndDesc(
-                itemIds, now, Status.APPROVED);
-        log.debug("Найдено {} последних бронирований", allLastBookings.size());
-
-        log.debug("Загружаем следующие бронирования (начинающиеся после текущего момента)");
-        List<Booking> allNextBookings = bookingStorage.findByItemIdInAndStartAfterAndStatusOrderByStartAsc(
-                itemIds, now, Status.APPROVED);
-        log.debug("Найдено {} следующих бронирований", allNextBookings.size());
-
-        log.debug("Создаем маппинги бронирований по ID вещей");
-        Map<Long, Booking> lastBookingsMap = createLastBookingsMap(allLastBookings);
-        Map<Long, Booking> nextBookingsMap = createNextBookingsMap(allNextBookings);
-        log.debug("Маппинги созданы: {} последних и {} следующих бронирований",
-                lastBookingsMap.size(), nextBookingsMap.size());
-
-        log.debug("Начинаем преобразование вещей в DTO с комментариями и бронированиями");
-        Collection<ItemWithComment> result = items.stream()
-                .map(item -> {
-                    log.trace("Обрабатываем вещь ID: {}, название: {}", item.getId(), item.getName());
-
-                    List<CommentDto> comments = commentsByItem.getOrDefault(item.getId(), Collections.emptyList());
-                    log.trace("Для вещи ID: {} найдено {} комментариев", item.getId(), comments.size());
-
-                    BookingOut lastBooking = lastBookingsMap.containsKey(item.getId()) ?
-                            BookingMapper.toBookingOut(lastBookingsMap.get(item.getId())) : null;
-                    BookingOut nextBooking = nextBookingsMap.containsKey(item.getId()) ?
-                            BookingMapper.toBookingOut(nextBookingsMap.get(item.getId())) : null;
-
-                    log.trace("Для вещи ID: {} - последнее бронирование: {}, следующее бронирование: {}",
-                            item.getId(), lastBooking != null ? "есть" : "нет", nextBooking != null ? "есть" : "нет");
-
-                    return ItemMapper.toItemWithComment(item, lastBooking, nextBooking, comments);
-                })
-                .collect(Collectors.toList());
+        List<ItemWithComment> result = itemDashboardService.getOwnerDashboard(userId);
+        bookingExpander.expand(result.stream()
+                .flatMap(item -> Stream.of(item.getLastBooking(), item.getNextBooking()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()), expand);
 
         log.info("Успешно получено {} вещей с комментариями для пользователя ID: {}",
                 result.size(), userId);
@@ -222,29 +227,157 @@ public class ItemServiceImpl implements ItemService {
     }
 
     @Override
-    public Collection<ItemDto> search(String text) {
-        log.info("Поиск вещей по тексту: '{}'", text);
-        if (text == null || text.trim().isEmpty()) {
+    public Map<Long, ItemWithComment> getItems(Long userId, Collection<Long> itemIds, Set<BookingExpand> expand) {
+        Set<Long> ids = checkBatchSize(itemIds);
+        log.info("Пакетное получение {} вещей пользователем с ID: {}", ids.size(), userId);
+        getUserOrThrow(userId);
+
+        Map<Long, ItemWithComment> result = itemDashboardService.getItems(ids, userId);
+        bookingExpander.expand(result.values().stream()
+                .flatMap(item -> Stream.of(item.getLastBooking(), item.getNextBooking()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()), expand);
+        log.debug("Найдено {} вещей из {} запрошенных", result.size(), ids.size());
+        return result;
+    }
+
+    /**
+     * Без категории и точки — поиск подстроки в БД. С ними кандидаты берутся из гео-индекса,
+     * а текст (если задан) проверяется уже по загруженным вещам. Окно from/to оставляет только вещи,
+     * свободные на нём по таймлайну бронирований. Одинаковые одновременные запросы выполняются один раз;
+     * запись вещи сбрасывает все идущие поиски, а запись бронирования — нет: поиск с окном, начатый до её
+     * коммита, может раздать ожидающим результат по прежнему таймлайну.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @Override
+    public Collection<ItemDto> search(String text, ItemSearchFilter filter) {
+        log.info("Поиск вещей по тексту: '{}', фильтры: {}", text, filter);
+        boolean nearby = filter.getLat() != null || filter.getLon() != null || filter.getRadiusKm() != null;
+        if (nearby) {
+            validateSearchArea(filter.getLat(), filter.getLon(), filter.getRadiusKm());
+        }
+        boolean window = filter.getFrom() != null || filter.getTo() != null;
+        if (window && (filter.getFrom() == null || filter.getTo() == null
+                || !filter.getFrom().isBefore(filter.getTo()))) {
+            throw new IllegalArgumentException("from и to задаются вместе, from раньше to");
+        }
+        String needle = text == null ? "" : text.trim().toLowerCase();
+        boolean indexed = nearby || ItemGeoIndex.normalizeCategory(filter.getCategory()) != null;
+        if (!indexed && needle.isEmpty()) {
             log.debug("Пустой поисковый запрос, возвращен пустой список");
             return Collections.emptyList();
         }
-        String searchText = text.toLowerCase();
-        Collection<Item> items = itemStorage.search(searchText);
-        log.debug("Найдено {} вещей по запросу: '{}'", items.size(), text);
-        return items.stream()
-                .map(ItemMapper::toItemDto)
-                .collect(Collectors.toList());
+        List<ItemDto> result = singleFlight.read(SEARCH, List.of(needle, filter),
+                () -> search(needle, filter, indexed));
+        log.debug("Найдено {} вещей по запросу: '{}'", result.size(), text);
+        return result;
+    }
+
+    private List<ItemDto> search(String needle, ItemSearchFilter filter, boolean indexed) {
+        Stream<Item> found;
+        if (!indexed) {
+            found = itemStorage.search(needle).stream();
+        } else {
+            List<Long> ids = itemGeoIndex.find(filter.getCategory(), filter.getLat(), filter.getLon(),
+                    filter.getRadiusKm());
+            log.debug("Кандидатов из гео-индекса: {}", ids.size());
+            Map<Long, Item> items = itemStorage.findAllWithOwnerByIdIn(ids).stream()
+                    .collect(Collectors.toMap(Item::getId, item -> item));
+            found = ids.stream()
+                    .map(items::get)
+                    .filter(item -> item != null && item.getAvailable())
+                    .filter(item -> needle.isEmpty() || contains(item.getName(), needle)
+                            || contains(item.getDescription(), needle));
+        }
+        if (filter.getFrom() != null) {
+            long from = BookingTimeline.toMicros(filter.getFrom());
+            long to = BookingTimeline.toMicros(filter.getTo());
+            found = found.filter(item -> bookingTimelineStore.get(item.getId()).isFree(from, to));
+        }
+        return found.map(ItemMapper::toItemDto).toList();
+    }
+
+    @Override
+    public List<ItemSuggestion> suggest(String text, int limit) {
+        if (limit < 1 || limit > ItemSuggestionIndex.MAX_LIMIT) {
+            throw new IllegalArgumentException("limit должен быть от 1 до " + ItemSuggestionIndex.MAX_LIMIT);
+        }
+        List<ItemSuggestion> suggestions = itemSuggestionIndex.suggest(text, limit);
+        log.debug("Подсказки для '{}': {}", text, suggestions.size());
+        return suggestions;
+    }
+
+    @Override
+    public OwnerStats getStats(Long ownerId, YearMonth from, YearMonth to) {
+        getUserOrThrow(ownerId);
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from не может быть позже to");
+        }
+        OwnerStats stats = itemStatsStore.ownerStats(ownerId, from, to);
+        log.debug("Статистика владельца ID={}: вещей {}, месяцев {}", ownerId, stats.getItems().size(),
+                stats.getMonths().size());
+        return stats;
     }
 
+    @Transactional
     @Override
     public CommentDto createComment(Long userId, Long itemId, CommentDto commentDto) {
         User user = getUserOrThrow(userId);
         Item item = getItemOrThrow(itemId);
-        if (!bookingStorage.existsApprovedBooking(itemId, userId, Status.APPROVED)) {
+        if (!bookingArchiveStorage.existsApprovedBooking(itemId, userId)
+                && !bookingStorage.existsApprovedBooking(itemId, userId, Status.APPROVED)) {
             throw new IllegalArgumentException("Пользователь не брал эту вещь в аренду");
         }
         Comment comment = CommentMapper.toComment(commentDto, user, item);
-        return CommentMapper.toCommentDto(commentRepository.save(comment));
+        CommentDto savedComment = CommentMapper.toCommentDto(commentRepository.save(comment));
+        itemDashboardService.refresh(itemId);
+        singleFlight.forget(GET_ITEM, itemId);
+        return savedComment;
+    }
+
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase().contains(needle);
+    }
+
+    private static void validateSearchArea(Double latitude, Double longitude, Double radiusKm) {
+        if (latitude == null || longitude == null || radiusKm == null) {
+            throw new IllegalArgumentException("lat, lon и radiusKm задаются вместе");
+        }
+        checkCoordinates(latitude, longitude);
+        if (!(radiusKm > 0 && radiusKm <= ItemGeoIndex.MAX_RADIUS_KM)) {
+            throw new IllegalArgumentException("radiusKm должен быть больше 0 и не больше "
+                    + ItemGeoIndex.MAX_RADIUS_KM);
+        }
+    }
+
+    private static void validatePlace(Item item) {
+        if (item.getCategory() != null) {
+            String category = item.getCategory().strip();
+            if (category.length() > 64) {
+                throw new IllegalArgumentException("Категория не длиннее 64 символов");
+            }
+            item.setCategory(category.isEmpty() ? null : category);
+        }
+        if ((item.getLatitude() == null) != (item.getLongitude() == null)) {
+            throw new IllegalArgumentException("Широта и долгота задаются вместе");
+        }
+        if (item.getLatitude() != null) {
+            checkCoordinates(item.getLatitude(), item.getLongitude());
+        }
+    }
+
+    private static void checkCoordinates(double latitude, double longitude) {
+        if (!(latitude >= -90 && latitude <= 90 && longitude >= -180 && longitude <= 180)) {
+            throw new IllegalArgumentException("Широта должна быть от -90 до 90, долгота от -180 до 180");
+        }
+    }
+
+    private Set<Long> checkBatchSize(Collection<Long> ids) {
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        if (unique.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Можно запросить не более " + MAX_BATCH_SIZE + " вещей за раз");
+        }
+        return unique;
     }
 
     private Item getItemOrThrow(Long id) {
@@ -271,34 +404,4 @@ public class ItemServiceImpl implements ItemService {
                     return new NotFoundException("Пользователь с id " + id + " не найдена");
                 });
     }
-
-    private Map<Long, Booking> createLastBookingsMap(List<Booking> allLastBookings) {
-        Map<Long, Booking> result = new HashMap<>();
-
-        for (Booking booking : allLastBookings) {
-            Long itemId = booking.getItem().getId();
-            // Если еще нет брони для этого предмета или текущее бронирование позже
-            if (!result.containsKey(itemId) ||
-                    booking.getEnd().isAfter(result.get(itemId).getEnd())) {
-                result.put(itemId, booking);
-            }
-        }
-
-        return result;
-    }
-
-    private Map<Long, Booking> createNextBookingsMap(List<Booking> allNextBookings) {
-        Map<Long, Booking> result = new HashMap<>();
-
-        for (Booking booking : allNextBookings) {
-            Long itemId = booking.getItem().getId();
-            // Если еще нет брони для этого предмета или текущее бронирование раньше
-            if (!result.containsKey(itemId) ||
-                    booking.getStart().isBefore(result.get(itemId).getStart())) {
-                result.put(itemId, booking);
-            }
-        }
-
-        return result;
-    }
 }
\ No newline at end of file
@@ -1,12 +1,46 @@
 package ru.practicum.shareit.item.storage;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.CommentDto;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findAllByItemIdOrderByCreatedDesc(Long itemId);
+    /**
+     * Все комментарии вещи от новых к старым; автор берётся join-ом, а не догрузкой на каждого автора.
+     */
+    @Query("SELECT new ru.practicum.shareit.item.model.CommentDto(c.id, c.text, c.item.id, a.id, a.name, " +
+            "c.created) " +
+            "FROM Comment c JOIN c.author a " +
+            "WHERE c.item.id = :itemId " +
+            "ORDER BY c.created DESC, c.id DESC")
+    List<CommentDto> findDtosByItemId(@Param("itemId") Long itemId);
+
+    /**
+     * Последние limit комментариев каждой вещи из itemIds, от новых к старым, вместе с именами авторов.
+     */
+    @Query("SELECT new ru.practicum.shareit.item.model.CommentDto(c.id, c.text, c.item.id, a.id, a.name, " +
+            "c.created) " +
+            "FROM Comment c JOIN c.author a " +
+            "WHERE c.item.id IN :itemIds " +
+            "AND (SELECT COUNT(n) FROM Comment n WHERE n.item.id = c.item.id " +
+            "AND (n.created > c.created OR (n.created = c.created AND n.id > c.id))) < :limit " +
+            "ORDER BY c.created DESC, c.id DESC")
+    List<CommentDto> findLatestByItemIds(@Param("itemIds") Collection<Long> itemIds, @Param("limit") long limit);
+
+    @Query("SELECT c.item.id AS itemId, COUNT(c) AS comments FROM Comment c " +
+            "WHERE c.item.id IN :itemIds GROUP BY c.item.id")
+    List<ItemCommentCount> countByItemIds(@Param("itemIds") Collection<Long> itemIds);
+
+    interface ItemCommentCount {
+        Long getItemId();
+
+        Long getComments();
+    }
 
     List<Comment> findAllByItemIdIn(List<Long> itemIds);
 }
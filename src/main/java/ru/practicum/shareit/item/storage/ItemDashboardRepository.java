@@ -0,0 +1,25 @@
+package ru.practicum.shareit.item.storage;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.item.model.ItemDashboard;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ItemDashboardRepository extends JpaRepository<ItemDashboard, Long> {
+    List<ItemDashboard> findByOwnerIdOrderByItemIdDesc(Long ownerId);
+
+    @Query("SELECT d.itemId FROM ItemDashboard d WHERE d.refreshAfter <= ?1 ORDER BY d.refreshAfter")
+    List<Long> findItemIdsToRefresh(LocalDateTime now, Limit limit);
+
+    /**
+     * Отдаёт на пересборку строки вещей, к которым пользователь оставлял комментарии.
+     */
+    @Modifying
+    @Query("UPDATE ItemDashboard d SET d.refreshAfter = ?2 " +
+            "WHERE d.itemId IN (SELECT c.item.id FROM Comment c WHERE c.author.id = ?1)")
+    int expireForAuthor(Long authorId, LocalDateTime now);
+}
@@ -0,0 +1,263 @@
+package ru.practicum.shareit.item.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.config.AfterCommit;
+import ru.practicum.shareit.config.StoreLoad;
+import ru.practicum.shareit.config.StoreProperties;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Категории и координаты доступных вещей для поиска без полного просмотра каталога.
+ * <p>
+ * Координаты разложены по ячейкам geohash длины 5 (сетка 4096 x 8192, ячейка около 4,9 x 4,9 км на экваторе),
+ * категории — по спискам id. Поиск в радиусе перебирает только ячейки, покрывающие круг, либо список категории,
+ * если он короче, и затем проверяет точное расстояние. Изменения применяются после коммита, если их версия новее
+ * последней применённой для этой вещи (см. {@link ItemSuggestionIndex}). Строится при старте или в фоне
+ * (shareit.stores.warmup, см. StoreLoad).
+ */
+@Slf4j
+@Lazy(false)
+@Component
+public class ItemGeoIndex implements SmartInitializingSingleton {
+    public static final double MAX_RADIUS_KM = 100;
+
+    static final int LAT_BITS = 12;
+    static final int LON_BITS = 13;
+
+    private static final int ROWS = 1 << LAT_BITS;
+    private static final int COLUMNS = 1 << LON_BITS;
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final ItemStorage itemStorage;
+    private final TransactionTemplate readOnlyTransaction;
+    private final StoreLoad load;
+
+    private final Map<Long, Place> places = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> categories = new ConcurrentHashMap<>();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    private record Place(String category, Double latitude, Double longitude) {
+        boolean located() {
+            return latitude != null && longitude != null;
+        }
+    }
+
+    private record Found(long id, double distance) {
+    }
+
+    public ItemGeoIndex(ItemStorage itemStorage, PlatformTransactionManager transactionManager,
+                        StoreProperties storeProperties) {
+        this.itemStorage = itemStorage;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.load = new StoreLoad("item-geo", storeProperties);
+    }
+
+    /**
+     * Доступные вещи категории (если задана) в радиусе от точки (если задана).
+     * С точкой — по возрастанию расстояния, без неё — по id.
+     */
+    public List<Long> find(String category, Double latitude, Double longitude, Double radiusKm) {
+        load.await();
+        String key = normalizeCategory(category);
+        Set<Long> inCategory = key == null ? null : categories.getOrDefault(key, Collections.emptySet());
+        if (latitude == null) {
+            return inCategory == null ? Collections.emptyList() : inCategory.stream().sorted().toList();
+        }
+
+        double latDelta = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+        double minLat = Math.max(-90, latitude - latDelta);
+        double maxLat = Math.min(90, latitude + latDelta);
+        double cos = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+        double lonDelta = cos > 0 ? latDelta / cos : 360;
+        int firstRow = row(minLat);
+        int rows = row(maxLat) - firstRow + 1;
+        int firstColumn = column(longitude - lonDelta);
+        int columns = lonDelta >= 180 ? COLUMNS : Math.min(COLUMNS,
+                unwrappedColumn(longitude + lonDelta) - unwrappedColumn(longitude - lonDelta) + 1);
+        long cellCount = (long) rows * columns;
+
+        Collection<Long> candidates;
+        if (inCategory != null && inCategory.size() <= cellCount) {
+            candidates = inCategory;
+        } else if (cellCount >= places.size()) {
+            candidates = places.keySet();
+        } else {
+            candidates = new ArrayList<>();
+            for (int row = firstRow; row < firstRow + rows; row++) {
+                for (int i = 0; i < columns; i++) {
+                    Set<Long> cell = cells.get(geohash(row, (firstColumn + i) % COLUMNS));
+                    if (cell != null) {
+                        candidates.addAll(cell);
+                    }
+                }
+            }
+        }
+
+        List<Found> found = new ArrayList<>();
+        for (Long id : candidates) {
+            Place place = places.get(id);
+            if (place == null || !place.located() || key != null && !key.equals(place.category())) {
+                continue;
+            }
+            double distance = distanceKm(latitude, longitude, place.latitude(), place.longitude());
+            if (distance <= radiusKm) {
+                found.add(new Found(id, distance));
+            }
+        }
+        found.sort(Comparator.comparingDouble(Found::distance).thenComparingLong(Found::id));
+        return found.stream().map(Found::id).toList();
+    }
+
+    public void onItemSaved(Item item) {
+        load.await();
+        long id = item.getId();
+        Place place = place(item.getAvailable(), item.getCategory(), item.getLatitude(), item.getLongitude());
+        long version = item.getVersion();
+        AfterCommit.run(() -> put(id, place, version));
+    }
+
+    /**
+     * version — версия удаления, больше последней версии вещи.
+     */
+    public void onItemRemoved(Long itemId, long version) {
+        load.await();
+        AfterCommit.run(() -> put(itemId, null, version));
+    }
+
+    /**
+     * Версия последнего применённого изменения вещи, -1 — вещь индексу неизвестна.
+     */
+    public long version(long id) {
+        load.await();
+        return versions.getOrDefault(id, -1L);
+    }
+
+    public Set<Long> indexedIds() {
+        load.await();
+        return Collections.unmodifiableSet(places.keySet());
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load.start(() -> {
+            long started = System.nanoTime();
+            readOnlyTransaction.executeWithoutResult(status -> itemStorage.findPlaces().forEach(place ->
+                    put(place.getId(), place(place.getAvailable(), place.getCategory(), place.getLatitude(),
+                            place.getLongitude()), place.getVersion())));
+            log.info("Гео-индекс вещей построен: вещей {}, ячеек {}, категорий {}, {} мс",
+                    places.size(), cells.size(), categories.size(), (System.nanoTime() - started) / 1_000_000);
+        });
+    }
+
+    public static String normalizeCategory(String category) {
+        if (category == null || category.isBlank()) {
+            return null;
+        }
+        return category.strip().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Расстояние по большому кругу (формула гаверсинусов).
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    /**
+     * 25 бит geohash длины 5: биты долготы и широты через один, начиная с долготы.
+     */
+    static long geohash(double latitude, double longitude) {
+        return geohash(row(latitude), column(longitude));
+    }
+
+    private static Place place(Boolean available, String category, Double latitude, Double longitude) {
+        return Boolean.TRUE.equals(available) ? new Place(normalizeCategory(category), latitude, longitude) : null;
+    }
+
+    /**
+     * Заменяет вещь в индексе, если version новее применённой; place == null убирает её (удалена или недоступна).
+     */
+    private synchronized void put(long id, Place place, long version) {
+        if (version <= versions.getOrDefault(id, -1L)) {
+            return;
+        }
+        versions.put(id, version);
+        boolean indexed = place != null && (place.located() || place.category() != null);
+        Place old = indexed ? places.put(id, place) : places.remove(id);
+        if (old != null) {
+            if (old.located()) {
+                remove(cells, cell(old), id);
+            }
+            if (old.category() != null) {
+                remove(categories, old.category(), id);
+            }
+        }
+        if (!indexed) {
+            return;
+        }
+        if (place.located()) {
+            cells.computeIfAbsent(cell(place), key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        if (place.category() != null) {
+            categories.computeIfAbsent(place.category(), key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private static <K> void remove(Map<K, Set<Long>> postings, K key, long id) {
+        postings.computeIfPresent(key, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static long cell(Place place) {
+        return geohash(place.latitude(), place.longitude());
+    }
+
+    private static long geohash(int row, int column) {
+        long hash = 0;
+        for (int bit = LON_BITS - 1; bit >= 0; bit--) {
+            hash = hash << 1 | (column >> bit & 1);
+            if (bit > 0) {
+                hash = hash << 1 | (row >> (bit - 1) & 1);
+            }
+        }
+        return hash;
+    }
+
+    private static int row(double latitude) {
+        return Math.min(ROWS - 1, (int) Math.floor((latitude + 90) / 180 * ROWS));
+    }
+
+    private static int column(double longitude) {
+        return Math.floorMod(unwrappedColumn(longitude), COLUMNS);
+    }
+
+    /**
+     * Номер колонки без свёртки через 180-й меридиан, чтобы считать ширину диапазона.
+     */
+    private static int unwrappedColumn(double longitude) {
+        return (int) Math.floor((longitude + 180) / 360 * COLUMNS);
+    }
+}
@@ -0,0 +1,353 @@
+package ru.practicum.shareit.item.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.storage.BookingArchiveStorage;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.config.AfterCommit;
+import ru.practicum.shareit.config.StoreLoad;
+import ru.practicum.shareit.config.StoreProperties;
+import ru.practicum.shareit.item.model.BookingStats;
+import ru.practicum.shareit.item.model.ItemStats;
+import ru.practicum.shareit.item.model.OwnerStats;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Счётчики бронирований по вещам и владельцам с разбивкой по месяцам начала бронирования.
+ * <p>
+ * При старте (или в фоне, shareit.stores.warmup) архивная часть берётся готовой из помесячных счётчиков
+ * booking_month_summaries, которые ведёт BookingArchiver, а пересчитываются только бронирования в bookings —
+ * те, что моложе горизонта архива: диапазон их id делится пополам, пока не станет не больше chunkSize, порции
+ * читаются параллельно в ForkJoinPool, каждая в своей транзакции, и частичные счётчики сливаются. Дальше
+ * создание и рассмотрение бронирований прибавляют к счётчикам после коммита, так что ответ не зависит от числа
+ * бронирований. Изменения и чтения упорядочены монитором хранилища.
+ * Бронирования, изменённые другими узлами, приходят через шину инвалидаций, и счётчики вещи пересчитываются из БД
+ * (ItemCacheCoherence).
+ */
+@Slf4j
+@Lazy(false)
+@Component
+public class ItemStatsStore implements SmartInitializingSingleton {
+    private static final int BOOKINGS = 0;
+    private static final int APPROVED = 1;
+    private static final int REJECTED = 2;
+    private static final int BOOKED_DAYS = 3;
+    private static final int FIELDS = 4;
+    private static final int PARALLELISM = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final BookingStorage bookingStorage;
+    private final BookingArchiveStorage bookingArchiveStorage;
+    private final TransactionTemplate readOnlyTransaction;
+    private final StoreLoad load;
+
+    /**
+     * Наибольший диапазон id, который пересчёт читает одной порцией.
+     */
+    int chunkSize = 10_000;
+    private Aggregates aggregates = new Aggregates();
+
+    public ItemStatsStore(BookingStorage bookingStorage, BookingArchiveStorage bookingArchiveStorage,
+                          PlatformTransactionManager transactionManager, StoreProperties storeProperties) {
+        this.bookingStorage = bookingStorage;
+        this.bookingArchiveStorage = bookingArchiveStorage;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.load = new StoreLoad("item-stats", storeProperties);
+    }
+
+    public void onBookingCreated(Booking booking) {
+        load.await();
+        long itemId = booking.getItem().getId();
+        long ownerId = booking.getItem().getOwner().getId();
+        YearMonth month = YearMonth.from(booking.getStart());
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                aggregates.add(itemId, ownerId, month, BOOKINGS, 1);
+            }
+        });
+    }
+
+    /**
+     * Учитывает решение владельца по бронированию: APPROVED или REJECTED.
+     */
+    public void onBookingDecided(Booking booking) {
+        load.await();
+        long itemId = booking.getItem().getId();
+        long ownerId = booking.getItem().getOwner().getId();
+        YearMonth month = YearMonth.from(booking.getStart());
+        Status status = booking.getStatus();
+        long days = bookedDays(booking.getStart(), booking.getEnd());
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                aggregates.decide(itemId, ownerId, month, status, days);
+            }
+        });
+    }
+
+    /**
+     * Статистика владельца за месяцы [from, to]; from и to могут быть null.
+     */
+    public OwnerStats ownerStats(Long ownerId, YearMonth from, YearMonth to) {
+        load.await();
+        synchronized (this) {
+            return collect(ownerId, from, to);
+        }
+    }
+
+    /**
+     * Пересчитывает бронирования вещи из БД; возвращённое действие заменяет ими её счётчики.
+     */
+    public Runnable read(long itemId) {
+        load.await();
+        Aggregates item = readOnlyTransaction.execute(status -> {
+            Aggregates rows = new Aggregates();
+            bookingArchiveStorage.findItemMonthSummaries(itemId).forEach(rows::addSummary);
+            bookingStorage.findItemStatsRows(itemId).forEach(rows::count);
+            return rows;
+        });
+        return () -> {
+            synchronized (this) {
+                aggregates.replaceItem(itemId, item);
+            }
+        };
+    }
+
+    /**
+     * Пересчитывает все бронирования; возвращённое действие заменяет ими все счётчики.
+     */
+    public Runnable readAll() {
+        load.await();
+        Aggregates rebuilt = backfill();
+        return () -> {
+            synchronized (this) {
+                aggregates = rebuilt;
+            }
+        };
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load.start(() -> {
+            long started = System.nanoTime();
+            Aggregates rebuilt = backfill();
+            synchronized (this) {
+                aggregates = rebuilt;
+                log.info("Статистика вещей посчитана: вещей {}, владельцев {}, {} мс", aggregates.byItem.size(),
+                        aggregates.byOwner.size(), (System.nanoTime() - started) / 1_000_000);
+            }
+        });
+    }
+
+    private OwnerStats collect(Long ownerId, YearMonth from, YearMonth to) {
+        SortedMap<YearMonth, BookingStats> months = toStats(range(aggregates.byOwner.get(ownerId), from, to));
+        List<ItemStats> items = new ArrayList<>();
+        for (Long itemId : aggregates.ownerItems.getOrDefault(ownerId, Collections.emptySet())) {
+            SortedMap<YearMonth, BookingStats> itemMonths = toStats(range(aggregates.byItem.get(itemId), from, to));
+            items.add(new ItemStats(itemId, total(itemMonths), itemMonths));
+        }
+        return new OwnerStats(ownerId, total(months), months, items);
+    }
+
+    private Aggregates backfill() {
+        Aggregates archived = readOnlyTransaction.execute(status -> {
+            Aggregates summaries = new Aggregates();
+            bookingArchiveStorage.findMonthSummaries().forEach(summaries::addSummary);
+            return summaries;
+        });
+        Long minId = bookingStorage.findMinId();
+        if (minId == null) {
+            return archived;
+        }
+        long maxId = bookingStorage.findMaxId();
+        try (ForkJoinPool pool = new ForkJoinPool(PARALLELISM)) {
+            return pool.invoke(new Backfill(minId, maxId + 1)).merge(archived);
+        }
+    }
+
+    private Aggregates readChunk(long fromId, long toId) {
+        return readOnlyTransaction.execute(status -> {
+            Aggregates chunk = new Aggregates();
+            bookingStorage.findStatsRows(fromId, toId).forEach(chunk::count);
+            return chunk;
+        });
+    }
+
+    /**
+     * Сколько календарных дней касается бронирование [start, end).
+     */
+    public static long bookedDays(LocalDateTime start, LocalDateTime end) {
+        return ChronoUnit.DAYS.between(start.toLocalDate(), end.minusNanos(1).toLocalDate()) + 1;
+    }
+
+    private static NavigableMap<YearMonth, long[]> range(NavigableMap<YearMonth, long[]> months,
+                                                         YearMonth from, YearMonth to) {
+        if (months == null) {
+            return Collections.emptyNavigableMap();
+        }
+        if (from != null) {
+            months = months.tailMap(from, true);
+        }
+        return to != null ? months.headMap(to, true) : months;
+    }
+
+    private static SortedMap<YearMonth, BookingStats> toStats(NavigableMap<YearMonth, long[]> months) {
+        SortedMap<YearMonth, BookingStats> result = new TreeMap<>();
+        months.forEach((month, counters) -> result.put(month, new BookingStats(counters[BOOKINGS],
+                counters[APPROVED], counters[REJECTED], counters[BOOKED_DAYS])));
+        return result;
+    }
+
+    private static BookingStats total(SortedMap<YearMonth, BookingStats> months) {
+        BookingStats total = new BookingStats();
+        for (BookingStats month : months.values()) {
+            total.setBookings(total.getBookings() + month.getBookings());
+            total.setApproved(total.getApproved() + month.getApproved());
+            total.setRejected(total.getRejected() + month.getRejected());
+            total.setBookedDays(total.getBookedDays() + month.getBookedDays());
+        }
+        return total;
+    }
+
+    /**
+     * Счётчики по вещам и владельцам; без собственной синхронизации.
+     */
+    private static final class Aggregates {
+        private final Map<Long, NavigableMap<YearMonth, long[]>> byItem = new HashMap<>();
+        private final Map<Long, NavigableMap<YearMonth, long[]>> byOwner = new HashMap<>();
+        private final Map<Long, Set<Long>> ownerItems = new HashMap<>();
+        private final Map<Long, Long> owners = new HashMap<>();
+
+        void count(BookingStorage.StatsRow row) {
+            YearMonth month = YearMonth.from(row.getStartTime());
+            add(row.getItemId(), row.getOwnerId(), month, BOOKINGS, 1);
+            decide(row.getItemId(), row.getOwnerId(), month, row.getStatus(),
+                    bookedDays(row.getStartTime(), row.getEndTime()));
+        }
+
+        void addSummary(BookingArchiveStorage.MonthSummary summary) {
+            long itemId = summary.getItemId();
+            long ownerId = summary.getOwnerId();
+            YearMonth month = YearMonth.parse(summary.getStartMonth());
+            add(itemId, ownerId, month, BOOKINGS, summary.getBookings());
+            add(itemId, ownerId, month, APPROVED, summary.getApproved());
+            add(itemId, ownerId, month, REJECTED, summary.getRejected());
+            add(itemId, ownerId, month, BOOKED_DAYS, summary.getBookedDays());
+        }
+
+        void decide(long itemId, long ownerId, YearMonth month, Status status, long days) {
+            if (status == Status.APPROVED) {
+                add(itemId, ownerId, month, APPROVED, 1);
+                add(itemId, ownerId, month, BOOKED_DAYS, days);
+            } else if (status == Status.REJECTED) {
+                add(itemId, ownerId, month, REJECTED, 1);
+            }
+        }
+
+        void add(long itemId, long ownerId, YearMonth month, int field, long delta) {
+            byItem.computeIfAbsent(itemId, key -> new TreeMap<>())
+                    .computeIfAbsent(month, key -> new long[FIELDS])[field] += delta;
+            byOwner.computeIfAbsent(ownerId, key -> new TreeMap<>())
+                    .computeIfAbsent(month, key -> new long[FIELDS])[field] += delta;
+            ownerItems.computeIfAbsent(ownerId, key -> new TreeSet<>()).add(itemId);
+            owners.put(itemId, ownerId);
+        }
+
+        /**
+         * Заменяет счётчики вещи на item, где есть только она, и поправляет на разницу счётчики владельца.
+         */
+        void replaceItem(long itemId, Aggregates item) {
+            Long ownerId = owners.remove(itemId);
+            NavigableMap<YearMonth, long[]> old = byItem.remove(itemId);
+            if (ownerId != null) {
+                NavigableMap<YearMonth, long[]> ownerMonths = byOwner.get(ownerId);
+                if (old != null && ownerMonths != null) {
+                    old.forEach((month, counters) -> {
+                        long[] sum = ownerMonths.get(month);
+                        boolean empty = true;
+                        for (int i = 0; i < FIELDS; i++) {
+                            sum[i] -= counters[i];
+                            empty &= sum[i] == 0;
+                        }
+                        if (empty) {
+                            ownerMonths.remove(month);
+                        }
+                    });
+                    if (ownerMonths.isEmpty()) {
+                        byOwner.remove(ownerId);
+                    }
+                }
+                Set<Long> items = ownerItems.get(ownerId);
+                items.remove(itemId);
+                if (items.isEmpty()) {
+                    ownerItems.remove(ownerId);
+                }
+            }
+            merge(item);
+        }
+
+        Aggregates merge(Aggregates other) {
+            mergeMonths(byItem, other.byItem);
+            mergeMonths(byOwner, other.byOwner);
+            other.ownerItems.forEach((ownerId, items) ->
+                    ownerItems.computeIfAbsent(ownerId, key -> new TreeSet<>()).addAll(items));
+            owners.putAll(other.owners);
+            return this;
+        }
+
+        private static void mergeMonths(Map<Long, NavigableMap<YearMonth, long[]>> target,
+                                        Map<Long, NavigableMap<YearMonth, long[]>> source) {
+            source.forEach((id, months) -> {
+                NavigableMap<YearMonth, long[]> own = target.computeIfAbsent(id, key -> new TreeMap<>());
+                months.forEach((month, counters) -> {
+                    long[] sum = own.computeIfAbsent(month, key -> new long[FIELDS]);
+                    for (int i = 0; i < FIELDS; i++) {
+                        sum[i] += counters[i];
+                    }
+                });
+            });
+        }
+    }
+
+    private final class Backfill extends RecursiveTask<Aggregates> {
+        private final long fromId;
+        private final long toId;
+
+        private Backfill(long fromId, long toId) {
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected Aggregates compute() {
+            if (toId - fromId <= chunkSize) {
+                return readChunk(fromId, toId);
+            }
+            long middle = (fromId + toId) >>> 1;
+            Backfill left = new Backfill(fromId, middle);
+            left.fork();
+            Aggregates right = new Backfill(middle, toId).compute();
+            return left.join().merge(right);
+        }
+    }
+}
@@ -3,20 +3,91 @@ package ru.practicum.shareit.item.storage;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.item.model.Item;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ItemStorage extends JpaRepository<Item, Long> {
 
 
-    @Query("SELECT i FROM Item i " +
+    @Query("SELECT i FROM Item i JOIN FETCH i.owner " +
             "WHERE i.available = TRUE AND " +
             "(LOWER(i.name) LIKE LOWER(CONCAT('%', ?1, '%')) " +
             "OR LOWER(i.description) LIKE LOWER(CONCAT('%', ?1, '%')))")
     List<Item> search(String text);
 
+    /**
+     * Вещи по id вместе с владельцами одним запросом: без JOIN FETCH жадный owner догружается
+     * отдельным запросом на каждого владельца.
+     */
+    @Query("SELECT i FROM Item i JOIN FETCH i.owner WHERE i.id IN :ids")
+    List<Item> findAllWithOwnerByIdIn(@Param("ids") Collection<Long> ids);
+
     List<Item> findByOwnerId(Long userId);
 
     List<Item> findByOwnerIdOrderByIdDesc(Long ownerId);
+
+    /**
+     * Поля вещей для строк витрины; строки items блокируются до конца транзакции, в порядке id.
+     */
+    @Query(value = "SELECT id, owner_id AS ownerId, name, description, available FROM items " +
+            "WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<DashboardItem> lockForDashboard(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Все вещи, включая недоступные: индексы запоминают версию каждой.
+     */
+    @Query("SELECT i.id AS id, i.name AS name, i.available AS available, i.version AS version FROM Item i")
+    List<ItemName> findNames();
+
+    @Query("SELECT i.id AS id, i.available AS available, i.category AS category, i.latitude AS latitude, " +
+            "i.longitude AS longitude, i.version AS version FROM Item i")
+    List<ItemPlace> findPlaces();
+
+    @Query("SELECT i.id AS id, i.version AS version FROM Item i")
+    List<ItemVersion> findVersions();
+
+    interface ItemName {
+        Long getId();
+
+        String getName();
+
+        Boolean getAvailable();
+
+        Long getVersion();
+    }
+
+    interface ItemPlace {
+        Long getId();
+
+        Boolean getAvailable();
+
+        String getCategory();
+
+        Double getLatitude();
+
+        Double getLongitude();
+
+        Long getVersion();
+    }
+
+    interface DashboardItem {
+        Long getId();
+
+        Long getOwnerId();
+
+        String getName();
+
+        String getDescription();
+
+        Boolean getAvailable();
+    }
+
+    interface ItemVersion {
+        Long getId();
+
+        Long getVersion();
+    }
 }
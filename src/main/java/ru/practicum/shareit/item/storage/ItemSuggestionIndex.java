@@ -0,0 +1,322 @@
+package ru.practicum.shareit.item.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.storage.BookingStorage;
+import ru.practicum.shareit.config.AfterCommit;
+import ru.practicum.shareit.config.StoreLoad;
+import ru.practicum.shareit.config.StoreProperties;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Подсказки по названиям доступных вещей без обращения к БД.
+ * <p>
+ * Каждое название разбивается на слова, и в упорядоченный индекс попадает каждый его хвост
+ * ("ударная дрель bosch", "дрель bosch", "bosch"), поэтому запрос находит вещь по началу любого слова
+ * и по нескольким словам подряд. Для префиксов из одной-двух букв, где совпадений больше всего,
+ * лучшие результаты посчитаны заранее; длинные префиксы просматривают свой небольшой диапазон.
+ * Чтение без блокировок, изменения применяются после коммита и упорядочены монитором индекса.
+ * Для каждой вещи хранится версия последнего применённого изменения (и для удалённых), более старые
+ * изменения отбрасываются — так запоздавшая перезагрузка по инвалидации с другого узла не затрёт свежие данные.
+ * Популярность (число подтверждённых бронирований) при бронированиях на других узлах перечитывается из БД.
+ * Строится при старте или в фоне (shareit.stores.warmup, см. StoreLoad).
+ */
+@Slf4j
+@Lazy(false)
+@Component
+public class ItemSuggestionIndex implements SmartInitializingSingleton {
+    public static final int MAX_LIMIT = 20;
+
+    private static final int SHORT_PREFIX = 2;
+    private static final int MAX_WORDS = 8;
+    private static final char ID_SEPARATOR = '\u0000';
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final long[] NONE = new long[0];
+
+    private final ItemStorage itemStorage;
+    private final BookingStorage bookingStorage;
+    private final TransactionTemplate readOnlyTransaction;
+    private final StoreLoad load;
+
+    /**
+     * Хвост названия + '\0' + id вещи -> id вещи.
+     */
+    private final NavigableMap<String, Long> phrases = new ConcurrentSkipListMap<>();
+    private final Map<Long, Indexed> items = new ConcurrentHashMap<>();
+    private final Map<Long, Long> popularity = new ConcurrentHashMap<>();
+    private final Map<String, long[]> shortPrefixTop = new ConcurrentHashMap<>();
+    private final Map<Long, Long> versions = new ConcurrentHashMap<>();
+
+    private record Indexed(String name, List<String> phrases) {
+    }
+
+    public ItemSuggestionIndex(ItemStorage itemStorage, BookingStorage bookingStorage,
+                               PlatformTransactionManager transactionManager, StoreProperties storeProperties) {
+        this.itemStorage = itemStorage;
+        this.bookingStorage = bookingStorage;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.load = new StoreLoad("item-suggestions", storeProperties);
+    }
+
+    public List<ItemSuggestion> suggest(String text, int limit) {
+        load.await();
+        String prefix = normalize(text);
+        if (prefix.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long[] ids = prefix.length() <= SHORT_PREFIX
+                ? shortPrefixTop.getOrDefault(prefix, NONE)
+                : top(prefix, limit);
+        List<ItemSuggestion> result = new ArrayList<>(Math.min(ids.length, limit));
+        for (int i = 0; i < ids.length && result.size() < limit; i++) {
+            Indexed item = items.get(ids[i]);
+            if (item != null) {
+                result.add(new ItemSuggestion(ids[i], item.name(), popularity(ids[i])));
+            }
+        }
+        return result;
+    }
+
+    public void onItemSaved(Item item) {
+        load.await();
+        long id = item.getId();
+        String name = item.getName();
+        boolean available = Boolean.TRUE.equals(item.getAvailable());
+        long version = item.getVersion();
+        AfterCommit.run(() -> put(id, available ? name : null, version));
+    }
+
+    /**
+     * version — версия удаления, больше последней версии вещи.
+     */
+    public void onItemRemoved(Long itemId, long version) {
+        load.await();
+        AfterCommit.run(() -> put(itemId, null, version));
+    }
+
+    /**
+     * Версия последнего применённого изменения вещи, -1 — вещь индексу неизвестна.
+     */
+    public long version(long id) {
+        load.await();
+        return versions.getOrDefault(id, -1L);
+    }
+
+    public Set<Long> indexedIds() {
+        load.await();
+        return Collections.unmodifiableSet(items.keySet());
+    }
+
+    public void onBookingApproved(Long itemId) {
+        load.await();
+        AfterCommit.run(() -> {
+            synchronized (this) {
+                popularity.merge(itemId, 1L, Long::sum);
+                Indexed item = items.get(itemId);
+                if (item != null) {
+                    refreshShortPrefixes(item.phrases());
+                }
+            }
+        });
+    }
+
+    /**
+     * Читает из БД число подтверждённых бронирований вещи; возвращённое действие заменяет им её популярность.
+     */
+    public Runnable readPopularity(long itemId) {
+        load.await();
+        long bookings = readOnlyTransaction.execute(status -> bookingStorage.countApproved(itemId));
+        return () -> {
+            synchronized (this) {
+                popularity.put(itemId, bookings);
+                Indexed item = items.get(itemId);
+                if (item != null) {
+                    refreshShortPrefixes(item.phrases());
+                }
+            }
+        };
+    }
+
+    /**
+     * Читает из БД популярность всех вещей; возвращённое действие заменяет ею текущую.
+     */
+    public Runnable readAllPopularity() {
+        load.await();
+        Map<Long, Long> counts = new HashMap<>();
+        readOnlyTransaction.executeWithoutResult(status -> bookingStorage.countApprovedByItem()
+                .forEach(count -> counts.put(count.getItemId(), count.getBookings())));
+        return () -> {
+            synchronized (this) {
+                popularity.keySet().retainAll(counts.keySet());
+                popularity.putAll(counts);
+                refreshAllShortPrefixes();
+            }
+        };
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load.start(() -> {
+            long started = System.nanoTime();
+            synchronized (this) {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    bookingStorage.countApprovedByItem()
+                            .forEach(count -> popularity.put(count.getItemId(), count.getBookings()));
+                    for (ItemStorage.ItemName item : itemStorage.findNames()) {
+                        replace(item.getId(), Boolean.TRUE.equals(item.getAvailable()) ? item.getName() : null,
+                                item.getVersion());
+                    }
+                });
+                refreshAllShortPrefixes();
+            }
+            log.info("Индекс подсказок построен: вещей {}, ключей {}, {} мс",
+                    items.size(), phrases.size(), (System.nanoTime() - started) / 1_000_000);
+        });
+    }
+
+    /**
+     * Заменяет вещь в индексе; name == null убирает её (удалена или недоступна).
+     */
+    private synchronized void put(long id, String name, long version) {
+        refreshShortPrefixes(replace(id, name, version));
+    }
+
+    /**
+     * Заменяет вещь, если version новее применённой, и возвращает затронутые хвосты названий.
+     */
+    private Set<String> replace(long id, String name, long version) {
+        if (version <= versions.getOrDefault(id, -1L)) {
+            return Collections.emptySet();
+        }
+        versions.put(id, version);
+        Set<String> affected = new HashSet<>();
+        Indexed old = items.remove(id);
+        if (old != null) {
+            old.phrases().forEach(phrase -> phrases.remove(key(phrase, id)));
+            affected.addAll(old.phrases());
+        }
+        if (name != null) {
+            affected.addAll(index(id, name).phrases());
+        }
+        return affected;
+    }
+
+    private Indexed index(long id, String name) {
+        List<String> words = Arrays.stream(SEPARATORS.split(name.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty())
+                .toList();
+        List<String> itemPhrases = new ArrayList<>();
+        for (int i = 0; i < words.size() && i < MAX_WORDS; i++) {
+            String phrase = String.join(" ", words.subList(i, words.size()));
+            itemPhrases.add(phrase);
+            phrases.put(key(phrase, id), id);
+        }
+        Indexed indexed = new Indexed(name, itemPhrases);
+        items.put(id, indexed);
+        return indexed;
+    }
+
+    private void refreshAllShortPrefixes() {
+        Set<String> prefixes = new HashSet<>();
+        items.values().forEach(item -> prefixes.addAll(shortPrefixes(item.phrases())));
+        prefixes.forEach(this::refreshShortPrefix);
+    }
+
+    private void refreshShortPrefixes(Collection<String> itemPhrases) {
+        shortPrefixes(itemPhrases).forEach(this::refreshShortPrefix);
+    }
+
+    private void refreshShortPrefix(String prefix) {
+        long[] top = top(prefix, MAX_LIMIT);
+        if (top.length == 0) {
+            shortPrefixTop.remove(prefix);
+        } else {
+            shortPrefixTop.put(prefix, top);
+        }
+    }
+
+    /**
+     * Лучшие по числу бронирований вещи среди ключей с данным префиксом, при равенстве — более новые.
+     */
+    private long[] top(String prefix, int limit) {
+        long[] ids = new long[limit];
+        long[] scores = new long[limit];
+        int size = 0;
+        for (long id : phrases.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (contains(ids, size, id)) {
+                continue;
+            }
+            long score = popularity(id);
+            int position = size;
+            while (position > 0 && (scores[position - 1] < score
+                    || scores[position - 1] == score && ids[position - 1] < id)) {
+                position--;
+            }
+            if (position >= limit) {
+                continue;
+            }
+            int moved = Math.min(size, limit - 1) - position;
+            System.arraycopy(ids, position, ids, position + 1, moved);
+            System.arraycopy(scores, position, scores, position + 1, moved);
+            ids[position] = id;
+            scores[position] = score;
+            size = Math.min(size + 1, limit);
+        }
+        return Arrays.copyOf(ids, size);
+    }
+
+    private long popularity(long itemId) {
+        return popularity.getOrDefault(itemId, 0L);
+    }
+
+    private static boolean contains(long[] ids, int size, long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Set<String> shortPrefixes(Collection<String> itemPhrases) {
+        Set<String> prefixes = new HashSet<>();
+        for (String phrase : itemPhrases) {
+            for (int length = 1; length <= Math.min(SHORT_PREFIX, phrase.length()); length++) {
+                prefixes.add(phrase.substring(0, length));
+            }
+        }
+        return prefixes;
+    }
+
+    private static String key(String phrase, long id) {
+        return phrase + ID_SEPARATOR + id;
+    }
+
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return String.join(" ", SEPARATORS.split(text.toLowerCase(Locale.ROOT))).strip();
+    }
+}
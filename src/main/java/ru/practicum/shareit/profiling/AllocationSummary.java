@@ -0,0 +1,159 @@
+package ru.practicum.shareit.profiling;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сводка JFR-записи: места аллокаций и ожиданий блокировок в коде приложения.
+ * <p>
+ * Место — первый сверху кадр стека из пакета packagePrefix: аллокация внутри ArrayList или Jackson
+ * засчитывается методу приложения, который её вызвал. Байты аллокаций — оценка JFR по выборкам
+ * jdk.ObjectAllocationSample (поле weight), а не точный счёт. Для записи без кадров приложения
+ * место — «(вне приложения)».
+ * <p>
+ * Сводка по файлу, снятому с узла: {@code java -cp target/classes ru.practicum.shareit.profiling.AllocationSummary
+ * shareit.jfr [packagePrefix] [limit]}.
+ */
+public final class AllocationSummary {
+    static final String ALLOCATION_EVENT = "jdk.ObjectAllocationSample";
+    static final List<String> LOCK_EVENTS = List.of("jdk.JavaMonitorEnter", "jdk.JavaMonitorWait", "jdk.ThreadPark");
+
+    private static final String OUTSIDE = "(вне приложения)";
+
+    /**
+     * bytes — оценка выделенных байтов; type — класс объектов, на который пришлось больше всего байтов.
+     */
+    public record AllocationSite(String site, long bytes, long samples, String type) {
+    }
+
+    /**
+     * millis — суммарное ожидание; monitor — класс монитора или объекта парковки с наибольшим ожиданием.
+     */
+    public record LockSite(String site, long millis, long events, String monitor) {
+    }
+
+    /**
+     * attributedBytes — часть sampledBytes, для которой в стеке нашёлся кадр приложения.
+     */
+    public record Summary(long sampledBytes, long attributedBytes, List<AllocationSite> allocations,
+                          List<LockSite> locks) {
+    }
+
+    private AllocationSummary() {
+    }
+
+    public static Summary summarize(Path recording, String packagePrefix, int limit) throws IOException {
+        Map<String, Counter> allocations = new HashMap<>();
+        Map<String, Counter> locks = new HashMap<>();
+        long sampledBytes = 0;
+        long attributedBytes = 0;
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                String name = event.getEventType().getName();
+                if (ALLOCATION_EVENT.equals(name)) {
+                    long bytes = event.getLong("weight");
+                    String site = site(event.getStackTrace(), packagePrefix);
+                    sampledBytes += bytes;
+                    if (!OUTSIDE.equals(site)) {
+                        attributedBytes += bytes;
+                    }
+                    allocations.computeIfAbsent(site, key -> new Counter())
+                            .add(bytes, className(event.getClass("objectClass")));
+                } else if (LOCK_EVENTS.contains(name)) {
+                    locks.computeIfAbsent(site(event.getStackTrace(), packagePrefix), key -> new Counter())
+                            .add(event.getDuration().toNanos(), className(monitorClass(event)));
+                }
+            }
+        }
+        List<AllocationSite> topAllocations = top(allocations, limit).stream()
+                .map(entry -> new AllocationSite(entry.getKey(), entry.getValue().total, entry.getValue().events,
+                        entry.getValue().topDetail()))
+                .toList();
+        List<LockSite> topLocks = top(locks, limit).stream()
+                .map(entry -> new LockSite(entry.getKey(), entry.getValue().total / 1_000_000,
+                        entry.getValue().events, entry.getValue().topDetail()))
+                .toList();
+        return new Summary(sampledBytes, attributedBytes, topAllocations, topLocks);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Использование: AllocationSummary <file.jfr> [packagePrefix] [limit]");
+            System.exit(2);
+        }
+        Summary summary = summarize(Path.of(args[0]), args.length > 1 ? args[1] : "ru.practicum.shareit",
+                args.length > 2 ? Integer.parseInt(args[2]) : 20);
+        System.out.printf("Аллокации: %d КиБ по выборкам, %d КиБ в коде приложения%n",
+                summary.sampledBytes() / 1024, summary.attributedBytes() / 1024);
+        summary.allocations().forEach(site -> System.out.printf("%12d КиБ %8d  %-70s %s%n",
+                site.bytes() / 1024, site.samples(), site.site(), site.type()));
+        System.out.println("Ожидания блокировок:");
+        summary.locks().forEach(site -> System.out.printf("%12d мс %8d  %-70s %s%n",
+                site.millis(), site.events(), site.site(), site.monitor()));
+    }
+
+    private static String site(RecordedStackTrace stackTrace, String packagePrefix) {
+        if (stackTrace == null) {
+            return OUTSIDE;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (!frame.isJavaFrame()) {
+                continue;
+            }
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith(packagePrefix) && !type.contains("$$")) {
+                return type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+            }
+        }
+        return OUTSIDE;
+    }
+
+    private static RecordedClass monitorClass(RecordedEvent event) {
+        if (event.hasField("monitorClass")) {
+            return event.getClass("monitorClass");
+        }
+        return event.hasField("parkedClass") ? event.getClass("parkedClass") : null;
+    }
+
+    private static String className(RecordedClass type) {
+        return type == null ? "?" : type.getName();
+    }
+
+    private static List<Map.Entry<String, Counter>> top(Map<String, Counter> sites, int limit) {
+        return sites.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, Counter> entry) -> entry.getValue().total)
+                        .reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    private static final class Counter {
+        private final Map<String, Long> byDetail = new HashMap<>();
+        private long total;
+        private long events;
+
+        void add(long amount, String detail) {
+            total += amount;
+            events++;
+            byDetail.merge(detail, amount, Long::sum);
+        }
+
+        String topDetail() {
+            return byDetail.entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse("?");
+        }
+    }
+}
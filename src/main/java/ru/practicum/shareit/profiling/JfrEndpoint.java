@@ -0,0 +1,152 @@
+package ru.practicum.shareit.profiling;
+
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * JFR-запись по запросу: аллокации (выборки со стеком), ожидания мониторов и парковки потоков дольше порога, сборки
+ * мусора. Запрос ждёт окончания записи, одновременно идёт не больше одной записи, остальные получают 429.
+ * <ul>
+ *     <li>GET /actuator/jfr?duration=30s — файл записи (jfr print, JDK Mission Control, конвертеры во flame graph);</li>
+ *     <li>GET /actuator/jfr/summary?duration=30s — сводка AllocationSummary по пакету приложения.</li>
+ * </ul>
+ * Эндпоинт доступен после добавления jfr в management.endpoints.web.exposure.include.
+ */
+@Slf4j
+@Component
+@WebEndpoint(id = "jfr")
+public class JfrEndpoint {
+    static final String SUMMARY = "summary";
+
+    private final ProfilingProperties properties;
+    private final AtomicBoolean recording = new AtomicBoolean();
+
+    public JfrEndpoint(ProfilingProperties properties) {
+        this.properties = properties;
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> recording(@Nullable Duration duration) {
+        Path file = record(duration);
+        if (file == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        return new WebEndpointResponse<>(new TemporaryFileResource(file));
+    }
+
+    @ReadOperation
+    public WebEndpointResponse<AllocationSummary.Summary> summary(@Selector String view, @Nullable Duration duration) {
+        if (!SUMMARY.equals(view)) {
+            throw new InvalidEndpointRequestException("Неизвестное представление " + view, "Unknown view");
+        }
+        Path file = record(duration);
+        if (file == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        try {
+            return new WebEndpointResponse<>(AllocationSummary.summarize(file, properties.getPackagePrefix(),
+                    properties.getTopSites()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            delete(file);
+        }
+    }
+
+    /**
+     * Файл записи или null, если уже идёт другая запись.
+     */
+    private Path record(Duration duration) {
+        Duration window = duration != null ? duration : properties.getDefaultDuration();
+        if (window.isNegative() || window.isZero() || window.compareTo(properties.getMaxDuration()) > 0) {
+            throw new InvalidEndpointRequestException("Длительность записи должна быть от 0 до "
+                    + properties.getMaxDuration(), "Invalid duration");
+        }
+        if (!recording.compareAndSet(false, true)) {
+            return null;
+        }
+        Path file = null;
+        try (Recording jfr = new Recording()) {
+            file = Files.createTempFile("shareit-", ".jfr");
+            jfr.setName("shareit-profiling");
+            jfr.enable(AllocationSummary.ALLOCATION_EVENT).withStackTrace()
+                    .with("throttle", properties.getAllocationThrottle());
+            AllocationSummary.LOCK_EVENTS.forEach(event -> jfr.enable(event).withStackTrace()
+                    .withThreshold(properties.getLockThreshold()));
+            jfr.enable("jdk.GarbageCollection");
+            log.info("JFR-запись на {}", window);
+            jfr.start();
+            Thread.sleep(window);
+            jfr.stop();
+            jfr.dump(file);
+            log.info("JFR-запись готова: {} КиБ", Files.size(file) / 1024);
+            return file;
+        } catch (IOException e) {
+            delete(file);
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            delete(file);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("JFR-запись прервана", e);
+        } finally {
+            recording.set(false);
+        }
+    }
+
+    private static void delete(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить {}", file, e);
+        }
+    }
+
+    /**
+     * Временный файл записи удаляется, когда ответ дочитал его.
+     */
+    private static final class TemporaryFileResource extends FileSystemResource {
+        private TemporaryFileResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        delete(getFile().toPath());
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isFile() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package ru.practicum.shareit.profiling;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("shareit.profiling")
+public class ProfilingProperties {
+    /**
+     * Длительность записи, если в запросе не указан duration.
+     */
+    private Duration defaultDuration = Duration.ofSeconds(30);
+    /**
+     * Наибольшая допустимая длительность записи.
+     */
+    private Duration maxDuration = Duration.ofMinutes(2);
+    /**
+     * Сколько выборок аллокаций в секунду пишет JFR (настройка throttle события jdk.ObjectAllocationSample).
+     */
+    private String allocationThrottle = "1000/s";
+    /**
+     * Ожидания мониторов и LockSupport.park короче порога не записываются.
+     */
+    private Duration lockThreshold = Duration.ofMillis(10);
+    /**
+     * Места аллокаций и блокировок в сводке — первые кадры стека из этого пакета.
+     */
+    private String packagePrefix = "ru.practicum.shareit";
+    /**
+     * Сколько мест выводить в сводке.
+     */
+    private int topSites = 20;
+}
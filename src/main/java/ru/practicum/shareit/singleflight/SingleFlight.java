@@ -0,0 +1,99 @@
+package ru.practicum.shareit.singleflight;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.config.AfterCommit;
+import ru.practicum.shareit.config.PrimaryReads;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Схлопывание одинаковых одновременных чтений: первый запрос с ключом (операция, аргументы) выполняет чтение
+ * в своей read-only транзакции, остальные ждут его результат или исключение, не занимая соединение из пула.
+ * Результат не кэшируется: как только чтение завершилось, следующий запрос с тем же ключом читает заново.
+ * Результат общий для всех ожидавших, поэтому он не должен зависеть от того, кто спрашивает, и не должен меняться.
+ * Чтение идёт в основную БД, а не на реплику: после forget следующий запрос должен увидеть записанное.
+ */
+@Slf4j
+@Component
+public class SingleFlight {
+    private final SingleFlightProperties properties;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    private record Key(String operation, Object arguments) {
+    }
+
+    public SingleFlight(SingleFlightProperties properties, PlatformTransactionManager transactionManager,
+                        MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Результат loader для ключа; arguments сравниваются через equals.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(String operation, Object arguments, Supplier<T> loader) {
+        if (!properties.isEnabled()) {
+            count(operation, "executed");
+            return PrimaryReads.call(() -> readOnlyTransaction.execute(status -> loader.get()));
+        }
+        Key key = new Key(operation, arguments);
+        CompletableFuture<Object> own = new CompletableFuture<>();
+        CompletableFuture<Object> flight = flights.putIfAbsent(key, own);
+        if (flight != null) {
+            count(operation, "coalesced");
+            try {
+                return (T) flight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        count(operation, "executed");
+        try {
+            T result = PrimaryReads.call(() -> readOnlyTransaction.execute(status -> loader.get()));
+            own.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            flights.remove(key, own);
+        }
+    }
+
+    /**
+     * shareit.single_flight.calls: executed — чтение выполнено этим запросом, coalesced — получен чужой результат.
+     */
+    private void count(String operation, String outcome) {
+        meterRegistry.counter("shareit.single_flight.calls", "operation", operation, "outcome", outcome).increment();
+    }
+
+    /**
+     * Вызывается в пишущей транзакции: после коммита идущее чтение с этим ключом больше не раздаётся,
+     * и следующие запросы увидят записанное.
+     */
+    public void forget(String operation, Object arguments) {
+        Key key = new Key(operation, arguments);
+        AfterCommit.run(() -> flights.remove(key));
+    }
+
+    /**
+     * Как forget, но для всех идущих чтений операции: для ключей, которые нельзя вывести из записанного
+     * (например, поиск по тексту).
+     */
+    public void forgetAll(String operation) {
+        AfterCommit.run(() -> flights.keySet().removeIf(key -> key.operation().equals(operation)));
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.singleflight;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties("shareit.single-flight")
+public class SingleFlightProperties {
+    /**
+     * false — каждый запрос читает БД сам (для сравнения в SingleFlightBenchmarkTest).
+     */
+    private boolean enabled = true;
+}
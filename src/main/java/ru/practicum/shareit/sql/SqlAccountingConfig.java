@@ -0,0 +1,55 @@
+package ru.practicum.shareit.sql;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+/**
+ * Подключает учёт SQL: оборачивает основной DataSource (бин dataSource — пул или маршрутизатор реплики)
+ * и передаёт в SqlRequestContext бюджет из @SqlBudget обработчика до его вызова.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "shareit.sql", name = "enabled", matchIfMissing = true)
+public class SqlAccountingConfig implements WebMvcConfigurer {
+    private static final String DATA_SOURCE = "dataSource";
+
+    @Bean
+    public static BeanPostProcessor sqlAccountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (DATA_SOURCE.equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof SqlAccountingDataSource)) {
+                    return new SqlAccountingDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                SqlRequestContext context = SqlRequestContext.current();
+                if (context != null && handler instanceof HandlerMethod method) {
+                    SqlBudget budget = method.getMethodAnnotation(SqlBudget.class);
+                    if (budget != null) {
+                        context.setStatementBudget(budget.statements());
+                    }
+                }
+                return true;
+            }
+        });
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.shareit.sql;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Обёртка DataSource, которая засекает выполнение каждого statement и записывает его в SqlRequestContext
+ * текущего потока. Вне HTTP-запроса вызовы идут к драйверу без учёта.
+ */
+public class SqlAccountingDataSource extends DelegatingDataSource {
+
+    public SqlAccountingDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(super.getConnection(username, password));
+    }
+
+    private static Connection connection(Connection target) {
+        return proxy(Connection.class, target, (proxy, method, args) -> {
+            Object result = invoke(target, method, args);
+            return switch (method.getName()) {
+                case "createStatement" -> statement(Statement.class, (Statement) result, null);
+                case "prepareStatement" -> statement(PreparedStatement.class, (Statement) result, (String) args[0]);
+                case "prepareCall" -> statement(CallableStatement.class, (Statement) result, (String) args[0]);
+                default -> result;
+            };
+        });
+    }
+
+    /**
+     * sql — текст PreparedStatement; для простого Statement текст приходит аргументом execute*.
+     */
+    private static <T extends Statement> T statement(Class<T> type, Statement target, String sql) {
+        return proxy(type, target, (proxy, method, args) -> {
+            SqlRequestContext context = SqlRequestContext.current();
+            if (context == null || !method.getName().startsWith("execute")) {
+                return invoke(target, method, args);
+            }
+            String executed = sql != null ? sql
+                    : args != null && args.length > 0 && args[0] instanceof String text ? text : "batch";
+            context.beforeStatement(executed);
+            long started = System.nanoTime();
+            try {
+                return invoke(target, method, args);
+            } finally {
+                context.afterStatement(executed, System.nanoTime() - started);
+            }
+        });
+    }
+
+    /**
+     * equals и hashCode — по самому прокси: Hibernate держит выданные statement в хэш-таблицах.
+     */
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SqlAccountingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> args[0] == proxy;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "toString" -> target.toString();
+                    default -> handler.invoke(proxy, method, args);
+                }));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ru.practicum.shareit.sql;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Открывает SqlRequestContext на время HTTP-запроса, по окончании пишет метрики по шаблону URI
+ * и логирует запрос, если он вышел за бюджет: больше запросов, чем разрешено, дольше shareit.sql.time-budget
+ * в сумме или хотя бы один запрос дольше shareit.sql.slow-statement.
+ * <ul>
+ *     <li>shareit.sql.statements — число SQL-запросов на HTTP-запрос;</li>
+ *     <li>shareit.sql.time — суммарное время их выполнения;</li>
+ *     <li>shareit.sql.budget_exceeded{reason=statements|time|slow_statement}.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(prefix = "shareit.sql", name = "enabled", matchIfMissing = true)
+public class SqlAccountingFilter extends OncePerRequestFilter {
+    public static final String SERVER_TIMING = "Server-Timing";
+    public static final String STATEMENTS = "X-SQL-Statements";
+
+    private final SqlProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public SqlAccountingFilter(SqlProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlRequestContext context = SqlRequestContext.open(properties.getStatementBudget(),
+                properties.isFailOnBudget());
+        TimingResponse timing = new TimingResponse(response, context);
+        try {
+            chain.doFilter(request, timing);
+        } finally {
+            context.close();
+            if (!response.isCommitted()) {
+                timing.writeHeaders();
+            }
+            report(request, context);
+        }
+    }
+
+    private void report(HttpServletRequest request, SqlRequestContext context) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+        DistributionSummary.builder("shareit.sql.statements")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(context.statements());
+        Timer.builder("shareit.sql.time")
+                .tag("method", method)
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(context.nanos(), TimeUnit.NANOSECONDS);
+
+        List<String> reasons = new ArrayList<>();
+        if (context.statements() > context.statementBudget()) {
+            reasons.add("statements");
+        }
+        if (context.nanos() > properties.getTimeBudget().toNanos()) {
+            reasons.add("time");
+        }
+        if (context.slowestNanos() > properties.getSlowStatement().toNanos()) {
+            reasons.add("slow_statement");
+        }
+        if (reasons.isEmpty()) {
+            return;
+        }
+        reasons.forEach(reason -> meterRegistry.counter("shareit.sql.budget_exceeded",
+                "method", method, "uri", uri, "reason", reason).increment());
+        log.warn("SQL-бюджет превышен ({}): {} {} — запросов {} из {}, {} мс, самый долгий {} мс: {}",
+                String.join(", ", reasons), method, uri, context.statements(), context.statementBudget(),
+                millis(context.nanos()), millis(context.slowestNanos()), context.slowestSql());
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Ставит заголовки перед первой записью тела: после этого ответ может уйти клиенту, и заголовки уже не добавить.
+     * SQL, выполненный после начала записи тела, в заголовки не попадает.
+     */
+    private final class TimingResponse extends HttpServletResponseWrapper {
+        private final SqlRequestContext context;
+        private boolean written;
+
+        private TimingResponse(HttpServletResponse response, SqlRequestContext context) {
+            super(response);
+            this.context = context;
+        }
+
+        void writeHeaders() {
+            if (written || !properties.isHeaders()) {
+                return;
+            }
+            written = true;
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.addHeader(SERVER_TIMING, "db;dur=" + millis(context.nanos()));
+            response.setHeader(STATEMENTS, Integer.toString(context.statements()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ru.practicum.shareit.sql;
+
+public class SqlBudgetExceededException extends RuntimeException {
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,35 @@
+package ru.practicum.shareit.sql;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties("shareit.sql")
+public class SqlProperties {
+    /**
+     * false — соединения не оборачиваются, запросы к БД не учитываются.
+     */
+    private boolean enabled = true;
+    /**
+     * Бюджет SQL-запросов на HTTP-запрос для обработчиков без @SqlBudget.
+     */
+    private int statementBudget = 20;
+    /**
+     * Суммарное время выполнения SQL за HTTP-запрос, после которого запрос попадает в лог.
+     */
+    private Duration timeBudget = Duration.ofMillis(200);
+    /**
+     * Один SQL-запрос дольше этого попадает в лог вместе с HTTP-запросом.
+     */
+    private Duration slowStatement = Duration.ofMillis(100);
+    /**
+     * Режим для тестов: запрос сверх бюджета не выполняется, обработчик падает с SqlBudgetExceededException.
+     */
+    private boolean failOnBudget = false;
+    /**
+     * Заголовки Server-Timing и X-SQL-Statements в ответе.
+     */
+    private boolean headers = true;
+}
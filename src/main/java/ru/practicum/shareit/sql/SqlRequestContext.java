@@ -0,0 +1,98 @@
+package ru.practicum.shareit.sql;
+
+import java.util.regex.Pattern;
+
+/**
+ * Учёт SQL-запросов одного HTTP-запроса: число, суммарное время выполнения и самый долгий запрос.
+ * Контекст привязан к потоку обработки запроса; SQL других потоков и SQL вне HTTP-запросов не учитываются.
+ * Время — только выполнение statement, без чтения ResultSet.
+ */
+public final class SqlRequestContext {
+    private static final ThreadLocal<SqlRequestContext> CURRENT = new ThreadLocal<>();
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final int MAX_SQL_LENGTH = 500;
+
+    private final boolean failOnBudget;
+    private int statementBudget;
+    private int statements;
+    private long nanos;
+    private long slowestNanos;
+    private String slowestSql;
+
+    private SqlRequestContext(int statementBudget, boolean failOnBudget) {
+        this.statementBudget = statementBudget;
+        this.failOnBudget = failOnBudget;
+    }
+
+    static SqlRequestContext open(int statementBudget, boolean failOnBudget) {
+        SqlRequestContext context = new SqlRequestContext(statementBudget, failOnBudget);
+        CURRENT.set(context);
+        return context;
+    }
+
+    /**
+     * Контекст текущего потока или null вне HTTP-запроса.
+     */
+    static SqlRequestContext current() {
+        return CURRENT.get();
+    }
+
+    void close() {
+        CURRENT.remove();
+    }
+
+    void setStatementBudget(int statementBudget) {
+        this.statementBudget = statementBudget;
+    }
+
+    /**
+     * В режиме failOnBudget не даёт выполнить запрос сверх бюджета.
+     */
+    void beforeStatement(String sql) {
+        if (failOnBudget && statements >= statementBudget) {
+            throw new SqlBudgetExceededException("Превышен бюджет SQL-запросов " + statementBudget + ": "
+                    + redact(sql));
+        }
+    }
+
+    void afterStatement(String sql, long elapsedNanos) {
+        statements++;
+        nanos += elapsedNanos;
+        if (elapsedNanos > slowestNanos) {
+            slowestNanos = elapsedNanos;
+            slowestSql = sql;
+        }
+    }
+
+    int statements() {
+        return statements;
+    }
+
+    int statementBudget() {
+        return statementBudget;
+    }
+
+    long nanos() {
+        return nanos;
+    }
+
+    long slowestNanos() {
+        return slowestNanos;
+    }
+
+    /**
+     * Самый долгий запрос без литералов: значения параметров PreparedStatement в SQL и так не попадают.
+     */
+    String slowestSql() {
+        return slowestSql == null ? null : redact(slowestSql);
+    }
+
+    static String redact(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        String redacted = NUMBER_LITERAL.matcher(STRING_LITERAL.matcher(sql).replaceAll("?")).replaceAll("?");
+        return redacted.length() > MAX_SQL_LENGTH ? redacted.substring(0, MAX_SQL_LENGTH) + "…" : redacted;
+    }
+}
@@ -5,10 +5,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.sql.SqlBudget;
 import ru.practicum.shareit.user.model.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @RestController
@@ -18,6 +21,7 @@ public class UserController {
     private final UserService userService;
 
     @PostMapping
+    @SqlBudget(statements = 2)
     public ResponseEntity<UserDto> create(@Valid @RequestBody UserDto userDto) {
         UserDto user = userService.create(userDto);
         log.info("UserController: добавлен новый пользователь.");
@@ -25,6 +29,7 @@ public class UserController {
     }
 
     @PatchMapping("/{userId}")
+    @SqlBudget(statements = 3)
     public ResponseEntity<UserDto> update(@PathVariable("userId") Long userId, @RequestBody UserDto userDto) {
         if (userId == null) {
             throw new IllegalArgumentException("userId не может быть null");
@@ -34,6 +39,7 @@ public class UserController {
     }
 
     @DeleteMapping("/{userId}")
+    @SqlBudget(statements = 2)
     public ResponseEntity<Void> delete(@PathVariable Long userId) {
         userService.delete(userId);
         log.info("UserController: пользователь с id: {} удалён", userId);
@@ -41,13 +47,23 @@ public class UserController {
     }
 
     @GetMapping()
+    @SqlBudget(statements = 1)
     public ResponseEntity<Collection<UserDto>> allUsers() {
         Collection<UserDto> allUsers = userService.getAllUsers();
         log.info("UserController: количество всех пользователей: {}", allUsers.size());
         return ResponseEntity.ok(allUsers);
     }
 
+    @GetMapping(params = "ids")
+    @SqlBudget(statements = 1)
+    public ResponseEntity<Map<Long, UserDto>> getUsers(@RequestParam List<Long> ids) {
+        Map<Long, UserDto> users = userService.getUsers(ids);
+        log.info("UserController: пакетно получено {} пользователей", users.size());
+        return ResponseEntity.ok(users);
+    }
+
     @GetMapping("/{userId}")
+    @SqlBudget(statements = 1)
     public ResponseEntity<UserDto> getUserById(@PathVariable(value = "userId") Long userId) {
         log.info("UserController: запрошен пользователь с id: {}", userId);
         return ResponseEntity.ok(userService.getUserById(userId));
@@ -9,6 +9,7 @@ import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 
 import java.util.List;
+import java.util.Locale;
 
 @AllArgsConstructor
 @RequiredArgsConstructor
@@ -17,12 +18,15 @@ import java.util.List;
 @Table(name = "users")
 public class User {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
     @Column(name = "name", nullable = false)
     private String name;
     @Column(name = "email", nullable = false)
     private String email;
+    @Column(name = "email_normalized", nullable = false)
+    private String emailNormalized;
 
     @OneToMany(mappedBy = "owner")
     private List<Item> items;
@@ -33,5 +37,10 @@ public class User {
     @OneToMany(mappedBy = "author")
     private List<Comment> comment;
 
+    @PrePersist
+    @PreUpdate
+    private void normalizeEmail() {
+        emailNormalized = email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
+    }
 
 }
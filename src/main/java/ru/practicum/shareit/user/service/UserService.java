@@ -4,6 +4,7 @@ package ru.practicum.shareit.user.service;
 import ru.practicum.shareit.user.model.UserDto;
 
 import java.util.Collection;
+import java.util.Map;
 
 public interface UserService {
     UserDto create(UserDto user);
@@ -15,4 +16,6 @@ public interface UserService {
     UserDto getUserById(Long id);
 
     Collection<UserDto> getAllUsers();
+
+    Map<Long, UserDto> getUsers(Collection<Long> ids);
 }
@@ -3,16 +3,26 @@ package ru.practicum.shareit.user.service;
 import jakarta.validation.ValidationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.NotUniqueEmailException;
+import ru.practicum.shareit.item.service.ItemDashboardService;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.model.UserDto;
 import ru.practicum.shareit.user.storage.UserStorage;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -20,7 +30,13 @@ import java.util.stream.Collectors;
 @Service
 @Transactional(readOnly = true)
 public class UserServiceImpl implements UserService {
+    private static final Pattern EMAIL_PATTERN =
+            Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
+    private static final String EMAIL_CONSTRAINT = "uq_user_email_normalized";
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final UserStorage userStorage;
+    private final ItemDashboardService itemDashboardService;
 
     @Transactional
     @Override
@@ -29,10 +45,9 @@ public class UserServiceImpl implements UserService {
                 userDto.getEmail(), userDto.getName());
 
         validateEmailFormat(userDto.getEmail());
-        validateEmailUniqueness(userDto.getEmail());
 
         User user = UserMapper.toUser(userDto);
-        User createdUser = userStorage.save(user);
+        User createdUser = saveUniqueEmail(user);
 
         log.debug("Пользователь успешно создан: ID={}, email={}",
                 createdUser.getId(), createdUser.getEmail());
@@ -61,13 +76,13 @@ public class UserServiceImpl implements UserService {
         User user = getUserOrThrow(id);
         log.debug("Найден пользователь для обновления: ID={}, текущий email={}",
                 id, user.getEmail());
+        String oldName = user.getName();
 
         // Проверяем и обновляем email
         if (userDto.getEmail() != null && !userDto.getEmail().equals(user.getEmail())) {
             log.debug("Обновление email пользователя ID: {} с {} на {}",
                     id, user.getEmail(), userDto.getEmail());
             validateEmailFormat(userDto.getEmail());
-            validateEmailUniqueness(userDto.getEmail());
         }
 
         // Обновляем имя, если предоставлено и не пустое
@@ -86,7 +101,10 @@ public class UserServiceImpl implements UserService {
             log.warn("Попытка установить пустой email для пользователя ID: {}", id);
         }
 
-        User updatedUser = userStorage.save(user);
+        User updatedUser = saveUniqueEmail(user);
+        if (!updatedUser.getName().equals(oldName)) {
+            itemDashboardService.refreshForUser(id);
+        }
         log.debug("Пользователь с ID: {} успешно обновлен", id);
         log.info("Обновление пользователя с ID: {} завершено", id);
 
@@ -103,7 +121,6 @@ public class UserServiceImpl implements UserService {
         return UserMapper.toUserDto(user);
     }
 
-    @Transactional
     @Override
     public Collection<UserDto> getAllUsers() {
         log.info("Запрос всех пользователей");
@@ -115,13 +132,48 @@ public class UserServiceImpl implements UserService {
                 .collect(Collectors.toList());
     }
 
-    private void validateEmailUniqueness(String email) {
-        log.debug("Проверка уникальности email: {}", email);
-        if (userStorage.existsByEmail(email)) {
+    @Override
+    public Map<Long, UserDto> getUsers(Collection<Long> ids) {
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        if (unique.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Можно запросить не более " + MAX_BATCH_SIZE + " пользователей за раз");
+        }
+        log.info("Пакетный запрос {} пользователей", unique.size());
+        Map<Long, User> found = userStorage.findAllById(unique).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<Long, UserDto> result = new LinkedHashMap<>();
+        for (Long id : unique) {
+            User user = found.get(id);
+            if (user != null) {
+                result.put(id, UserMapper.toUserDto(user));
+            }
+        }
+        log.debug("Найдено {} пользователей из {} запрошенных", result.size(), unique.size());
+        return result;
+    }
+
+    /**
+     * Уникальность email проверяет ограничение uq_user_email_normalized, а не отдельный запрос перед вставкой:
+     * так проверка атомарна и не стоит лишнего обращения к БД.
+     */
+    private User saveUniqueEmail(User user) {
+        try {
+            return userStorage.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (!isEmailConstraintViolation(e)) {
+                throw e;
+            }
             log.warn("Попытка использовать уже существующий email.");
-            throw new NotUniqueEmailException("Пользователь с электронной почтой " + email + " уже существует");
+            throw new NotUniqueEmailException("Пользователь с электронной почтой " + user.getEmail()
+                    + " уже существует");
         }
-        log.debug("Email {} уникален", email);
+    }
+
+    private boolean isEmailConstraintViolation(DataIntegrityViolationException e) {
+        String constraintName = e.getCause() instanceof ConstraintViolationException violation
+                ? violation.getConstraintName() : null;
+        String message = constraintName != null ? constraintName : e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase(Locale.ROOT).contains(EMAIL_CONSTRAINT);
     }
 
     private User getUserOrThrow(Long id) {
@@ -135,8 +187,7 @@ public class UserServiceImpl implements UserService {
 
     private void validateEmailFormat(String email) {
         log.debug("Проверка формата email: {}", email);
-        String emailRegex = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$";
-        if (!email.matches(emailRegex)) {
+        if (!EMAIL_PATTERN.matcher(email).matches()) {
             log.warn("Неверный формат email: {}", email);
             throw new ValidationException("Неверный формат электронной почты: " + email);
         }
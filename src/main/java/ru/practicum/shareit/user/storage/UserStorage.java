@@ -5,5 +5,4 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import ru.practicum.shareit.user.model.User;
 
 public interface UserStorage extends JpaRepository<User, Long> {
-    boolean existsByEmail(String email);
 }
@@ -0,0 +1,28 @@
+-- PostgreSQL: adds the owner dashboard table behind GET /items (ItemDashboard).
+-- Run once before the nodes of this release start:
+--   psql -v ON_ERROR_STOP=1 -1 -f 01-item-dashboards.sql shareit
+-- Every existing item gets a row that is already due for refresh: reads build it in memory
+-- and ItemDashboardRefresher fills the booking and comment columns in the background.
+
+CREATE TABLE IF NOT EXISTS item_dashboards
+(
+    item_id       BIGINT PRIMARY KEY,
+    owner_id      BIGINT       NOT NULL,
+    name          VARCHAR(255) NOT NULL,
+    description   VARCHAR(512) NOT NULL,
+    available     BOOLEAN      NOT NULL,
+    last_booking  TEXT,
+    next_booking  TEXT,
+    comment_count INTEGER      NOT NULL,
+    comments      TEXT,
+    refresh_after TIMESTAMP WITHOUT TIME ZONE,
+    CONSTRAINT fk_item_dashboards_item_id FOREIGN KEY (item_id) REFERENCES items (id)
+);
+
+CREATE INDEX IF NOT EXISTS ix_item_dashboards_owner_id ON item_dashboards (owner_id, item_id);
+
+INSERT INTO item_dashboards (item_id, owner_id, name, description, available, comment_count, refresh_after)
+SELECT i.id, i.owner_id, i.name, i.description, i.available,
+       (SELECT COUNT(*) FROM comments c WHERE c.item_id = i.id), LOCALTIMESTAMP
+FROM items i
+ON CONFLICT (item_id) DO NOTHING;
@@ -0,0 +1,14 @@
+-- PostgreSQL: replaces the case-sensitive UQ_USER_EMAIL with a unique trimmed, lower-cased copy of the email
+-- (User.emailNormalized). Run once with every application node stopped:
+--   psql -v ON_ERROR_STOP=1 -1 -f 02-users-email-normalized.sql shareit
+-- The script fails on emails that differ only in case or surrounding spaces; find them first with
+--   SELECT LOWER(TRIM(email)), ARRAY_AGG(id) FROM users GROUP BY 1 HAVING COUNT(*) > 1;
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS email_normalized VARCHAR(512);
+
+UPDATE users SET email_normalized = LOWER(TRIM(email)) WHERE email_normalized IS NULL;
+
+ALTER TABLE users ALTER COLUMN email_normalized SET NOT NULL;
+ALTER TABLE users DROP CONSTRAINT IF EXISTS uq_user_email_normalized;
+ALTER TABLE users ADD CONSTRAINT uq_user_email_normalized UNIQUE (email_normalized);
+ALTER TABLE users DROP CONSTRAINT IF EXISTS uq_user_email;
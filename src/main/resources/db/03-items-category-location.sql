@@ -0,0 +1,7 @@
+-- PostgreSQL: adds the optional category and coordinates of items (Item.category, latitude, longitude).
+-- Run before the nodes of this release start; the columns are nullable, so existing rows need no backfill:
+--   psql -v ON_ERROR_STOP=1 -1 -f 03-items-category-location.sql shareit
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS category VARCHAR(64);
+ALTER TABLE items ADD COLUMN IF NOT EXISTS latitude DOUBLE PRECISION;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS longitude DOUBLE PRECISION;
@@ -0,0 +1,31 @@
+-- PostgreSQL: adds the archive of finished bookings and the per-item, per-booker summaries that BookingArchiver
+-- keeps for archived approved bookings. Both start empty; the archiver fills them on its first runs:
+--   psql -v ON_ERROR_STOP=1 -1 -f 04-bookings-archive.sql shareit
+-- Archived rows keep their bookings ids, so the table has no id generator of its own.
+
+CREATE TABLE IF NOT EXISTS bookings_archive
+(
+    id          BIGINT PRIMARY KEY,
+    start_date  TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    end_date    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    item_id     BIGINT                      NOT NULL,
+    booker_id   BIGINT                      NOT NULL,
+    status      VARCHAR(64)                 NOT NULL,
+    archived_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT fk_bookings_archive_item_id FOREIGN KEY (item_id) REFERENCES items (id),
+    CONSTRAINT fk_bookings_archive_booker_id FOREIGN KEY (booker_id) REFERENCES users (id)
+);
+
+CREATE INDEX IF NOT EXISTS ix_bookings_archive_booker_id ON bookings_archive (booker_id, start_date);
+CREATE INDEX IF NOT EXISTS ix_bookings_archive_item_id ON bookings_archive (item_id, start_date);
+
+CREATE TABLE IF NOT EXISTS booking_summaries
+(
+    item_id        BIGINT                      NOT NULL,
+    booker_id      BIGINT                      NOT NULL,
+    approved_count BIGINT                      NOT NULL,
+    last_end       TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    CONSTRAINT pk_booking_summaries PRIMARY KEY (item_id, booker_id),
+    CONSTRAINT fk_booking_summaries_item_id FOREIGN KEY (item_id) REFERENCES items (id),
+    CONSTRAINT fk_booking_summaries_booker_id FOREIGN KEY (booker_id) REFERENCES users (id)
+);
@@ -0,0 +1,28 @@
+-- PostgreSQL: moves a database created by the old schema.sql from IDENTITY ids to the pooled sequences
+-- used by the entities (allocationSize = 50). Run once with every application node stopped:
+--   psql -v ON_ERROR_STOP=1 -1 -f 05-identity-to-sequences.sql shareit
+-- Each sequence continues after the largest existing id, so new ids never collide with old rows.
+-- Archived bookings keep their ids, so bookings_seq also continues after bookings_archive (04-bookings-archive.sql).
+
+LOCK TABLE users, requests, items, bookings, bookings_archive, comments IN EXCLUSIVE MODE;
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS requests_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comments_seq START WITH 1 INCREMENT BY 50;
+
+-- the first nextval returns max(id) + 51; Hibernate hands out the block (max(id) + 2 .. max(id) + 51)
+SELECT setval('users_seq', COALESCE((SELECT MAX(id) FROM users), 0) + 1);
+SELECT setval('requests_seq', COALESCE((SELECT MAX(id) FROM requests), 0) + 1);
+SELECT setval('items_seq', COALESCE((SELECT MAX(id) FROM items), 0) + 1);
+SELECT setval('bookings_seq', GREATEST(COALESCE((SELECT MAX(id) FROM bookings), 0),
+                                       COALESCE((SELECT MAX(id) FROM bookings_archive), 0)) + 1);
+SELECT setval('comments_seq', COALESCE((SELECT MAX(id) FROM comments), 0) + 1);
+
+-- ids now come only from the sequences; an INSERT without id fails instead of taking an identity value
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE requests ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE bookings ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE comments ALTER COLUMN id DROP IDENTITY IF EXISTS;
@@ -0,0 +1,5 @@
+-- PostgreSQL: adds the optimistic-lock version of items (Item.version); existing rows start at 0.
+-- Run before the nodes of this release start; the default keeps INSERTs of older nodes working.
+--   psql -v ON_ERROR_STOP=1 -f 06-items-version.sql shareit
+
+ALTER TABLE items ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,14 @@
+-- PostgreSQL: adds the lease rows that let only one node at a time run a scheduled job (BookingArchiver).
+-- Run before the nodes of this release start; without the row the archiver never gets the lease:
+--   psql -v ON_ERROR_STOP=1 -1 -f 07-scheduled-locks.sql shareit
+
+CREATE TABLE IF NOT EXISTS scheduled_locks
+(
+    name         VARCHAR(64) PRIMARY KEY,
+    locked_until TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    locked_by    VARCHAR(64)                 NOT NULL
+);
+
+INSERT INTO scheduled_locks (name, locked_until, locked_by)
+VALUES ('booking-archive', TIMESTAMP '1970-01-01 00:00:00', '')
+ON CONFLICT (name) DO NOTHING;
@@ -0,0 +1,30 @@
+-- PostgreSQL: adds the per-item monthly counters of archived bookings that ItemStatsStore starts from instead of
+-- rescanning bookings_archive, and fills them from the rows archived so far. Run once with every application node
+-- stopped: archivers of the previous release move bookings without counting them here:
+--   psql -v ON_ERROR_STOP=1 -1 -f 08-booking-month-summaries.sql shareit
+-- start_month is the 'YYYY-MM' of start_date; booked_days counts the calendar days of [start_date, end_date).
+
+CREATE TABLE IF NOT EXISTS booking_month_summaries
+(
+    item_id     BIGINT     NOT NULL,
+    start_month VARCHAR(7) NOT NULL,
+    bookings    BIGINT     NOT NULL,
+    approved    BIGINT     NOT NULL,
+    rejected    BIGINT     NOT NULL,
+    booked_days BIGINT     NOT NULL,
+    CONSTRAINT pk_booking_month_summaries PRIMARY KEY (item_id, start_month),
+    CONSTRAINT fk_booking_month_summaries_item_id FOREIGN KEY (item_id) REFERENCES items (id)
+);
+
+-- a second run finds the table filled and adds nothing
+INSERT INTO booking_month_summaries (item_id, start_month, bookings, approved, rejected, booked_days)
+SELECT item_id,
+       to_char(start_date, 'YYYY-MM'),
+       COUNT(*),
+       COUNT(*) FILTER (WHERE status = 'APPROVED'),
+       COUNT(*) FILTER (WHERE status = 'REJECTED'),
+       COALESCE(SUM((end_date - INTERVAL '1 microsecond')::date - start_date::date + 1)
+                FILTER (WHERE status = 'APPROVED'), 0)
+FROM bookings_archive
+WHERE NOT EXISTS (SELECT 1 FROM booking_month_summaries)
+GROUP BY item_id, to_char(start_date, 'YYYY-MM');
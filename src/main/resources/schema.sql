@@ -2,27 +2,49 @@ DROP TABLE IF EXISTS items CASCADE;
 DROP TABLE IF EXISTS users CASCADE;
 DROP TABLE IF EXISTS bookings CASCADE;
 DROP TABLE IF EXISTS comments CASCADE;
+DROP TABLE IF EXISTS item_dashboards CASCADE;
+DROP TABLE IF EXISTS bookings_archive CASCADE;
+DROP TABLE IF EXISTS booking_summaries CASCADE;
+DROP TABLE IF EXISTS booking_month_summaries CASCADE;
+DROP TABLE IF EXISTS scheduled_locks CASCADE;
+DROP SEQUENCE IF EXISTS users_seq;
+DROP SEQUENCE IF EXISTS requests_seq;
+DROP SEQUENCE IF EXISTS items_seq;
+DROP SEQUENCE IF EXISTS bookings_seq;
+DROP SEQUENCE IF EXISTS comments_seq;
+
+-- ids are allocated by Hibernate in blocks of 50 (pooled optimizer): INCREMENT BY must match allocationSize
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS requests_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comments_seq START WITH 1 INCREMENT BY 50;
 
 CREATE TABLE IF NOT EXISTS users (
-         id BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+         id BIGINT NOT NULL,
         name VARCHAR(255) NOT NULL,
         email VARCHAR(512) NOT NULL,
+        email_normalized VARCHAR(512) NOT NULL,
         CONSTRAINT pk_user PRIMARY KEY (id),
-        CONSTRAINT UQ_USER_EMAIL UNIQUE (email)
+        CONSTRAINT UQ_USER_EMAIL_NORMALIZED UNIQUE (email_normalized)
         );
     CREATE TABLE IF NOT EXISTS requests
     (
-        id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+        id           BIGINT PRIMARY KEY,
         description  VARCHAR(512) NOT NULL,
         requestor_id BIGINT,
         created      TIMESTAMP WITHOUT TIME ZONE,
         FOREIGN KEY (requestor_id) REFERENCES users (id)
     );
     CREATE TABLE IF NOT EXISTS items(
-        id          BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+        id          BIGINT PRIMARY KEY,
         name        VARCHAR(255) NOT NULL,
         description VARCHAR(512) NOT NULL,
         available   BOOLEAN      NOT NULL,
+        category    VARCHAR(64),
+        latitude    DOUBLE PRECISION,
+        longitude   DOUBLE PRECISION,
+        version     BIGINT       NOT NULL DEFAULT 0,
         owner_id    BIGINT       NOT NULL,
         request_id  BIGINT,
         FOREIGN KEY (request_id) REFERENCES requests (id),
@@ -30,7 +52,7 @@ CREATE TABLE IF NOT EXISTS users (
         );
     CREATE TABLE IF NOT EXISTS bookings
     (
-        id         BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+        id         BIGINT PRIMARY KEY,
         start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
         end_date   TIMESTAMP WITHOUT TIME ZONE NOT NULL,
         item_id    BIGINT                      NOT NULL,
@@ -40,9 +62,59 @@ CREATE TABLE IF NOT EXISTS users (
         CONSTRAINT fk_bookings_booker_id FOREIGN KEY (booker_id) REFERENCES users (id)
         );
 
+    CREATE TABLE IF NOT EXISTS bookings_archive
+    (
+        id          BIGINT PRIMARY KEY,
+        start_date  TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+        end_date    TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+        item_id     BIGINT                      NOT NULL,
+        booker_id   BIGINT                      NOT NULL,
+        status      VARCHAR(64)                 NOT NULL,
+        archived_at TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+        CONSTRAINT fk_bookings_archive_item_id FOREIGN KEY (item_id) REFERENCES items (id),
+        CONSTRAINT fk_bookings_archive_booker_id FOREIGN KEY (booker_id) REFERENCES users (id)
+        );
+
+    CREATE INDEX IF NOT EXISTS ix_bookings_archive_booker_id ON bookings_archive (booker_id, start_date);
+    CREATE INDEX IF NOT EXISTS ix_bookings_archive_item_id ON bookings_archive (item_id, start_date);
+
+    CREATE TABLE IF NOT EXISTS booking_summaries
+    (
+        item_id        BIGINT                      NOT NULL,
+        booker_id      BIGINT                      NOT NULL,
+        approved_count BIGINT                      NOT NULL,
+        last_end       TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+        CONSTRAINT pk_booking_summaries PRIMARY KEY (item_id, booker_id),
+        CONSTRAINT fk_booking_summaries_item_id FOREIGN KEY (item_id) REFERENCES items (id),
+        CONSTRAINT fk_booking_summaries_booker_id FOREIGN KEY (booker_id) REFERENCES users (id)
+        );
+
+    -- start_month is YearMonth.toString() ('2024-05') of the booking start
+    CREATE TABLE IF NOT EXISTS booking_month_summaries
+    (
+        item_id     BIGINT     NOT NULL,
+        start_month VARCHAR(7) NOT NULL,
+        bookings    BIGINT     NOT NULL,
+        approved    BIGINT     NOT NULL,
+        rejected    BIGINT     NOT NULL,
+        booked_days BIGINT     NOT NULL,
+        CONSTRAINT pk_booking_month_summaries PRIMARY KEY (item_id, start_month),
+        CONSTRAINT fk_booking_month_summaries_item_id FOREIGN KEY (item_id) REFERENCES items (id)
+        );
+
+    CREATE TABLE IF NOT EXISTS scheduled_locks
+    (
+        name         VARCHAR(64) PRIMARY KEY,
+        locked_until TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+        locked_by    VARCHAR(64)                 NOT NULL
+        );
+
+    INSERT INTO scheduled_locks (name, locked_until, locked_by)
+    VALUES ('booking-archive', TIMESTAMP '1970-01-01 00:00:00', '');
+
     CREATE TABLE IF NOT EXISTS comments
     (
-        id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+        id        BIGINT PRIMARY KEY,
         text      VARCHAR(2048) NOT NULL,
         item_id   BIGINT        NOT NULL,
         author_id BIGINT        NOT NULL,
@@ -50,3 +122,20 @@ CREATE TABLE IF NOT EXISTS users (
         CONSTRAINT fk_comments_item_id FOREIGN KEY (item_id) REFERENCES items (id),
         CONSTRAINT fk_comments_author_id FOREIGN KEY (author_id) REFERENCES users (id)
         );
+
+    CREATE TABLE IF NOT EXISTS item_dashboards
+    (
+        item_id       BIGINT PRIMARY KEY,
+        owner_id      BIGINT       NOT NULL,
+        name          VARCHAR(255) NOT NULL,
+        description   VARCHAR(512) NOT NULL,
+        available     BOOLEAN      NOT NULL,
+        last_booking  TEXT,
+        next_booking  TEXT,
+        comment_count INTEGER      NOT NULL,
+        comments      TEXT,
+        refresh_after TIMESTAMP WITHOUT TIME ZONE,
+        CONSTRAINT fk_item_dashboards_item_id FOREIGN KEY (item_id) REFERENCES items (id)
+        );
+
+    CREATE INDEX IF NOT EXISTS ix_item_dashboards_owner_id ON item_dashboards (owner_id, item_id);
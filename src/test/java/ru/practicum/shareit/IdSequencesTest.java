@@ -0,0 +1,184 @@
+package ru.practicum.shareit;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.Entity;
+import jakarta.persistence.SequenceGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.CommentDto;
+import ru.practicum.shareit.item.model.ItemDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Пулы id: allocationSize каждой сущности совпадает с INCREMENT BY её последовательности в schema.sql
+ * и в миграции 05, а после миграции новые id не пересекаются со старыми строками.
+ */
+class IdSequencesTest {
+    private static final Pattern SEQUENCE =
+            Pattern.compile("CREATE SEQUENCE IF NOT EXISTS (\\w+) START WITH \\d+ INCREMENT BY (\\d+)");
+    private static final String[] TABLES = {"users", "requests", "items", "bookings", "comments"};
+
+    @Test
+    void allocationSizeMatchesSequenceIncrement() throws Exception {
+        Map<String, Integer> entities = entitySequences();
+        assertEquals(Set.of("users_seq", "requests_seq", "items_seq", "bookings_seq", "comments_seq"),
+                entities.keySet());
+        assertEquals(entities, sqlSequences("schema.sql"));
+        assertEquals(entities, sqlSequences("db/05-identity-to-sequences.sql"));
+    }
+
+    /**
+     * Старая схема с IDENTITY и строками, в том числе с id, вставленными вручную, и архивным бронированием
+     * с id больше любого живого. После миграции 05 приложение сохраняет сущности через Hibernate.
+     */
+    @Test
+    void migratedSequencesContinueAfterExistingIds() throws Exception {
+        assumeFalse("root".equals(System.getProperty("user.name")), "PostgreSQL не запускается от root");
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            Map<String, Long> maxIds;
+            try (Connection connection = postgres.getPostgresDatabase().getConnection()) {
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+                maxIds = seedIdentitySchema(connection);
+                connection.setAutoCommit(false);
+                ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/05-identity-to-sequences.sql"));
+                connection.commit();
+                connection.setAutoCommit(true);
+                assertEquals(entitySequences(), pgIncrements(connection));
+            }
+
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItApplication.class).run(
+                    "--spring.profiles.active=postgres",
+                    "--server.port=0",
+                    "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                    "--spring.datasource.username=postgres",
+                    "--spring.datasource.password=",
+                    "--spring.sql.init.mode=never",
+                    "--shareit.admission.enabled=false",
+                    "--logging.level.root=WARN")) {
+                UserService users = context.getBean(UserService.class);
+                ItemService items = context.getBean(ItemService.class);
+                BookingService bookings = context.getBean(BookingService.class);
+
+                long owner = users.create(new UserDto(null, "Новый владелец", "new-owner@seq.ru")).getId();
+                long booker = users.create(new UserDto(null, "Новый арендатор", "new-booker@seq.ru")).getId();
+                long item = items.create(ItemDto.builder().name("Пила").description("Новая").available(true)
+                        .build(), owner).getId();
+                BookingDto booking = new BookingDto();
+                booking.setItemId(item);
+                booking.setStart(LocalDateTime.now().minusDays(2));
+                booking.setEnd(LocalDateTime.now().minusDays(1));
+                long bookingId = bookings.create(booker, booking, Set.of()).getId();
+                bookings.update(owner, true, bookingId, Set.of());
+                CommentDto comment = new CommentDto();
+                comment.setText("Острая");
+                long commentId = items.createComment(booker, item, comment).getId();
+
+                assertTrue(owner > maxIds.get("users") && booker > owner, owner + " " + booker);
+                assertTrue(item > maxIds.get("items"), Long.toString(item));
+                assertTrue(bookingId > maxIds.get("bookings"), Long.toString(bookingId));
+                assertTrue(commentId > maxIds.get("comments"), Long.toString(commentId));
+            }
+        }
+    }
+
+    /**
+     * Возвращает схему к виду до миграции 05 (IDENTITY вместо последовательностей) и заполняет её.
+     */
+    private static Map<String, Long> seedIdentitySchema(Connection connection) throws Exception {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : TABLES) {
+                statement.execute("DROP SEQUENCE " + table + "_seq");
+                statement.execute("ALTER TABLE " + table + " ALTER COLUMN id ADD GENERATED BY DEFAULT AS IDENTITY");
+            }
+            statement.execute("INSERT INTO users (name, email, email_normalized) VALUES ('Старый', 'old@seq.ru', "
+                    + "'old@seq.ru'), ('Старый 2', 'old2@seq.ru', 'old2@seq.ru')");
+            statement.execute("INSERT INTO users (id, name, email, email_normalized) VALUES (75, 'Ручной', "
+                    + "'manual@seq.ru', 'manual@seq.ru')");
+            statement.execute("INSERT INTO requests (description, requestor_id) VALUES ('Нужна дрель', 1)");
+            statement.execute("INSERT INTO items (name, description, available, owner_id) VALUES "
+                    + "('Дрель', 'Старая', TRUE, 1), ('Лестница', 'Старая', TRUE, 1)");
+            statement.execute("INSERT INTO bookings (start_date, end_date, item_id, booker_id, status) VALUES "
+                    + "(TIMESTAMP '2024-01-01 10:00', TIMESTAMP '2024-01-02 10:00', 1, 2, 'APPROVED')");
+            statement.execute("INSERT INTO bookings_archive (id, start_date, end_date, item_id, booker_id, status, "
+                    + "archived_at) VALUES (140, TIMESTAMP '2020-01-01 10:00', TIMESTAMP '2020-01-02 10:00', 2, 2, "
+                    + "'APPROVED', TIMESTAMP '2024-01-01 00:00')");
+            statement.execute("INSERT INTO comments (text, item_id, author_id, created) VALUES "
+                    + "('Старый отзыв', 1, 2, TIMESTAMP '2024-01-03 10:00')");
+
+            Map<String, Long> maxIds = new HashMap<>();
+            for (String table : TABLES) {
+                try (ResultSet rs = statement.executeQuery("SELECT MAX(id) FROM " + table)) {
+                    rs.next();
+                    maxIds.put(table, rs.getLong(1));
+                }
+            }
+            maxIds.merge("bookings", 140L, Math::max);
+            assertEquals(75L, maxIds.get("users"));
+            return maxIds;
+        }
+    }
+
+    private static Map<String, Integer> pgIncrements(Connection connection) throws Exception {
+        Map<String, Integer> increments = new TreeMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT sequencename, increment_by FROM pg_sequences "
+                     + "WHERE sequencename LIKE '%\\_seq'")) {
+            while (rs.next()) {
+                increments.put(rs.getString(1), rs.getInt(2));
+            }
+        }
+        return increments;
+    }
+
+    private static Map<String, Integer> entitySequences() throws Exception {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Entity.class));
+        Map<String, Integer> sequences = new TreeMap<>();
+        for (BeanDefinition definition : scanner.findCandidateComponents("ru.practicum.shareit")) {
+            for (Field field : Class.forName(definition.getBeanClassName()).getDeclaredFields()) {
+                SequenceGenerator generator = field.getAnnotation(SequenceGenerator.class);
+                if (generator != null) {
+                    sequences.put(generator.sequenceName(), generator.allocationSize());
+                }
+            }
+        }
+        return sequences;
+    }
+
+    private static Map<String, Integer> sqlSequences(String script) throws Exception {
+        String sql = new ClassPathResource(script).getContentAsString(StandardCharsets.UTF_8);
+        Map<String, Integer> sequences = new TreeMap<>();
+        Matcher matcher = SEQUENCE.matcher(sql);
+        while (matcher.find()) {
+            sequences.put(matcher.group(1), Integer.parseInt(matcher.group(2)));
+        }
+        return sequences;
+    }
+}
@@ -0,0 +1,161 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Пакетные GET ?ids= для бронирований, вещей и пользователей: чужие бронирования и бронирования чужих вещей
+ * отфильтрованы, несуществующие id пропущены, больше 100 разных id — 400.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:multiget")
+class MultiGetTest {
+    private static final long MISSING = 999_999;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void bookingsAreVisibleOnlyToTheirBookerAndItemOwner() throws Exception {
+        long owner = user("owner");
+        long booker = user("booker");
+        long otherBooker = user("other-booker");
+        long otherOwner = user("other-owner");
+        long outsider = user("outsider");
+        long item = item(owner, "Дрель");
+        long otherItem = item(otherOwner, "Пила");
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        long own = booking(booker, item, start);
+        long othersOnOwnersItem = booking(otherBooker, item, start.plusDays(2));
+        long othersElsewhere = booking(otherBooker, otherItem, start);
+        String ids = "/bookings?ids=" + join(othersElsewhere, MISSING, othersOnOwnersItem, own);
+
+        assertEquals(List.of(Long.toString(own)), keys(get(ids, booker)));
+        assertEquals(List.of(Long.toString(othersOnOwnersItem), Long.toString(own)), keys(get(ids, owner)));
+        assertEquals(List.of(Long.toString(othersElsewhere), Long.toString(othersOnOwnersItem)),
+                keys(get(ids, otherBooker)));
+        assertEquals(List.of(), keys(get(ids, outsider)));
+        assertEquals(404, get(ids, MISSING).statusCode());
+    }
+
+    @Test
+    void itemsShowBookingsOnlyToOwnerAndOmitMissingIds() throws Exception {
+        long owner = user("items-owner");
+        long booker = user("items-booker");
+        long item = item(owner, "Лестница");
+        long other = item(booker, "Стремянка");
+        long next = booking(booker, item, LocalDateTime.now().plusDays(1));
+        assertEquals(200, call("PATCH", "/bookings/" + next + "?approved=true", owner, null).statusCode());
+        String ids = "/items?ids=" + join(MISSING, item, other);
+
+        JsonNode asOwner = json(get(ids, owner));
+        assertEquals(List.of(Long.toString(item), Long.toString(other)), keys(asOwner));
+        assertEquals(next, asOwner.get(Long.toString(item)).get("nextBooking").get("id").asLong());
+
+        JsonNode asBooker = json(get(ids, booker));
+        assertEquals(List.of(Long.toString(item), Long.toString(other)), keys(asBooker));
+        assertTrue(asBooker.get(Long.toString(item)).get("nextBooking").isNull(), asBooker.toString());
+    }
+
+    @Test
+    void usersOmitMissingIds() throws Exception {
+        long first = user("first");
+        long second = user("second");
+
+        assertEquals(List.of(Long.toString(second), Long.toString(first)),
+                keys(get("/users?ids=" + join(second, MISSING, first), null)));
+    }
+
+    @Test
+    void moreThanHundredDistinctIdsIsBadRequest() throws Exception {
+        long user = user("batch");
+        String hundred = join(LongStream.rangeClosed(1, 100).toArray());
+        String hundredOne = join(LongStream.rangeClosed(1, 101).toArray());
+        String repeated = Collections.nCopies(150, Long.toString(user)).stream().collect(Collectors.joining(","));
+
+        for (String path : List.of("/bookings?ids=", "/items?ids=", "/users?ids=")) {
+            assertEquals(200, get(path + hundred, user).statusCode(), path);
+            assertEquals(200, get(path + repeated, user).statusCode(), path);
+            HttpResponse<String> tooMany = get(path + hundredOne, user);
+            assertEquals(400, tooMany.statusCode(), path);
+            assertTrue(tooMany.body().contains("не более 100"), tooMany.body());
+        }
+    }
+
+    private long user(String name) throws Exception {
+        return id(call("POST", "/users", null,
+                "{\"name\":\"" + name + "\",\"email\":\"" + name + "@multiget.ru\"}"));
+    }
+
+    private long item(long owner, String name) throws Exception {
+        return id(call("POST", "/items", owner,
+                "{\"name\":\"" + name + "\",\"description\":\"" + name + "\",\"available\":true}"));
+    }
+
+    private long booking(long booker, long item, LocalDateTime start) throws Exception {
+        return id(call("POST", "/bookings", booker, "{\"itemId\":" + item + ",\"start\":\"" + start
+                + "\",\"end\":\"" + start.plusDays(1) + "\"}"));
+    }
+
+    private HttpResponse<String> get(String path, Long userId) throws Exception {
+        return call("GET", path, userId, null);
+    }
+
+    private HttpResponse<String> call(String method, String path, Long userId, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (userId != null) {
+            request.header("X-Sharer-User-Id", userId.toString());
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private long id(HttpResponse<String> response) throws Exception {
+        assertEquals(200, response.statusCode(), response.body());
+        return json(response).get("id").asLong();
+    }
+
+    private JsonNode json(HttpResponse<String> response) throws Exception {
+        assertEquals(200, response.statusCode(), response.body());
+        return objectMapper.readTree(response.body());
+    }
+
+    private List<String> keys(HttpResponse<String> response) throws Exception {
+        return keys(json(response));
+    }
+
+    private static List<String> keys(JsonNode node) {
+        List<String> keys = new ArrayList<>();
+        node.fieldNames().forEachRemaining(keys::add);
+        return keys;
+    }
+
+    private static String join(long... ids) {
+        return LongStream.of(ids).mapToObj(Long::toString).collect(Collectors.joining(","));
+    }
+}
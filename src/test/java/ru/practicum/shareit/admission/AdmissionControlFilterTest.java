@@ -0,0 +1,74 @@
+package ru.practicum.shareit.admission;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.practicum.shareit.item.controller.ItemController;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AdmissionControlFilterTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void overRateClientGets429WithRetryAfter() throws Exception {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setSearch(new AdmissionProperties.Budget(1, 0.1));
+        AdmissionControlFilter filter = filter(properties);
+
+        MockFilterChain passed = new MockFilterChain();
+        filter.doFilter(request("GET", "/items/search", "1"), new MockHttpServletResponse(), passed);
+        assertNotNull(passed.getRequest());
+
+        MockFilterChain rejected = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/items/search", "1"), response, rejected);
+        assertNull(rejected.getRequest());
+        assertEquals(429, response.getStatus());
+        assertEquals("10", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, registry.counter("shareit.admission.rejected", "reason", "rate_limit", "class", "search")
+                .count());
+
+        MockHttpServletResponse read = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/items", "1"), read, new MockFilterChain());
+        assertEquals(200, read.getStatus());
+    }
+
+    @Test
+    void requestsOverConcurrencyLimitGet503() throws Exception {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxConcurrentRequests(1);
+        properties.setConcurrencyWait(Duration.ZERO);
+        AdmissionControlFilter filter = filter(properties);
+
+        MockHttpServletResponse nested = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/items", "1"), new MockHttpServletResponse(),
+                (request, response) -> filter.doFilter(request("GET", "/items", "2"), nested, new MockFilterChain()));
+        assertEquals(503, nested.getStatus());
+        assertEquals("1", nested.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, registry.counter("shareit.admission.rejected", "reason", "overload", "class", "all").count());
+
+        MockHttpServletResponse after = new MockHttpServletResponse();
+        filter.doFilter(request("GET", "/items", "2"), after, new MockFilterChain());
+        assertEquals(200, after.getStatus());
+    }
+
+    private AdmissionControlFilter filter(AdmissionProperties properties) {
+        return new AdmissionControlFilter(properties, new ClientRateLimiter(properties), new ObjectMapper(), registry);
+    }
+
+    private static MockHttpServletRequest request(String method, String uri, String userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.addHeader(ItemController.USER_HEADER, userId);
+        return request;
+    }
+}
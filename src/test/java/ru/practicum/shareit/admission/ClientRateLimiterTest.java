@@ -0,0 +1,46 @@
+package ru.practicum.shareit.admission;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientRateLimiterTest {
+    @Test
+    void clientsAreBoundedAndNewClientsGetTheirOwnBuckets() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setMaxTrackedClients(32);
+        properties.setRead(new AdmissionProperties.Budget(1, 0.001));
+        ClientRateLimiter limiter = new ClientRateLimiter(properties);
+
+        assertEquals(0, limiter.tryAcquire("abuser", EndpointClass.READ));
+        assertTrue(limiter.tryAcquire("abuser", EndpointClass.READ) > 0);
+        assertEquals(0, limiter.tryAcquire("abuser", EndpointClass.WRITE));
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(0, limiter.tryAcquire("client-" + i, EndpointClass.READ));
+        }
+        assertEquals(32, limiter.trackedClients());
+
+        assertEquals(0, limiter.tryAcquire("latecomer", EndpointClass.READ));
+        assertTrue(limiter.tryAcquire("latecomer", EndpointClass.READ) > 0);
+        assertTrue(limiter.tryAcquire("client-9999", EndpointClass.READ) > 0);
+    }
+
+    @Test
+    void zeroRateStopsStartup() {
+        ApplicationContextRunner runner = new ApplicationContextRunner().withUserConfiguration(Properties.class);
+        runner.run(context -> assertNull(context.getStartupFailure()));
+        runner.withPropertyValues("shareit.admission.search.per-second=0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+        runner.withPropertyValues("shareit.admission.write.burst=0")
+                .run(context -> assertNotNull(context.getStartupFailure()));
+    }
+
+    @EnableConfigurationProperties(AdmissionProperties.class)
+    static class Properties {
+    }
+}
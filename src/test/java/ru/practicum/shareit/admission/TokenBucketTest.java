@@ -0,0 +1,68 @@
+package ru.practicum.shareit.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void burstThenOneTokenPerInterval() {
+        TokenBucket bucket = new TokenBucket(3, 2, 0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(0));
+        }
+        assertEquals(SECOND / 2, bucket.tryAcquire(0));
+        assertEquals(SECOND / 4, bucket.tryAcquire(SECOND / 4));
+
+        assertEquals(0, bucket.tryAcquire(SECOND / 2));
+        assertEquals(SECOND / 2, bucket.tryAcquire(SECOND / 2));
+
+        long idle = 10 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(idle));
+        }
+        assertEquals(SECOND / 2, bucket.tryAcquire(idle));
+    }
+
+    @Test
+    void concurrentCallersTakeExactlyTheBurst() throws Exception {
+        int callers = 32;
+        TokenBucket bucket = new TokenBucket(10, 1, 0);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return bucket.tryAcquire(0);
+                }));
+            }
+            start.countDown();
+            int admitted = 0;
+            for (Future<Long> result : results) {
+                if (result.get(10, TimeUnit.SECONDS) == 0) {
+                    admitted++;
+                }
+            }
+            assertEquals(10, admitted);
+        }
+    }
+
+    @Test
+    void invalidBudgetIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(10, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 10, 0));
+        assertThrows(ArithmeticException.class, () -> new TokenBucket(Integer.MAX_VALUE, 1e-9, 0));
+    }
+}
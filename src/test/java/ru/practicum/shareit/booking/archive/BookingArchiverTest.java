@@ -0,0 +1,110 @@
+package ru.practicum.shareit.booking.archive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.CommentDto;
+import ru.practicum.shareit.item.model.ItemDto;
+import ru.practicum.shareit.item.model.ItemWithComment;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:archive")
+class BookingArchiverTest {
+    @Autowired
+    private BookingArchiver bookingArchiver;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void movesOldBookingsAndKeepsSummary() {
+        long owner = userService.create(new UserDto(null, "owner", "owner@archive.ru")).getId();
+        long recent = userService.create(new UserDto(null, "recent", "recent@archive.ru")).getId();
+        long old = userService.create(new UserDto(null, "old", "old@archive.ru")).getId();
+        long item = itemService.create(ItemDto.builder().name("Дрель").description("Ударная").available(true)
+                .build(), owner).getId();
+        LocalDateTime now = LocalDateTime.now();
+        long oldApproved = book(item, old, owner, now.minusYears(3), true);
+        book(item, recent, owner, now.minusYears(3).plusDays(5), false);
+        long lastApproved = book(item, recent, owner, now.minusYears(2), true);
+
+        assertEquals(2, bookingArchiver.archive(now.minusDays(365)));
+        assertEquals(0, bookingArchiver.archive(now.minusDays(365)));
+
+        assertEquals(List.of(), bookingService.getBookingsByUser(old, "PAST", false, Set.of()));
+        List<BookingOut> archived = bookingService.getBookingsByUser(old, "PAST", true, Set.of());
+        assertEquals(List.of(oldApproved), archived.stream().map(BookingOut::getId).toList());
+        assertEquals(3, bookingService.getBookingsByOwner(owner, "ALL", true, Set.of()).size());
+        assertEquals(1, bookingService.getBookingsByOwner(owner, "REJECTED", true, Set.of()).size());
+        assertEquals(List.of(), bookingService.getBookingsByOwner(owner, "FUTURE", true, Set.of()));
+
+        CommentDto comment = new CommentDto();
+        comment.setText("Отличная дрель");
+        itemService.createComment(old, item, comment);
+        ItemWithComment card = itemService.getItemById(owner, item, Set.of());
+        assertEquals(lastApproved, card.getLastBooking().getId());
+    }
+
+    @Test
+    void keepsLastPastBookingWhenItemHasFutureOne() {
+        long owner = userService.create(new UserDto(null, "owner", "future-owner@archive.ru")).getId();
+        long booker = userService.create(new UserDto(null, "booker", "future-booker@archive.ru")).getId();
+        long item = itemService.create(ItemDto.builder().name("Пила").description("Цепная").available(true)
+                .build(), owner).getId();
+        LocalDateTime now = LocalDateTime.now();
+        long past = book(item, booker, owner, now.minusYears(3), true);
+        long future = book(item, booker, owner, now.plusDays(10), true);
+
+        assertEquals(0, bookingArchiver.archive(now.minusDays(365)));
+
+        ItemWithComment card = itemService.getItemById(owner, item, Set.of());
+        assertEquals(past, card.getLastBooking().getId());
+        assertEquals(future, card.getNextBooking().getId());
+    }
+
+    @Test
+    void onlyLeaseHolderArchives() {
+        long owner = userService.create(new UserDto(null, "owner", "lease-owner@archive.ru")).getId();
+        long booker = userService.create(new UserDto(null, "booker", "lease-booker@archive.ru")).getId();
+        long item = itemService.create(ItemDto.builder().name("Лестница").description("Три метра").available(true)
+                .build(), owner).getId();
+        LocalDateTime now = LocalDateTime.now();
+        book(item, booker, owner, now.minusYears(3), false);
+
+        jdbcTemplate.update("UPDATE scheduled_locks SET locked_until = ?, locked_by = 'other' WHERE name = ?",
+                now.plusHours(1), BookingArchiver.LEASE);
+        assertEquals(0, bookingArchiver.archive(now.minusDays(365)));
+
+        jdbcTemplate.update("UPDATE scheduled_locks SET locked_until = ? WHERE name = ?",
+                now.minusSeconds(1), BookingArchiver.LEASE);
+        assertEquals(1, bookingArchiver.archive(now.minusDays(365)));
+        assertEquals(List.of(), bookingService.getBookingsByOwner(owner, "ALL", false, Set.of()));
+    }
+
+    private long book(long item, long booker, long owner, LocalDateTime start, boolean approved) {
+        BookingDto booking = new BookingDto();
+        booking.setItemId(item);
+        booking.setStart(start);
+        booking.setEnd(start.plusDays(1));
+        long id = bookingService.create(booker, booking, Set.of()).getId();
+        bookingService.update(owner, approved, id, Set.of());
+        return id;
+    }
+}
@@ -0,0 +1,169 @@
+package ru.practicum.shareit.booking.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.BookingExpand;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.item.model.ItemDto;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Фильтры state списков бронирований арендатора и владельца: какие бронирования попадают в выборку
+ * и в каком порядке (по началу, от поздних к ранним).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:bookinglists")
+class BookingListsTest {
+    private static final AtomicInteger USERS = new AtomicInteger();
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserService userService;
+
+    private long owner;
+    private long booker;
+    private long pastApproved;
+    private long pastRejected;
+    private long current;
+    private long futureWaiting;
+    private long otherOwnersItem;
+    private long futureApproved;
+    private long strangers;
+
+    /**
+     * У арендатора бронирования в прошлом, настоящем и будущем на вещь владельца и одно на чужую вещь;
+     * у владельца ещё одно бронирование другого арендатора.
+     */
+    @BeforeEach
+    void bookings() {
+        owner = user("owner");
+        booker = user("booker");
+        long stranger = user("stranger");
+        long otherOwner = user("other-owner");
+        long item = item(owner, "Дрель");
+        long otherItem = item(otherOwner, "Пила");
+        LocalDateTime now = LocalDateTime.now();
+
+        pastApproved = book(item, booker, now.minusDays(10), true);
+        pastRejected = book(item, booker, now.minusDays(5), false);
+        current = book(item, booker, now.minusHours(12), true);
+        futureWaiting = book(item, booker, now.plusDays(2), null);
+        otherOwnersItem = book(otherItem, booker, now.plusDays(4), null);
+        futureApproved = book(item, booker, now.plusDays(5), true);
+        strangers = book(item, stranger, now.plusDays(7), null);
+    }
+
+    @Test
+    void bookerStatesFilterAndSortByStartDescending() {
+        assertEquals(List.of(futureApproved, otherOwnersItem, futureWaiting, current, pastRejected, pastApproved),
+                byBooker("ALL"));
+        assertEquals(List.of(current), byBooker("CURRENT"));
+        assertEquals(List.of(pastRejected, pastApproved), byBooker("PAST"));
+        assertEquals(List.of(futureApproved, otherOwnersItem, futureWaiting), byBooker("FUTURE"));
+        assertEquals(List.of(otherOwnersItem, futureWaiting), byBooker("WAITING"));
+        assertEquals(List.of(pastRejected), byBooker("REJECTED"));
+    }
+
+    @Test
+    void ownerStatesFilterAndSortByStartDescending() {
+        assertEquals(List.of(strangers, futureApproved, futureWaiting, current, pastRejected, pastApproved),
+                byOwner("ALL"));
+        assertEquals(List.of(current), byOwner("CURRENT"));
+        assertEquals(List.of(pastRejected, pastApproved), byOwner("PAST"));
+        assertEquals(List.of(strangers, futureApproved, futureWaiting), byOwner("FUTURE"));
+        assertEquals(List.of(strangers, futureWaiting), byOwner("WAITING"));
+        assertEquals(List.of(pastRejected), byOwner("REJECTED"));
+    }
+
+    @Test
+    void expandFillsItemAndBookerOnlyWhenRequested() throws Exception {
+        BookingOut plain = bookingService.getBookingsByUser(booker, "CURRENT", false, Set.of()).get(0);
+        assertNull(plain.getItem());
+        assertNull(plain.getBooker());
+
+        BookingOut expanded = bookingService.getBookingsByOwner(owner, "CURRENT", false,
+                EnumSet.allOf(BookingExpand.class)).get(0);
+        assertEquals("Дрель", expanded.getItem().getName());
+        assertEquals(booker, expanded.getBooker().getId());
+
+        HttpResponse<String> response = get("/bookings?state=CURRENT&expand=item,booker", booker);
+        assertEquals(200, response.statusCode(), response.body());
+        assertTrue(response.body().contains("\"name\":\"Дрель\""), response.body());
+        assertTrue(response.body().contains("\"email\":\"booker"), response.body());
+
+        HttpResponse<String> unknown = get("/bookings/owner?state=ALL&expand=item,owner", owner);
+        assertEquals(400, unknown.statusCode(), unknown.body());
+        assertTrue(unknown.body().contains("Unknown expand: owner"), unknown.body());
+    }
+
+    private List<Long> byBooker(String state) {
+        return bookingService.getBookingsByUser(booker, state, false, Set.of()).stream()
+                .map(BookingOut::getId)
+                .toList();
+    }
+
+    private List<Long> byOwner(String state) {
+        return bookingService.getBookingsByOwner(owner, state, false, Set.of()).stream()
+                .map(BookingOut::getId)
+                .toList();
+    }
+
+    private long user(String name) {
+        String email = name + USERS.incrementAndGet() + "@lists.ru";
+        return userService.create(new UserDto(null, name, email)).getId();
+    }
+
+    private long item(long itemOwner, String name) {
+        return itemService.create(ItemDto.builder().name(name).description(name).available(true).build(), itemOwner)
+                .getId();
+    }
+
+    /**
+     * Бронирование на сутки; решение принимает owner, approved == null оставляет его в WAITING.
+     */
+    private long book(long item, long user, LocalDateTime start, Boolean approved) {
+        BookingDto booking = new BookingDto();
+        booking.setItemId(item);
+        booking.setStart(start);
+        booking.setEnd(start.plusDays(1));
+        long id = bookingService.create(user, booking, Set.of()).getId();
+        if (approved != null) {
+            bookingService.update(owner, approved, id, Set.of());
+        }
+        return id;
+    }
+
+    private HttpResponse<String> get(String path, long userId) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("X-Sharer-User-Id", Long.toString(userId))
+                .build();
+        return http.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,126 @@
+package ru.practicum.shareit.booking.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.booking.model.Status;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Сверяет бинарные поиски таймлайна с полным перебором на случайных бронированиях.
+ */
+class BookingTimelineTest {
+    private static final int APPROVED = BookingTimeline.mask(Status.APPROVED);
+    private static final int ACTIVE = BookingTimeline.mask(Status.APPROVED, Status.WAITING);
+
+    private record Slot(long id, long start, long end, Status status) {
+    }
+
+    @Test
+    void queriesMatchFullScan() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<Slot> slots = new ArrayList<>();
+            BookingTimeline timeline = BookingTimeline.EMPTY;
+            int size = random.nextInt(40);
+            for (long id = 1; id <= size; id++) {
+                long start = random.nextInt(1_000);
+                Slot slot = new Slot(id, start, start + 1 + random.nextInt(200),
+                        Status.values()[random.nextInt(Status.values().length)]);
+                slots.add(slot);
+                timeline = timeline.with(slot.id(), slot.start(), slot.end(), 100 + id, slot.status());
+            }
+            if (size > 0 && random.nextBoolean()) {
+                Slot old = slots.remove(random.nextInt(slots.size()));
+                Slot approved = new Slot(old.id(), old.start(), old.end(), Status.APPROVED);
+                slots.add(approved);
+                timeline = timeline.with(approved.id(), approved.start(), approved.end(), 100 + approved.id(),
+                        Status.APPROVED);
+            }
+            assertEquals(slots.size(), timeline.size());
+
+            for (int probe = 0; probe < 50; probe++) {
+                long now = random.nextInt(1_300) - 50;
+                assertEquals(expectedLast(slots, now), endOf(timeline, timeline.lastEndedBefore(now, APPROVED)));
+                assertEquals(expectedNext(slots, now), startOf(timeline, timeline.nextStartingAfter(now, APPROVED)));
+
+                long to = now + 1 + random.nextInt(100);
+                boolean overlaps = slots.stream().anyMatch(slot -> slot.start() < to && slot.end() > now
+                        && (slot.status() == Status.APPROVED || slot.status() == Status.WAITING));
+                assertEquals(overlaps, timeline.overlaps(now, to, ACTIVE));
+            }
+        }
+    }
+
+    @Test
+    void freeWindowsMatchFullScan() {
+        long hour = 3_600_000_000L;
+        long origin = BookingTimeline.toMicros(LocalDateTime.of(2024, 1, 1, 0, 0));
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            List<Slot> slots = new ArrayList<>();
+            BookingTimeline timeline = BookingTimeline.EMPTY;
+            int size = random.nextInt(20);
+            for (long id = 1; id <= size; id++) {
+                long start = origin + random.nextInt(60 * 24) * hour;
+                Slot slot = new Slot(id, start, start + (1 + random.nextInt(24 * 5)) * hour,
+                        Status.values()[random.nextInt(Status.values().length)]);
+                slots.add(slot);
+                timeline = timeline.with(slot.id(), slot.start(), slot.end(), 100 + id, slot.status());
+            }
+
+            for (int probe = 0; probe < 50; probe++) {
+                long from = origin + (random.nextInt(70 * 24) - 5 * 24) * hour;
+                long to = from + (1 + random.nextInt(24 * 7)) * hour;
+                boolean free = slots.stream().noneMatch(slot -> slot.status() == Status.APPROVED
+                        && slot.start() < to && slot.end() > from);
+                assertEquals(free, timeline.isFree(from, to));
+            }
+        }
+    }
+
+    @Test
+    void convertsBackToBooking() {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_456_000);
+        LocalDateTime end = start.plusDays(2);
+        BookingTimeline timeline = BookingTimeline.EMPTY.with(7, BookingTimeline.toMicros(start),
+                BookingTimeline.toMicros(end), 3, Status.APPROVED);
+
+        BookingOut booking = timeline.toBookingOut(5, timeline.nextStartingAfter(0, APPROVED));
+
+        assertEquals(new BookingOut(7L, start, end, Status.APPROVED, 5L, 3L), booking);
+        assertNull(timeline.toBookingOut(5, timeline.lastEndedBefore(BookingTimeline.toMicros(start), APPROVED)));
+    }
+
+    private static Long expectedLast(List<Slot> slots, long now) {
+        return slots.stream()
+                .filter(slot -> slot.status() == Status.APPROVED && slot.end() < now)
+                .map(Slot::end)
+                .max(Long::compare)
+                .orElse(null);
+    }
+
+    private static Long expectedNext(List<Slot> slots, long now) {
+        return slots.stream()
+                .filter(slot -> slot.status() == Status.APPROVED && slot.start() > now)
+                .map(Slot::start)
+                .min(Long::compare)
+                .orElse(null);
+    }
+
+    private static Long endOf(BookingTimeline timeline, int index) {
+        BookingOut booking = timeline.toBookingOut(1, index);
+        return booking == null ? null : BookingTimeline.toMicros(booking.getEnd());
+    }
+
+    private static Long startOf(BookingTimeline timeline, int index) {
+        BookingOut booking = timeline.toBookingOut(1, index);
+        return booking == null ? null : BookingTimeline.toMicros(booking.getStart());
+    }
+}
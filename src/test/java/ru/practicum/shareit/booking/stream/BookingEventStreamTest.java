@@ -0,0 +1,129 @@
+package ru.practicum.shareit.booking.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Потоки отправки придержаны до конца теста, поэтому события копятся в очередях подписчиков
+ * и переполнение наступает детерминированно.
+ */
+class BookingEventStreamTest {
+    private static final long OWNER = 1;
+    private static final long BOOKER = 2;
+    private static final long OUTSIDER = 3;
+
+    private final CountDownLatch senders = new CountDownLatch(1);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final BookingStreamProperties properties = new BookingStreamProperties();
+
+    @AfterEach
+    void releaseSenders() {
+        senders.countDown();
+    }
+
+    @Test
+    void defaultsLimitSubscribers() {
+        assertEquals(20_000, properties.getMaxSubscribers());
+        assertEquals(5, properties.getMaxSubscribersPerUser());
+    }
+
+    @Test
+    void publishedEventReachesBookerAndOwnerOnly() {
+        properties.setBufferSize(1);
+        BookingEventStream stream = stream();
+        stream.subscribe(OWNER);
+        stream.subscribe(BOOKER);
+        stream.subscribe(OUTSIDER);
+
+        stream.publish(booking(), OWNER);
+        assertEquals(3, stream.subscriberCount());
+        assertEquals(0, dropped());
+
+        stream.publish(booking(), OWNER);
+        assertEquals(1, stream.subscriberCount());
+        assertEquals(2, dropped());
+    }
+
+    @Test
+    void subscriberWithFullQueueIsDisconnected() {
+        properties.setBufferSize(3);
+        BookingEventStream stream = stream();
+        stream.subscribe(BOOKER);
+        stream.subscribe(BOOKER);
+
+        for (int i = 0; i < 3; i++) {
+            stream.publish(booking(), OWNER);
+        }
+        assertEquals(2, stream.subscriberCount());
+
+        stream.publish(booking(), OWNER);
+        assertEquals(0, stream.subscriberCount());
+        assertEquals(2, dropped());
+
+        stream.subscribe(BOOKER);
+        assertEquals(1, stream.subscriberCount());
+    }
+
+    @Test
+    void userCannotOpenMoreThanFiveStreams() {
+        BookingEventStream stream = stream();
+        for (int i = 0; i < 5; i++) {
+            stream.subscribe(BOOKER);
+        }
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> stream.subscribe(BOOKER));
+        assertEquals("Не более 5 подписок на пользователя", e.getMessage());
+        assertEquals(5, stream.subscriberCount());
+        stream.subscribe(OWNER);
+        assertEquals(6, stream.subscriberCount());
+    }
+
+    @Test
+    void globalLimitRejectsWithServiceUnavailable() {
+        properties.setMaxSubscribers(3);
+        properties.setBufferSize(1);
+        BookingEventStream stream = stream();
+        stream.subscribe(OWNER);
+        stream.subscribe(BOOKER);
+        stream.subscribe(BOOKER);
+
+        assertThrows(ServiceUnavailableException.class, () -> stream.subscribe(OUTSIDER));
+        assertEquals(3, stream.subscriberCount());
+
+        stream.publish(booking(), BOOKER);
+        stream.publish(booking(), BOOKER);
+        assertEquals(1, stream.subscriberCount());
+        stream.subscribe(OUTSIDER);
+        assertEquals(2, stream.subscriberCount());
+    }
+
+    private BookingEventStream stream() {
+        return new BookingEventStream(properties, meterRegistry, task -> Thread.ofVirtual().unstarted(() -> {
+            try {
+                senders.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            task.run();
+        }));
+    }
+
+    private static BookingOut booking() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        return new BookingOut(10L, start, start.plusDays(1), Status.APPROVED, 20L, BOOKER);
+    }
+
+    private double dropped() {
+        return meterRegistry.counter("shareit.booking_stream.dropped").count();
+    }
+}
@@ -0,0 +1,170 @@
+package ru.practicum.shareit.coherence;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApplication;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.booking.storage.BookingTimeline;
+import ru.practicum.shareit.booking.storage.BookingTimelineStore;
+import ru.practicum.shareit.item.model.BookingStats;
+import ru.practicum.shareit.item.model.ItemSuggestion;
+import ru.practicum.shareit.item.storage.ItemGeoIndex;
+import ru.practicum.shareit.item.storage.ItemStatsStore;
+import ru.practicum.shareit.item.storage.ItemSuggestionIndex;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Два узла приложения над одной базой H2 с локальной шиной инвалидаций: изменение вещи на одном узле
+ * должно дойти до индексов другого не позже STALENESS, запоздавшая инвалидация — не менять ничего.
+ * Так же до другого узла доходят бронирования: таймлайн, статистика владельца и популярность вещи.
+ */
+class ItemCacheCoherenceTest {
+    private static final Duration STALENESS = Duration.ofSeconds(2);
+    private static final String DATABASE = "jdbc:h2:mem:coherence;DB_CLOSE_DELAY=-1";
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @Test
+    void nodesSeeEachOtherItemChanges() throws Exception {
+        try (ConfigurableApplicationContext first = node("always");
+             ConfigurableApplicationContext second = node("never")) {
+            ItemSuggestionIndex firstNames = first.getBean(ItemSuggestionIndex.class);
+            ItemSuggestionIndex secondNames = second.getBean(ItemSuggestionIndex.class);
+            ItemGeoIndex secondPlaces = second.getBean(ItemGeoIndex.class);
+
+            long owner = id(send(first, "POST", "/users", null, "{\"name\":\"owner\",\"email\":\"owner@mail.ru\"}"));
+            long item = id(send(first, "POST", "/items", owner,
+                    "{\"name\":\"Дрель\",\"description\":\"Ударная\",\"available\":true,\"category\":\"Инструменты\"}"));
+            awaitWithin(() -> names(secondNames, "дрель").equals(List.of(item))
+                    && secondPlaces.find("инструменты", null, null, null).equals(List.of(item)));
+
+            send(second, "PATCH", "/items/" + item, owner, "{\"name\":\"Перфоратор\"}");
+            awaitWithin(() -> names(firstNames, "перф").equals(List.of(item)) && names(firstNames, "дрель").isEmpty());
+
+            double stale = stale(second);
+            second.getBean(ItemCacheCoherence.class).onInvalidation(new ItemInvalidation("late", item, 0));
+            assertEquals(stale + 1, stale(second));
+            assertEquals(List.of(item), names(secondNames, "перф"));
+
+            send(first, "PATCH", "/items/" + item, owner, "{\"available\":false}");
+            awaitWithin(() -> names(secondNames, "перф").isEmpty()
+                    && secondPlaces.find("инструменты", null, null, null).isEmpty());
+
+            send(second, "PATCH", "/items/" + item, owner, "{\"available\":true}");
+            awaitWithin(() -> names(firstNames, "перф").equals(List.of(item)));
+            send(second, "DELETE", "/items/" + item, owner, null);
+            awaitWithin(() -> names(firstNames, "перф").isEmpty());
+            assertTrue(firstNames.version(item) > 0);
+        }
+    }
+
+    @Test
+    void nodesSeeEachOtherBookings() throws Exception {
+        try (ConfigurableApplicationContext first = node("always");
+             ConfigurableApplicationContext second = node("never")) {
+            long owner = id(send(first, "POST", "/users", null, "{\"name\":\"owner\",\"email\":\"owner@mail.ru\"}"));
+            long booker = id(send(first, "POST", "/users", null, "{\"name\":\"booker\",\"email\":\"booker@mail.ru\"}"));
+            long item = id(send(first, "POST", "/items", owner,
+                    "{\"name\":\"Дрель\",\"description\":\"Ударная\",\"available\":true}"));
+            LocalDateTime start = LocalDateTime.now().plusDays(1);
+            long booking = id(send(second, "POST", "/bookings", booker, "{\"itemId\":" + item
+                    + ",\"start\":\"" + start + "\",\"end\":\"" + start.plusDays(2) + "\"}"));
+
+            BookingTimelineStore firstTimelines = first.getBean(BookingTimelineStore.class);
+            ItemStatsStore firstStats = first.getBean(ItemStatsStore.class);
+            awaitWithin(() -> status(firstTimelines.get(item)) == Status.WAITING
+                    && total(firstStats, owner).getBookings() == 1);
+
+            send(first, "PATCH", "/bookings/" + booking + "?approved=true", owner, null);
+            BookingTimelineStore secondTimelines = second.getBean(BookingTimelineStore.class);
+            ItemStatsStore secondStats = second.getBean(ItemStatsStore.class);
+            ItemSuggestionIndex secondNames = second.getBean(ItemSuggestionIndex.class);
+            awaitWithin(() -> status(secondTimelines.get(item)) == Status.APPROVED
+                    && total(secondStats, owner).getApproved() == 1
+                    && secondNames.suggest("дрель", 1).get(0).getBookings() == 1);
+            assertEquals(1, total(secondStats, owner).getBookings());
+            assertEquals(1, total(firstStats, owner).getApproved());
+        }
+    }
+
+    private static Status status(BookingTimeline timeline) {
+        return timeline.size() == 1 ? timeline.toBookingOut(0, 0).getStatus() : null;
+    }
+
+    private static BookingStats total(ItemStatsStore stats, long owner) {
+        return stats.ownerStats(owner, null, null).getTotal();
+    }
+
+    private static ConfigurableApplicationContext node(String schemaInit) {
+        return new SpringApplicationBuilder(ShareItApplication.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=" + DATABASE,
+                "--spring.sql.init.mode=" + schemaInit,
+                "--shareit.coherence.bus=local",
+                "--shareit.admission.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--logging.level.ru.practicum.shareit=WARN");
+    }
+
+    /**
+     * Ждёт, пока условие станет верным; дольше STALENESS — ошибка.
+     */
+    private static void awaitWithin(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + STALENESS.toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Узел не увидел изменение за " + STALENESS);
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private static List<Long> names(ItemSuggestionIndex index, String text) {
+        return index.suggest(text, 10).stream().map(ItemSuggestion::getId).toList();
+    }
+
+    private static double stale(ConfigurableApplicationContext node) {
+        return node.getBean(MeterRegistry.class)
+                .counter("shareit.coherence.invalidations", "outcome", "stale").count();
+    }
+
+    private HttpResponse<String> send(ConfigurableApplicationContext node, String method, String path, Long userId,
+                                      String body) throws Exception {
+        int port = ((ServletWebServerApplicationContext) node).getWebServer().getPort();
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (userId != null) {
+            request.header("X-Sharer-User-Id", userId.toString());
+        }
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(2, response.statusCode() / 100, method + " " + path + ": " + response.body());
+        return response;
+    }
+
+    private static long id(HttpResponse<String> response) {
+        Matcher matcher = ID.matcher(response.body());
+        assertTrue(matcher.find(), response.body());
+        return Long.parseLong(matcher.group(1));
+    }
+}
@@ -0,0 +1,117 @@
+package ru.practicum.shareit.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.practicum.shareit.booking.model.BookingOut;
+import ru.practicum.shareit.booking.model.Status;
+import ru.practicum.shareit.item.model.CommentDto;
+import ru.practicum.shareit.item.model.ItemDto;
+import ru.practicum.shareit.item.model.ItemWithComment;
+import ru.practicum.shareit.user.model.UserDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сравнивает размер и время кодирования типичных ответов (GET /items владельца, история бронирований
+ * с expand=item,booker) в JSON, Smile и CBOR, без сжатия и с gzip.
+ * <p>
+ * Запуск: {@code mvn test -Pbenchmark -Dtest=PayloadFormatBenchmarkTest}.
+ */
+@Tag("benchmark")
+class PayloadFormatBenchmarkTest {
+    private static final int WARMUP = 300;
+    private static final int ITERATIONS = 1000;
+
+    @Test
+    void compareFormats() throws IOException {
+        List<ItemWithComment> dashboard = ownerDashboard(200);
+        List<BookingOut> history = bookingHistory(500);
+
+        ObjectMapper json = builder().build();
+        ObjectMapper smile = BinaryFormatsConfig.smileMapper(builder());
+        ObjectMapper cbor = BinaryFormatsConfig.cborMapper(builder());
+
+        System.out.printf("%-10s %-6s %10s %10s %12s%n", "payload", "format", "bytes", "gzip", "encode, us");
+        for (Object[] payload : new Object[][]{{"items", dashboard}, {"bookings", history}}) {
+            long jsonBytes = measure((String) payload[0], "json", json, payload[1]);
+            long smileBytes = measure((String) payload[0], "smile", smile, payload[1]);
+            long cborBytes = measure((String) payload[0], "cbor", cbor, payload[1]);
+            assertTrue(smileBytes < jsonBytes);
+            assertTrue(cborBytes < jsonBytes);
+        }
+    }
+
+    private long measure(String payload, String format, ObjectMapper mapper, Object value) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(value);
+        for (int i = 0; i < WARMUP; i++) {
+            mapper.writeValueAsBytes(value);
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mapper.writeValueAsBytes(value);
+        }
+        long avgMicros = (System.nanoTime() - started) / ITERATIONS / 1_000;
+        System.out.printf("%-10s %-6s %10d %10d %12d%n", payload, format, bytes.length, gzip(bytes), avgMicros);
+        return bytes.length;
+    }
+
+    private static int gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.size();
+    }
+
+    private static Jackson2ObjectMapperBuilder builder() {
+        // то же, что настраивает Spring Boot: даты строками ISO-8601
+        return new Jackson2ObjectMapperBuilder().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    private static List<ItemWithComment> ownerDashboard(int size) {
+        LocalDateTime now = LocalDateTime.of(2024, 7, 1, 12, 0);
+        List<ItemWithComment> items = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            List<CommentDto> comments = new ArrayList<>();
+            for (long c = 1; c <= 5; c++) {
+                CommentDto comment = new CommentDto();
+                comment.setId(id * 10 + c);
+                comment.setText("Отличная вещь, всё работало, вернул вовремя #" + c);
+                comment.setItemId(id);
+                comment.setAuthor(c);
+                comment.setAuthorName("Арендатор " + c);
+                comment.setCreated(now.minusDays(c));
+                comments.add(comment);
+            }
+            items.add(new ItemWithComment(id, "Дрель " + id, "Ударная дрель с набором свёрл, модель " + id, true,
+                    new BookingOut(id * 2, now.minusDays(3), now.minusDays(1), Status.APPROVED, id, 7L),
+                    new BookingOut(id * 2 + 1, now.plusDays(1), now.plusDays(2), Status.APPROVED, id, 8L),
+                    comments));
+        }
+        return items;
+    }
+
+    private static List<BookingOut> bookingHistory(int size) {
+        LocalDateTime now = LocalDateTime.of(2024, 7, 1, 12, 0);
+        List<BookingOut> bookings = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            long itemId = id % 50 + 1;
+            bookings.add(new BookingOut(id, now.minusDays(id), now.minusDays(id).plusHours(5), Status.APPROVED,
+                    itemId, 7L,
+                    new ItemDto(itemId, "Дрель " + itemId, "Ударная дрель с набором свёрл", true, null,
+                            "инструменты", 55.75, 37.62),
+                    new UserDto(7L, "Арендатор", "booker@example.com")));
+        }
+        return bookings;
+    }
+}
@@ -0,0 +1,61 @@
+package ru.practicum.shareit.config;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.singleflight.SingleFlight;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Основная БД и реплика — две разные базы H2 в памяти, схема реплики создаётся тем же schema.sql до старта контекста.
+ * Куда ушёл запрос, видно по имени базы.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing",
+        "shareit.datasource.replica.jdbc-url=" + ReadReplicaDataSourceConfigTest.REPLICA_URL,
+        "shareit.datasource.replica.username=sa"})
+class ReadReplicaDataSourceConfigTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:routingreplica;DB_CLOSE_DELAY=-1";
+    private static final String DATABASE = "SELECT DATABASE()";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private SingleFlight singleFlight;
+
+    @BeforeAll
+    static void createReplicaSchema() throws Exception {
+        try (Connection connection = DriverManager.getConnection(REPLICA_URL, "sa", "")) {
+            connection.createStatement().execute("RUNSCRIPT FROM 'classpath:schema.sql'");
+        }
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicaExceptPrimaryReads() {
+        TransactionTemplate write = new TransactionTemplate(transactionManager);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        assertEquals("ROUTING", write.execute(status -> database()));
+        assertEquals("ROUTINGREPLICA", readOnly.execute(status -> database()));
+        assertEquals("ROUTING", PrimaryReads.call(() -> readOnly.execute(status -> database())));
+        assertEquals("ROUTING", singleFlight.read("database", 0L, this::database));
+        assertEquals("ROUTINGREPLICA", readOnly.execute(status -> database()));
+    }
+
+    private String database() {
+        return jdbcTemplate.queryForObject(DATABASE, String.class);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.shareit.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.datasource.url=jdbc:h2:mem:idempotency")
+class IdempotencyFilterTest {
+    private static final int RETRIES = 8;
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void concurrentRetriesCreateOneItem() throws Exception {
+        long owner = id(post("/users", null, null, "{\"name\":\"owner\",\"email\":\"retry@mail.ru\"}").body());
+        String item = "{\"name\":\"Дрель\",\"description\":\"Ударная\",\"available\":true}";
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<HttpResponse<String>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(RETRIES)) {
+            for (int i = 0; i < RETRIES; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return post("/items", owner, "create-drill", item);
+                }));
+            }
+            start.countDown();
+
+            List<String> bodies = new ArrayList<>();
+            int replayed = 0;
+            for (Future<HttpResponse<String>> result : results) {
+                HttpResponse<String> response = result.get(30, TimeUnit.SECONDS);
+                assertEquals(200, response.statusCode(), response.body());
+                bodies.add(response.body());
+                if (response.headers().firstValue(IdempotencyFilter.REPLAYED).isPresent()) {
+                    replayed++;
+                }
+            }
+            assertEquals(RETRIES - 1, replayed);
+            assertTrue(bodies.stream().allMatch(bodies.get(0)::equals), bodies.toString());
+        }
+        String items = http.send(HttpRequest.newBuilder(uri("/items"))
+                .header("X-Sharer-User-Id", Long.toString(owner)).build(), HttpResponse.BodyHandlers.ofString()).body();
+        assertEquals(1, ID.matcher(items).results().count(), items);
+
+        HttpResponse<String> other = post("/items", owner, "create-drill", item.replace("Дрель", "Пила"));
+        assertEquals(422, other.statusCode(), other.body());
+        HttpResponse<String> fresh = post("/items", owner, "create-saw", item.replace("Дрель", "Пила"));
+        assertEquals(200, fresh.statusCode(), fresh.body());
+        assertNull(fresh.headers().firstValue(IdempotencyFilter.REPLAYED).orElse(null));
+    }
+
+    private HttpResponse<String> post(String path, Long userId, String key, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (userId != null) {
+            request.header("X-Sharer-User-Id", userId.toString());
+        }
+        if (key != null) {
+            request.header(IdempotencyFilter.IDEMPOTENCY_KEY, key);
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static long id(String json) {
+        Matcher matcher = ID.matcher(json);
+        assertTrue(matcher.find(), json);
+        return Long.parseLong(matcher.group(1));
+    }
+}
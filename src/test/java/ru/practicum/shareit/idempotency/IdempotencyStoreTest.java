@@ -0,0 +1,32 @@
+package ru.practicum.shareit.idempotency;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.exception.ServiceUnavailableException;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyStoreTest {
+    @Test
+    void runningRequestsAreNeverEvicted() {
+        IdempotencyProperties properties = new IdempotencyProperties();
+        properties.setMaxKeys(2);
+        properties.setTtl(Duration.ZERO);
+        IdempotencyStore store = new IdempotencyStore(properties);
+
+        IdempotencyStore.Claim first = store.claim("1:/items:a", "x");
+        IdempotencyStore.Claim second = store.claim("1:/items:b", "x");
+        assertThrows(ServiceUnavailableException.class, () -> store.claim("1:/items:c", "x"));
+        assertFalse(store.claim("1:/items:a", "x").owner());
+
+        store.complete("1:/items:a", first.entry(), new IdempotencyStore.StoredResponse(200, null, new byte[0]));
+        assertTrue(store.claim("1:/items:c", "x").owner());
+        assertFalse(store.claim("1:/items:b", "x").owner());
+        assertEquals(second.entry(), store.claim("1:/items:b", "x").entry());
+        assertEquals(2, store.size());
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.CommentDto;
+import ru.practicum.shareit.item.model.ItemDashboard;
+import ru.practicum.shareit.item.model.ItemDto;
+import ru.practicum.shareit.item.model.ItemWithComment;
+import ru.practicum.shareit.item.storage.ItemDashboardRepository;
+import ru.practicum.shareit.user.model.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:dashboard")
+class ItemDashboardRefresherTest {
+    @Autowired
+    private ItemDashboardRefresher itemDashboardRefresher;
+    @Autowired
+    private ItemDashboardService itemDashboardService;
+    @Autowired
+    private ItemDashboardRepository itemDashboardRepository;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void expiredRowIsServedFreshWithoutWriteAndRebuiltBySchedule() throws Exception {
+        long owner = userService.create(new UserDto(null, "owner", "owner@dashboard.ru")).getId();
+        long booker = userService.create(new UserDto(null, "booker", "booker@dashboard.ru")).getId();
+        long item = itemService.create(ItemDto.builder().name("Дрель").description("Ударная").available(true)
+                .build(), owner).getId();
+        BookingDto booking = new BookingDto();
+        booking.setItemId(item);
+        booking.setStart(LocalDateTime.now().plusSeconds(1));
+        booking.setEnd(booking.getStart().plusSeconds(1));
+        long id = bookingService.create(booker, booking, Set.of()).getId();
+        bookingService.update(owner, true, id, Set.of());
+        Thread.sleep(2_500);
+
+        ItemWithComment row = itemService.getAllItems(owner, Set.of()).iterator().next();
+        assertEquals(id, row.getLastBooking().getId());
+        assertNull(row.getNextBooking());
+        assertNull(itemDashboardRepository.findById(item).orElseThrow().getLastBooking());
+        assertEquals(List.of(item), itemDashboardService.findExpired(10));
+
+        itemDashboardRefresher.refreshExpired();
+        assertNotNull(itemDashboardRepository.findById(item).orElseThrow().getLastBooking());
+        assertEquals(List.of(), itemDashboardService.findExpired(10));
+        assertEquals(id, itemService.getItems(owner, List.of(item), Set.of()).get(item).getLastBooking().getId());
+    }
+
+    @Test
+    void rowKeepsLatestCommentsAndTotalCount() throws Exception {
+        long owner = userService.create(new UserDto(null, "owner", "owner@comments.ru")).getId();
+        long booker = userService.create(new UserDto(null, "booker", "booker@comments.ru")).getId();
+        long item = itemService.create(ItemDto.builder().name("Пила").description("Ручная").available(true)
+                .build(), owner).getId();
+        BookingDto booking = new BookingDto();
+        booking.setItemId(item);
+        booking.setStart(LocalDateTime.now().plusSeconds(1));
+        booking.setEnd(booking.getStart().plusSeconds(1));
+        bookingService.update(owner, true, bookingService.create(booker, booking, Set.of()).getId(), Set.of());
+        Thread.sleep(2_500);
+        int total = ItemDashboardServiceImpl.LATEST_COMMENTS + 2;
+        for (int i = 0; i < total; i++) {
+            CommentDto comment = new CommentDto();
+            comment.setText("Отзыв " + i);
+            itemService.createComment(booker, item, comment);
+        }
+
+        ItemDashboard row = itemDashboardRepository.findById(item).orElseThrow();
+        assertEquals(total, row.getCommentCount());
+        List<CommentDto> comments = itemService.getAllItems(owner, Set.of()).iterator().next().getComments();
+        assertEquals(ItemDashboardServiceImpl.LATEST_COMMENTS, comments.size());
+        assertEquals("Отзыв " + (total - 1), comments.get(0).getText());
+
+        userService.update(booker, new UserDto(null, "Арендатор", null));
+        comments = itemService.getAllItems(owner, Set.of()).iterator().next().getComments();
+        assertEquals("Арендатор", comments.get(0).getAuthorName());
+        assertEquals(List.of(item), itemDashboardService.findExpired(10));
+        itemDashboardRefresher.refreshExpired();
+        assertTrue(itemDashboardRepository.findById(item).orElseThrow().getComments().contains("Арендатор"));
+    }
+}
@@ -0,0 +1,113 @@
+package ru.practicum.shareit.item.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.config.StoreProperties;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Сверяет поиск по ячейкам и категориям с полным перебором, в том числе у 180-го меридиана и полюсов.
+ */
+class ItemGeoIndexTest {
+    private static final String BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz";
+    private static final List<String> CATEGORIES = List.of("Дрели", "пилы", "лестницы");
+
+    private final ItemGeoIndex index = new ItemGeoIndex(null, null, new StoreProperties());
+    private long version;
+
+    private record Spot(long id, String category, double lat, double lon) {
+    }
+
+    @Test
+    void cellIsStandardGeohash() {
+        assertEquals(decode("u4pru"), ItemGeoIndex.geohash(57.64911, 10.40744));
+        assertEquals(decode("ucfv0"), ItemGeoIndex.geohash(55.7558, 37.6173));
+        assertEquals(decode("6gyf4"), ItemGeoIndex.geohash(-23.5505, -46.6333));
+    }
+
+    @Test
+    void radiusSearchMatchesFullScan() {
+        Random random = new Random(7);
+        double[][] centers = {{55.75, 37.62}, {0.5, 179.9}, {-33.9, 151.2}, {89.5, 10}, {-89.9, -120}};
+        List<Spot> spots = new ArrayList<>();
+        for (long id = 1; id <= 3_000; id++) {
+            double[] center = centers[random.nextInt(centers.length)];
+            double lat = Math.max(-90, Math.min(90, center[0] + random.nextGaussian()));
+            double lon = center[1] + random.nextGaussian() * 2;
+            lon = lon > 180 ? lon - 360 : lon < -180 ? lon + 360 : lon;
+            Spot spot = new Spot(id, CATEGORIES.get(random.nextInt(CATEGORIES.size())), lat, lon);
+            spots.add(spot);
+            save(spot.id(), spot.category(), spot.lat(), spot.lon(), true);
+        }
+
+        for (int probe = 0; probe < 300; probe++) {
+            double[] center = centers[probe % centers.length];
+            double lat = Math.max(-90, Math.min(90, center[0] + random.nextGaussian() / 2));
+            double lon = center[1] + random.nextGaussian();
+            lon = lon > 180 ? lon - 360 : lon < -180 ? lon + 360 : lon;
+            double radius = 0.5 + random.nextDouble() * (ItemGeoIndex.MAX_RADIUS_KM - 0.5);
+            String category = random.nextBoolean() ? CATEGORIES.get(random.nextInt(CATEGORIES.size())) : null;
+
+            assertEquals(fullScan(spots, category, lat, lon, radius), index.find(category, lat, lon, radius),
+                    "lat=" + lat + " lon=" + lon + " r=" + radius + " category=" + category);
+        }
+    }
+
+    @Test
+    void followsChangesAndCategoryOnlyQueries() {
+        save(1, "Дрели", 55.75, 37.62, true);
+        save(2, " дрели ", 55.76, 37.63, true);
+        save(3, "Дрели", null, null, true);
+
+        assertEquals(List.of(1L, 2L, 3L), index.find("ДРЕЛИ", null, null, null));
+        assertEquals(List.of(1L, 2L), index.find("дрели", 55.75, 37.62, 5.0));
+
+        save(1, "Дрели", 59.94, 30.31, true);
+        assertEquals(List.of(2L), index.find(null, 55.75, 37.62, 5.0));
+        assertEquals(List.of(1L), index.find(null, 59.94, 30.31, 1.0));
+
+        save(2, "Пилы", 55.76, 37.63, false);
+        assertTrue(index.find(null, 55.75, 37.62, 5.0).isEmpty());
+        assertEquals(List.of(1L, 3L), index.find("дрели", null, null, null));
+
+        index.onItemRemoved(1L, version++);
+        assertEquals(List.of(3L), index.find("дрели", null, null, null));
+        assertTrue(index.find(null, 59.94, 30.31, 1.0).isEmpty());
+    }
+
+    private void save(long id, String category, Double lat, Double lon, boolean available) {
+        Item item = new Item();
+        item.setId(id);
+        item.setCategory(category);
+        item.setLatitude(lat);
+        item.setLongitude(lon);
+        item.setAvailable(available);
+        item.setVersion(version++);
+        index.onItemSaved(item);
+    }
+
+    private static List<Long> fullScan(List<Spot> spots, String category, double lat, double lon, double radius) {
+        return spots.stream()
+                .filter(spot -> category == null || spot.category().equalsIgnoreCase(category))
+                .filter(spot -> ItemGeoIndex.distanceKm(lat, lon, spot.lat(), spot.lon()) <= radius)
+                .sorted(Comparator.comparingDouble((Spot spot) -> ItemGeoIndex.distanceKm(lat, lon, spot.lat(),
+                        spot.lon())).thenComparingLong(Spot::id))
+                .map(Spot::id)
+                .toList();
+    }
+
+    private static long decode(String geohash) {
+        long hash = 0;
+        for (char c : geohash.toCharArray()) {
+            hash = hash << 5 | BASE32.indexOf(c);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,78 @@
+package ru.practicum.shareit.item.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.archive.BookingArchiver;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.BookingStats;
+import ru.practicum.shareit.item.model.ItemDto;
+import ru.practicum.shareit.item.model.OwnerStats;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:stats")
+class ItemStatsStoreTest {
+    @Autowired
+    private ItemStatsStore itemStatsStore;
+    @Autowired
+    private BookingArchiver bookingArchiver;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void incrementalCountersMatchBackfill() {
+        long owner = userService.create(new UserDto(null, "owner", "owner@stats.ru")).getId();
+        long booker = userService.create(new UserDto(null, "booker", "booker@stats.ru")).getId();
+        long drill = item(owner, "Дрель");
+        long saw = item(owner, "Пила");
+        LocalDateTime start = LocalDateTime.of(2024, 1, 30, 12, 0);
+        for (int i = 0; i < 12; i++) {
+            long item = i % 3 == 0 ? saw : drill;
+            long id = book(item, booker, start.plusDays(i * 10L), i % 4 + 1);
+            if (i % 4 != 3) {
+                bookingService.update(owner, i % 4 != 2, id, Set.of());
+            }
+        }
+        bookingArchiver.archive(LocalDateTime.of(2024, 3, 1, 0, 0));
+
+        OwnerStats incremental = itemStatsStore.ownerStats(owner, null, null);
+        assertEquals(new BookingStats(12, 6, 3, 15), incremental.getTotal());
+        assertEquals(2, incremental.getItems().size());
+        assertEquals(0.5, itemStatsStore.ownerStats(owner, YearMonth.of(2024, 2), YearMonth.of(2024, 2))
+                .getTotal().getApprovalRate());
+
+        itemStatsStore.chunkSize = 2;
+        itemStatsStore.afterSingletonsInstantiated();
+        assertEquals(incremental, itemStatsStore.ownerStats(owner, null, null));
+
+        itemStatsStore.read(drill).run();
+        itemStatsStore.read(saw).run();
+        assertEquals(incremental, itemStatsStore.ownerStats(owner, null, null));
+    }
+
+    private long item(long owner, String name) {
+        return itemService.create(ItemDto.builder().name(name).description(name).available(true).build(), owner)
+                .getId();
+    }
+
+    private long book(long item, long booker, LocalDateTime start, int days) {
+        BookingDto booking = new BookingDto();
+        booking.setItemId(item);
+        booking.setStart(start);
+        booking.setEnd(start.plusDays(days));
+        return bookingService.create(booker, booking, Set.of()).getId();
+    }
+}
@@ -0,0 +1,96 @@
+package ru.practicum.shareit.item.storage;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.config.StoreProperties;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.model.ItemSuggestion;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Вне транзакции изменения применяются сразу, поэтому индекс проверяется без контекста Spring.
+ */
+class ItemSuggestionIndexTest {
+    private final ItemSuggestionIndex index = new ItemSuggestionIndex(null, null, null, new StoreProperties());
+    private long version;
+
+    @Test
+    void ranksByApprovedBookings() {
+        save(1, "Дрель ударная", true);
+        save(2, "Дрель аккумуляторная", true);
+        save(3, "Дрожжи", true);
+        index.onBookingApproved(2L);
+        index.onBookingApproved(2L);
+        index.onBookingApproved(3L);
+
+        assertEquals(List.of(2L, 3L, 1L), ids(index.suggest("Д", 10)));
+        assertEquals(List.of(2L, 1L), ids(index.suggest("дре", 10)));
+        assertEquals(List.of(2L), ids(index.suggest("др", 1)));
+        assertEquals(2L, index.suggest("дрель акк", 10).get(0).getBookings());
+    }
+
+    @Test
+    void matchesAnyWordAndWordSequence() {
+        save(1, "Ударная дрель Bosch", true);
+        save(2, "Дрель-шуруповёрт", true);
+
+        assertEquals(List.of(2L, 1L), ids(index.suggest("дрель", 10)));
+        assertEquals(List.of(1L), ids(index.suggest("  ударная   ДР", 10)));
+        assertEquals(List.of(2L), ids(index.suggest("дрель шур", 10)));
+        assertEquals(List.of(1L), ids(index.suggest("bo", 10)));
+        assertTrue(index.suggest("дрель b ударная", 10).isEmpty());
+        assertTrue(index.suggest(" ", 10).isEmpty());
+    }
+
+    @Test
+    void followsRenamesAvailabilityAndDeletes() {
+        save(1, "Дрель", true);
+        save(2, "Пила", true);
+
+        save(1, "Перфоратор", true);
+        assertTrue(index.suggest("д", 10).isEmpty());
+        assertEquals(List.of(2L, 1L), ids(index.suggest("п", 10)));
+
+        save(2, "Пила", false);
+        assertEquals(List.of(1L), ids(index.suggest("п", 10)));
+        save(2, "Пила", true);
+        assertEquals(List.of(2L), ids(index.suggest("пи", 10)));
+
+        index.onItemRemoved(1L, version++);
+        assertEquals(List.of(2L), ids(index.suggest("п", 10)));
+    }
+
+    @Test
+    void ignoresOlderVersions() {
+        save(1, "Дрель", true);
+        long removed = version++;
+        save(1, "Перфоратор", true);
+
+        Item late = new Item();
+        late.setId(1L);
+        late.setName("Дрель");
+        late.setAvailable(true);
+        late.setVersion(0L);
+        index.onItemSaved(late);
+        index.onItemRemoved(1L, removed);
+        assertEquals(List.of(1L), ids(index.suggest("перф", 10)));
+        assertTrue(index.suggest("дрель", 10).isEmpty());
+        assertEquals(2, index.version(1));
+    }
+
+    private void save(long id, String name, boolean available) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setAvailable(available);
+        item.setVersion(version++);
+        index.onItemSaved(item);
+    }
+
+    private static List<Long> ids(List<ItemSuggestion> suggestions) {
+        return suggestions.stream().map(ItemSuggestion::getId).toList();
+    }
+}
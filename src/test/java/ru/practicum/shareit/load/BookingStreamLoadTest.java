@@ -0,0 +1,180 @@
+package ru.practicum.shareit.load;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApplication;
+import ru.practicum.shareit.booking.stream.BookingEventStream;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Держит тысячи подписчиков GET /bookings/stream (каждого читает свой виртуальный поток), одобряет бронирования
+ * и печатает задержку доставки событий от PATCH до получения подписчиком, число потерянных событий
+ * и отключённых медленных подписчиков. Рассылка не касается БД, поэтому приложение работает на H2.
+ * <p>
+ * Запуск: {@code mvn test -Pload -Dtest=BookingStreamLoadTest [-Dshareit.load.subscribers=5000
+ * -Dshareit.load.bookers=200]}.
+ */
+@Tag("load")
+class BookingStreamLoadTest {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private static final int SUBSCRIBERS = Integer.getInteger("shareit.load.subscribers", 5_000);
+    private static final int BOOKERS = Integer.getInteger("shareit.load.bookers", 200);
+    /**
+     * Каждый десятый подписчик — владелец вещей, он получает события по всем бронированиям.
+     */
+    private static final int OWNER_SHARE = 10;
+
+    private final HttpClient http = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    @Test
+    void fanOutToThousandsOfSubscribers() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItApplication.class).run(
+                "--spring.profiles.active=default",
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:stream",
+                "--server.tomcat.max-connections=" + (SUBSCRIBERS + 1_000),
+                "--shareit.booking-stream.max-subscribers-per-user=" + SUBSCRIBERS,
+                "--shareit.admission.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--logging.level.ru.practicum.shareit=WARN")) {
+            String base = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            BookingEventStream stream = context.getBean(BookingEventStream.class);
+
+            long owner = id(send("POST", base + "/users", null, "{\"name\":\"owner\",\"email\":\"owner@stream.test\"}"));
+            long item = id(send("POST", base + "/items", owner,
+                    "{\"name\":\"Дрель\",\"description\":\"Ударная дрель\",\"available\":true}"));
+            long[] bookers = new long[BOOKERS];
+            long[] bookings = new long[BOOKERS];
+            for (int i = 0; i < BOOKERS; i++) {
+                bookers[i] = id(send("POST", base + "/users", null,
+                        "{\"name\":\"booker" + i + "\",\"email\":\"booker" + i + "@stream.test\"}"));
+                bookings[i] = id(send("POST", base + "/bookings", bookers[i],
+                        PoolSizingLoadTest.bookingBody(item, i + 1)));
+            }
+
+            int owners = (SUBSCRIBERS + OWNER_SHARE - 1) / OWNER_SHARE;
+            int expected = owners * BOOKERS + SUBSCRIBERS - owners;
+            Map<Long, Long> approvedAt = new ConcurrentHashMap<>();
+            long[] latencies = new long[expected];
+            AtomicInteger received = new AtomicInteger();
+            CountDownLatch connected = new CountDownLatch(SUBSCRIBERS);
+            long subscribeStarted = System.nanoTime();
+            try (ExecutorService readers = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < SUBSCRIBERS; i++) {
+                    boolean isOwner = i % OWNER_SHARE == 0;
+                    long user = isOwner ? owner : bookers[i % BOOKERS];
+                    int events = isOwner ? BOOKERS : 1;
+                    readers.submit(() -> {
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/bookings/stream"))
+                                .header(USER_HEADER, Long.toString(user)).build();
+                        HttpResponse<Stream<String>> response = http.send(request,
+                                HttpResponse.BodyHandlers.ofLines());
+                        assertEquals(200, response.statusCode());
+                        try (Stream<String> lines = response.body()) {
+                            Iterator<String> iterator = lines.iterator();
+                            int left = events;
+                            while (left > 0 && iterator.hasNext()) {
+                                String line = iterator.next();
+                                if (line.startsWith(":connected")) {
+                                    connected.countDown();
+                                } else if (line.startsWith("data:")) {
+                                    Matcher matcher = ID.matcher(line);
+                                    assertTrue(matcher.find(), line);
+                                    long sent = approvedAt.get(Long.parseLong(matcher.group(1)));
+                                    latencies[received.getAndIncrement()] = System.nanoTime() - sent;
+                                    left--;
+                                }
+                            }
+                        }
+                        return null;
+                    });
+                }
+                assertTrue(connected.await(120, TimeUnit.SECONDS), "подписались не все: " + connected.getCount());
+                long subscribeMillis = (System.nanoTime() - subscribeStarted) / 1_000_000;
+                long subscribers = stream.subscriberCount();
+
+                long approveStarted = System.nanoTime();
+                for (int i = 0; i < BOOKERS; i++) {
+                    approvedAt.put(bookings[i], System.nanoTime());
+                    send("PATCH", base + "/bookings/" + bookings[i] + "?approved=true", owner, null);
+                }
+                long approveMillis = (System.nanoTime() - approveStarted) / 1_000_000;
+                readers.shutdown();
+                boolean drained = readers.awaitTermination(60, TimeUnit.SECONDS);
+
+                long[] sorted = Arrays.copyOf(latencies, received.get());
+                Arrays.sort(sorted);
+                double dropped = context.getBean(MeterRegistry.class).counter("shareit.booking_stream.dropped").count();
+                List<String> report = new ArrayList<>();
+                report.add(String.format("subscribers %d (connected in %d ms), approvals %d in %d ms",
+                        subscribers, subscribeMillis, BOOKERS, approveMillis));
+                report.add(String.format("events expected %d, received %d, dropped subscribers %.0f, drained %s",
+                        expected, received.get(), dropped, drained));
+                report.add(String.format("delivery latency ms: p50 %.2f, p95 %.2f, p99 %.2f, max %.2f",
+                        millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                        millis(percentile(sorted, 0.99)), millis(percentile(sorted, 1.0))));
+                report.forEach(System.out::println);
+                assertEquals(0, dropped);
+                assertEquals(expected, received.get(), "часть событий не доставлена");
+            }
+        }
+    }
+
+    private HttpResponse<String> send(String method, String url, Long userId, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (userId != null) {
+            request.header(USER_HEADER, userId.toString());
+        }
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode(), method + " " + url + ": " + response.body());
+        return response;
+    }
+
+    private static long id(HttpResponse<String> response) {
+        Matcher matcher = ID.matcher(response.body());
+        assertTrue(matcher.find(), response.body());
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
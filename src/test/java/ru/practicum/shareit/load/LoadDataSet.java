@@ -0,0 +1,295 @@
+package ru.practicum.shareit.load;
+
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Данные для нагрузочного прогона, записанные в БД напрямую через JDBC до старта приложения,
+ * чтобы индексы в памяти строились при старте, как в рабочей базе.
+ * <p>
+ * Популярность распределена по закону Ципфа: у немногих владельцев много вещей, немногие вещи собирают
+ * большую часть бронирований. Бронирования вещи идут без пересечений с двух лет назад до трёх месяцев вперёд;
+ * прошедшие в основном одобрены, часть из них прокомментирована арендатором.
+ */
+final class LoadDataSet {
+    static final String[] WORDS = {"дрель", "перфоратор", "шуруповёрт", "лобзик", "болгарка", "палатка",
+            "велосипед", "самокат", "лестница", "пылесос", "мангал", "каяк", "сноуборд", "проектор", "камера"};
+    static final String[] CATEGORIES = {"инструменты", "инструменты", "инструменты", "инструменты", "инструменты",
+            "туризм", "транспорт", "транспорт", "дом", "дом", "туризм", "туризм", "спорт", "техника", "техника"};
+    private static final String[] EPITHETS = {"Bosch", "Makita", "ударная", "аккумуляторный", "складной",
+            "детский", "туристическая", "профессиональный", "компактный", "мощный"};
+    static final double[][] CITIES = {{55.75, 37.62}, {59.94, 30.31}, {55.79, 49.12}};
+
+    private static final double SKEW = 1.0;
+    private static final int OWNER_SHARE = 4;
+    private static final Duration HISTORY = Duration.ofDays(730);
+    private static final Duration AHEAD = Duration.ofDays(90);
+    private static final int BATCH = 1_000;
+
+    final long[] users;
+    final long[] owners;
+    final long[] items;
+    final long[] itemOwners;
+    /**
+     * Индексы вещей по убыванию популярности: items[byPopularity[0]] — самая бронируемая.
+     */
+    final int[] byPopularity;
+    final long[] bookings;
+    final long[] bookingBookers;
+    /**
+     * Пары (арендатор, вещь) прошедших одобренных бронирований: им разрешено комментировать.
+     */
+    final long[][] pastBookings;
+    final int comments;
+
+    private final double[] itemWeights;
+    private final double[] ownerWeights;
+
+    private LoadDataSet(long[] users, long[] owners, long[] items, long[] itemOwners, int[] byPopularity,
+                        long[] bookings, long[] bookingBookers, long[][] pastBookings, int comments) {
+        this.users = users;
+        this.owners = owners;
+        this.items = items;
+        this.itemOwners = itemOwners;
+        this.byPopularity = byPopularity;
+        this.bookings = bookings;
+        this.bookingBookers = bookingBookers;
+        this.pastBookings = pastBookings;
+        this.comments = comments;
+        this.itemWeights = zipf(items.length);
+        this.ownerWeights = zipf(owners.length);
+    }
+
+    /**
+     * Пересоздаёт схему по schema.sql и заполняет её; последовательности id продолжаются после данных.
+     */
+    static LoadDataSet seed(String url, String username, String password, int userCount, int itemCount,
+                            int bookingCount, long randomSeed) throws SQLException {
+        Random random = new Random(randomSeed);
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        try (Connection connection = DriverManager.getConnection(url, username, password)) {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema.sql"));
+            connection.setAutoCommit(false);
+
+            long[] users = new long[userCount];
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO users (id, name, email, email_normalized) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < userCount; i++) {
+                    users[i] = i + 1;
+                    String email = "user" + users[i] + "@load.test";
+                    insert.setLong(1, users[i]);
+                    insert.setString(2, "Пользователь " + users[i]);
+                    insert.setString(3, email);
+                    insert.setString(4, email);
+                    batch(insert, i);
+                }
+                insert.executeBatch();
+            }
+
+            long[] owners = Arrays.copyOf(users, Math.max(1, userCount / OWNER_SHARE));
+            double[] ownerWeights = zipf(owners.length);
+            long[] items = new long[itemCount];
+            long[] itemOwners = new long[itemCount];
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO items (id, name, description, "
+                    + "available, category, latitude, longitude, version, owner_id) VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?)")) {
+                for (int i = 0; i < itemCount; i++) {
+                    items[i] = i + 1;
+                    itemOwners[i] = owners[sample(ownerWeights, random)];
+                    int word = random.nextInt(WORDS.length);
+                    String name = capitalize(WORDS[word]) + " " + EPITHETS[random.nextInt(EPITHETS.length)];
+                    insert.setLong(1, items[i]);
+                    insert.setString(2, name);
+                    insert.setString(3, name + ", в хорошем состоянии, вещь №" + items[i]);
+                    insert.setBoolean(4, random.nextInt(10) != 0);
+                    insert.setString(5, random.nextInt(5) != 0 ? CATEGORIES[word] : null);
+                    if (random.nextInt(10) < 7) {
+                        double[] city = CITIES[random.nextInt(CITIES.length)];
+                        insert.setDouble(6, city[0] + random.nextGaussian() * 0.1);
+                        insert.setDouble(7, city[1] + random.nextGaussian() * 0.15);
+                    } else {
+                        insert.setNull(6, Types.DOUBLE);
+                        insert.setNull(7, Types.DOUBLE);
+                    }
+                    insert.setLong(8, itemOwners[i]);
+                    batch(insert, i);
+                }
+                insert.executeBatch();
+            }
+
+            int[] byPopularity = shuffled(itemCount, random);
+            double[] itemWeights = zipf(itemCount);
+            int[] perItem = new int[itemCount];
+            for (int i = 0; i < bookingCount; i++) {
+                perItem[byPopularity[sample(itemWeights, random)]]++;
+            }
+
+            long[] bookings = new long[bookingCount];
+            long[] bookingBookers = new long[bookingCount];
+            List<long[]> past = new ArrayList<>();
+            int commentCount = 0;
+            long windowStart = now.minus(HISTORY).toEpochSecond(ZoneOffset.UTC);
+            long window = HISTORY.plus(AHEAD).toSeconds();
+            try (PreparedStatement booking = connection.prepareStatement("INSERT INTO bookings "
+                    + "(id, start_date, end_date, item_id, booker_id, status) VALUES (?, ?, ?, ?, ?, ?)");
+                 PreparedStatement comment = connection.prepareStatement(
+                         "INSERT INTO comments (id, text, item_id, author_id, created) VALUES (?, ?, ?, ?, ?)")) {
+                int next = 0;
+                for (int item = 0; item < itemCount; item++) {
+                    long slot = perItem[item] == 0 ? 0 : window / perItem[item];
+                    for (int k = 0; k < perItem[item]; k++) {
+                        long booker;
+                        do {
+                            booker = users[random.nextInt(userCount)];
+                        } while (booker == itemOwners[item]);
+                        long startSecond = windowStart + k * slot + (long) (random.nextDouble() * 0.3 * slot);
+                        long length = Math.min(Duration.ofDays(14).toSeconds(),
+                                Math.max(3_600, (long) ((0.2 + random.nextDouble() * 0.5) * slot)));
+                        LocalDateTime start = LocalDateTime.ofEpochSecond(startSecond, 0, ZoneOffset.UTC);
+                        LocalDateTime end = start.plusSeconds(length);
+                        String status = status(start, end, now, random);
+
+                        bookings[next] = next + 1;
+                        bookingBookers[next] = booker;
+                        booking.setLong(1, bookings[next]);
+                        booking.setTimestamp(2, Timestamp.valueOf(start));
+                        booking.setTimestamp(3, Timestamp.valueOf(end));
+                        booking.setLong(4, items[item]);
+                        booking.setLong(5, booker);
+                        booking.setString(6, status);
+                        batch(booking, next);
+                        next++;
+
+                        if (end.isBefore(now) && "APPROVED".equals(status)) {
+                            past.add(new long[]{booker, items[item]});
+                            if (random.nextInt(100) < 15) {
+                                commentCount++;
+                                comment.setLong(1, commentCount);
+                                comment.setString(2, "Брал на " + Math.max(1, length / 86_400) + " дн., всё отлично");
+                                comment.setLong(3, items[item]);
+                                comment.setLong(4, booker);
+                                comment.setTimestamp(5, Timestamp.valueOf(end.plusHours(2)));
+                                batch(comment, commentCount);
+                            }
+                        }
+                    }
+                }
+                booking.executeBatch();
+                comment.executeBatch();
+            }
+
+            try (Statement statement = connection.createStatement()) {
+                restart(statement, "users_seq", userCount);
+                restart(statement, "items_seq", itemCount);
+                restart(statement, "bookings_seq", bookingCount);
+                restart(statement, "comments_seq", commentCount);
+            }
+            connection.commit();
+            return new LoadDataSet(users, owners, items, itemOwners, byPopularity, bookings, bookingBookers,
+                    past.toArray(long[][]::new), commentCount);
+        }
+    }
+
+    /**
+     * Вещь с учётом популярности.
+     */
+    int popularItem(Random random) {
+        return byPopularity[sample(itemWeights, random)];
+    }
+
+    /**
+     * Владелец с учётом числа его вещей.
+     */
+    long popularOwner(Random random) {
+        return owners[sample(ownerWeights, random)];
+    }
+
+    long anyUser(Random random) {
+        return users[random.nextInt(users.length)];
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "users %d (owners %d), items %d, bookings %d, comments %d",
+                users.length, owners.length, items.length, bookings.length, comments);
+    }
+
+    private static String status(LocalDateTime start, LocalDateTime end, LocalDateTime now, Random random) {
+        int roll = random.nextInt(100);
+        if (end.isBefore(now)) {
+            return roll < 85 ? "APPROVED" : roll < 95 ? "REJECTED" : "CANCELED";
+        }
+        if (start.isAfter(now)) {
+            return roll < 55 ? "APPROVED" : roll < 95 ? "WAITING" : "REJECTED";
+        }
+        return "APPROVED";
+    }
+
+    /**
+     * Накопленные веса 1 / rank^SKEW, нормированные к 1.
+     */
+    private static double[] zipf(int size) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 0; rank < size; rank++) {
+            sum += 1 / Math.pow(rank + 1, SKEW);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    private static int[] shuffled(int size, Random random) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+
+    private static void batch(PreparedStatement statement, int index) throws SQLException {
+        statement.addBatch();
+        if ((index + 1) % BATCH == 0) {
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Первый nextval вернёт max + 51, Hibernate раздаёт блок max + 2 .. max + 51 (allocationSize = 50).
+     */
+    private static void restart(Statement statement, String sequence, long max) throws SQLException {
+        statement.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (max + 51));
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
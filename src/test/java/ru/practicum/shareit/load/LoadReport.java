@@ -0,0 +1,162 @@
+package ru.practicum.shareit.load;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Задержки и ошибки нагрузочного прогона по операциям: таблица для консоли, CSV для следующего прогона
+ * и сравнение с порогами и с сохранённым прогоном.
+ */
+final class LoadReport {
+    static final String TOTAL = "total";
+
+    private static final String HEADER = "operation,count,rps,p50_ms,p95_ms,p99_ms,max_ms,errors";
+
+    private final Map<String, Row> rows;
+
+    record Row(String operation, long count, double rps, double p50, double p95, double p99, double max,
+               long errors) {
+        double errorRate() {
+            return count == 0 ? 0 : errors / (double) count;
+        }
+    }
+
+    /**
+     * Замеры одного клиента; не потокобезопасен, у каждого клиента свой.
+     */
+    static final class Recorder {
+        private final Map<String, long[]> latencies = new TreeMap<>();
+        private final Map<String, Integer> sizes = new TreeMap<>();
+        private final Map<String, Long> errors = new TreeMap<>();
+
+        void record(String operation, long nanos, boolean ok) {
+            long[] own = latencies.computeIfAbsent(operation, key -> new long[1024]);
+            int size = sizes.getOrDefault(operation, 0);
+            if (size == own.length) {
+                own = Arrays.copyOf(own, size * 2);
+                latencies.put(operation, own);
+            }
+            own[size] = nanos;
+            sizes.put(operation, size + 1);
+            if (!ok) {
+                errors.merge(operation, 1L, Long::sum);
+            }
+        }
+    }
+
+    private LoadReport(Map<String, Row> rows) {
+        this.rows = rows;
+    }
+
+    static LoadReport of(List<Recorder> recorders, Duration duration) {
+        Map<String, List<long[]>> parts = new TreeMap<>();
+        Map<String, Long> errors = new TreeMap<>();
+        for (Recorder recorder : recorders) {
+            recorder.latencies.forEach((operation, values) -> parts.computeIfAbsent(operation, key -> new ArrayList<>())
+                    .add(Arrays.copyOf(values, recorder.sizes.get(operation))));
+            recorder.errors.forEach((operation, count) -> errors.merge(operation, count, Long::sum));
+        }
+        Map<String, Row> rows = new LinkedHashMap<>();
+        List<long[]> all = new ArrayList<>();
+        parts.forEach((operation, values) -> {
+            all.addAll(values);
+            rows.put(operation, row(operation, values, errors.getOrDefault(operation, 0L), duration));
+        });
+        rows.put(TOTAL, row(TOTAL, all, errors.values().stream().mapToLong(Long::longValue).sum(), duration));
+        return new LoadReport(rows);
+    }
+
+    static LoadReport read(Path csv) throws IOException {
+        Map<String, Row> rows = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(csv)) {
+            if (line.isBlank() || line.equals(HEADER)) {
+                continue;
+            }
+            String[] cells = line.split(",");
+            rows.put(cells[0], new Row(cells[0], Long.parseLong(cells[1]), Double.parseDouble(cells[2]),
+                    Double.parseDouble(cells[3]), Double.parseDouble(cells[4]), Double.parseDouble(cells[5]),
+                    Double.parseDouble(cells[6]), Long.parseLong(cells[7])));
+        }
+        return new LoadReport(rows);
+    }
+
+    void write(Path csv) throws IOException {
+        Files.createDirectories(csv.toAbsolutePath().getParent());
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        rows.values().forEach(row -> lines.add(String.format(Locale.ROOT, "%s,%d,%.1f,%.2f,%.2f,%.2f,%.2f,%d",
+                row.operation(), row.count(), row.rps(), row.p50(), row.p95(), row.p99(), row.max(), row.errors())));
+        Files.write(csv, lines);
+    }
+
+    Row total() {
+        return rows.get(TOTAL);
+    }
+
+    List<String> table() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-20s %9s %9s %9s %9s %9s %9s %7s",
+                "operation", "count", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors"));
+        rows.values().forEach(row -> lines.add(String.format(Locale.ROOT, "%-20s %9d %9.1f %9.2f %9.2f %9.2f %9.2f %7d",
+                row.operation(), row.count(), row.rps(), row.p50(), row.p95(), row.p99(), row.max(), row.errors())));
+        return lines;
+    }
+
+    /**
+     * Нарушения порогов: доля ошибок и p99 всего прогона; при наличии baseline — падение пропускной способности
+     * и рост p99 каждой операции больше чем на tolerance (операции с числом запросов меньше minCount
+     * не сравниваются: их перцентили шумят).
+     */
+    List<String> violations(double maxErrorRate, double maxP99Millis, LoadReport baseline, double tolerance,
+                            long minCount) {
+        List<String> violations = new ArrayList<>();
+        Row total = total();
+        if (total.errorRate() > maxErrorRate) {
+            violations.add(String.format(Locale.ROOT, "доля ошибок %.4f > %.4f", total.errorRate(), maxErrorRate));
+        }
+        if (total.p99() > maxP99Millis) {
+            violations.add(String.format(Locale.ROOT, "p99 %.2f мс > %.2f мс", total.p99(), maxP99Millis));
+        }
+        if (baseline == null) {
+            return violations;
+        }
+        Row before = baseline.rows.get(TOTAL);
+        if (before != null && total.rps() < before.rps() * (1 - tolerance)) {
+            violations.add(String.format(Locale.ROOT, "пропускная способность %.1f < %.1f req/s в базовом прогоне",
+                    total.rps(), before.rps()));
+        }
+        rows.values().forEach(row -> {
+            Row old = baseline.rows.get(row.operation());
+            if (old != null && row.count() >= minCount && old.count() >= minCount
+                    && row.p99() > old.p99() * (1 + tolerance)) {
+                violations.add(String.format(Locale.ROOT, "%s: p99 %.2f мс > %.2f мс в базовом прогоне",
+                        row.operation(), row.p99(), old.p99()));
+            }
+        });
+        return violations;
+    }
+
+    private static Row row(String operation, List<long[]> parts, long errors, Duration duration) {
+        long[] sorted = parts.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Row(operation, sorted.length, sorted.length / (double) duration.toSeconds(),
+                millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)), millis(percentile(sorted, 0.99)),
+                millis(percentile(sorted, 1.0)), errors);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,143 @@
+package ru.practicum.shareit.load;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Прогоняет основной сценарий API против native-образа и обычного jar, печатает время до первого запроса
+ * и RSS процесса (VmRSS из /proc) после сценария.
+ * <p>
+ * Запуск: {@code mvn -Pnative native:compile -DskipTests && mvn -Pnative test -Dtest=NativeImageSmokeTest}.
+ * Только Linux.
+ */
+@Tag("native")
+class NativeImageSmokeTest {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final Path BINARY = Path.of("target", "shareit");
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private static final Pattern RSS = Pattern.compile("VmRSS:\\s+(\\d+) kB");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    @Test
+    void nativeImageServesApi() throws Exception {
+        assumeTrue(Files.isExecutable(BINARY), "нет " + BINARY + ": сначала mvn -Pnative native:compile -DskipTests");
+        Path jar;
+        try (var jars = Files.list(BINARY.getParent())) {
+            jar = jars.filter(path -> path.getFileName().toString().matches("shareit-.*\\.jar"))
+                    .findFirst().orElseThrow();
+        }
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-8s %16s %12s", "build", "first req, ms", "RSS, MB"));
+        report.add(run("native", List.of(BINARY.toAbsolutePath().toString())));
+        report.add(run("jvm", List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-jar", jar.toString())));
+        report.forEach(System.out::println);
+    }
+
+    private String run(String name, List<String> launch) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>(launch);
+        command.add("--server.port=" + port);
+        long launched = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            String base = "http://localhost:" + port;
+            long firstRequest = waitForFirstRequest(process, base) - launched;
+            scenario(base);
+            return String.format("%-8s %16d %12d", name, firstRequest / 1_000_000, rssKb(process.pid()) / 1024);
+        } finally {
+            process.destroy();
+            process.waitFor(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private void scenario(String base) throws Exception {
+        long owner = id(send("POST", base + "/users", null, "{\"name\":\"owner\",\"email\":\"owner@native.test\"}", 200));
+        long booker = id(send("POST", base + "/users", null, "{\"name\":\"booker\",\"email\":\"booker@native.test\"}", 200));
+        long item = id(send("POST", base + "/items", owner,
+                "{\"name\":\"Дрель\",\"description\":\"Ударная дрель\",\"available\":true}", 200));
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        long booking = id(send("POST", base + "/bookings", booker, "{\"itemId\":" + item + ",\"start\":\""
+                + TIME.format(start) + "\",\"end\":\"" + TIME.format(start.plusDays(1)) + "\"}", 200));
+        send("PATCH", base + "/bookings/" + booking + "?approved=true", owner, null, 200);
+
+        assertTrue(send("GET", base + "/items/" + item, owner, null, 200).contains("\"nextBooking\":{\"id\":" + booking));
+        assertTrue(send("GET", base + "/items", owner, null, 200).contains("Дрель"));
+        assertTrue(send("GET", base + "/items/search?text=%D0%B4%D1%80%D0%B5%D0%BB%D1%8C", booker, null, 200)
+                .contains("\"id\":" + item));
+        assertTrue(send("GET", base + "/bookings?ids=" + booking + "&expand=item,booker", booker, null, 200)
+                .contains("\"booker\":{"));
+        send("GET", base + "/bookings/owner?state=FUTURE", owner, null, 200);
+        send("POST", base + "/users", null, "{\"name\":\"dup\",\"email\":\"OWNER@native.test\"}", 409);
+    }
+
+    private long waitForFirstRequest(Process process, String base) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/users")).GET().build();
+        while (true) {
+            assertTrue(process.isAlive(), "приложение завершилось до первого запроса");
+            try {
+                assertEquals(200, http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode());
+                return System.nanoTime();
+            } catch (ConnectException e) {
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    private String send(String method, String url, Long userId, String body, int expectedStatus) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (userId != null) {
+            request.header(USER_HEADER, userId.toString());
+        }
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(expectedStatus, response.statusCode(), method + " " + url + ": " + response.body());
+        return response.body();
+    }
+
+    private static long id(String json) {
+        Matcher matcher = ID.matcher(json);
+        assertTrue(matcher.find(), json);
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static long rssKb(long pid) throws IOException {
+        Matcher matcher = RSS.matcher(Files.readString(Path.of("/proc", String.valueOf(pid), "status")));
+        assertTrue(matcher.find());
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
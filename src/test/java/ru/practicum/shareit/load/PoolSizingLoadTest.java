@@ -0,0 +1,208 @@
+package ru.practicum.shareit.load;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApplication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Прогоняет смесь запросов ShareIt против встроенного PostgreSQL при разных размерах пула HikariCP
+ * и печатает пропускную способность, перцентили задержки и время ожидания соединения.
+ * <p>
+ * Запуск: {@code mvn test -Pload -Dtest=PoolSizingLoadTest [-Dshareit.load.pools=4,8,16 -Dshareit.load.clients=64
+ * -Dshareit.load.seconds=20]}. PostgreSQL не запускается от root.
+ */
+@Tag("load")
+class PoolSizingLoadTest {
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private static final int[] POOL_SIZES = Arrays.stream(System.getProperty("shareit.load.pools", "4,8,16,32")
+            .split(",")).mapToInt(Integer::parseInt).toArray();
+    private static final int CLIENTS = Integer.getInteger("shareit.load.clients", 64);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("shareit.load.seconds", 20));
+    private static final int OWNERS = 20;
+    private static final int ITEMS_PER_OWNER = 10;
+    private static final int BOOKERS = 50;
+
+    private final HttpClient http = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    @Test
+    void sizePoolForRequestMix() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            List<String> report = new ArrayList<>();
+            report.add(String.format("%5s %10s %9s %9s %9s %12s %12s %8s",
+                    "pool", "req/s", "p50 ms", "p95 ms", "p99 ms", "acq p95 ms", "acq max ms", "errors"));
+            for (int poolSize : POOL_SIZES) {
+                report.add(run(postgres, poolSize));
+            }
+            report.forEach(System.out::println);
+        }
+    }
+
+    private String run(EmbeddedPostgres postgres, int poolSize) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItApplication.class).run(
+                "--spring.profiles.active=postgres",
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--spring.sql.init.mode=always",
+                "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "--spring.datasource.hikari.minimum-idle=" + poolSize,
+                "--shareit.admission.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--logging.level.ru.practicum.shareit=WARN")) {
+            String base = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            Fixture fixture = seed(base);
+
+            long[] latencies = new long[1 << 22];
+            AtomicLong count = new AtomicLong();
+            AtomicLong errors = new AtomicLong();
+            long deadline = System.nanoTime() + DURATION.toNanos();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < CLIENTS; i++) {
+                    clients.submit(() -> {
+                        while (System.nanoTime() < deadline) {
+                            long started = System.nanoTime();
+                            int status = fixture.randomRequest(this, base);
+                            long index = count.getAndIncrement();
+                            if (index < latencies.length) {
+                                latencies[(int) index] = System.nanoTime() - started;
+                            }
+                            if (status >= 500) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    });
+                }
+            }
+
+            int samples = (int) Math.min(count.get(), latencies.length);
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            Timer acquire = context.getBean(MeterRegistry.class).get("hikaricp.connections.acquire").timer();
+            return String.format("%5d %10.0f %9.2f %9.2f %9.2f %12.2f %12.2f %8d",
+                    poolSize, count.get() / (double) DURATION.toSeconds(),
+                    millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                    millis(percentile(sorted, 0.99)),
+                    Arrays.stream(acquire.takeSnapshot().percentileValues())
+                            .filter(value -> value.percentile() == 0.95)
+                            .mapToDouble(value -> value.value(TimeUnit.MILLISECONDS))
+                            .findFirst().orElse(Double.NaN),
+                    acquire.max(TimeUnit.MILLISECONDS), errors.get());
+        }
+    }
+
+    Fixture seed(String base) throws Exception {
+        long[] owners = new long[OWNERS];
+        long[] bookers = new long[BOOKERS];
+        long[] items = new long[OWNERS * ITEMS_PER_OWNER];
+        for (int i = 0; i < OWNERS; i++) {
+            owners[i] = id(send("POST", base + "/users", null,
+                    "{\"name\":\"owner" + i + "\",\"email\":\"owner" + i + "@load.test\"}"));
+            for (int j = 0; j < ITEMS_PER_OWNER; j++) {
+                items[i * ITEMS_PER_OWNER + j] = id(send("POST", base + "/items", owners[i],
+                        "{\"name\":\"Дрель " + i + "-" + j + "\",\"description\":\"Ударная дрель\",\"available\":true}"));
+            }
+        }
+        for (int i = 0; i < BOOKERS; i++) {
+            bookers[i] = id(send("POST", base + "/users", null,
+                    "{\"name\":\"booker" + i + "\",\"email\":\"booker" + i + "@load.test\"}"));
+        }
+        for (int i = 0; i < items.length; i++) {
+            long booking = id(send("POST", base + "/bookings", bookers[i % BOOKERS], bookingBody(items[i], i + 1)));
+            send("PATCH", base + "/bookings/" + booking + "?approved=true", owners[i / ITEMS_PER_OWNER], null);
+        }
+        return new Fixture(owners, bookers, items);
+    }
+
+    HttpResponse<String> send(String method, String url, Long userId, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (userId != null) {
+            request.header(USER_HEADER, userId.toString());
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    static String bookingBody(long itemId, int daysAhead) {
+        LocalDateTime start = LocalDateTime.now().plusDays(daysAhead);
+        return "{\"itemId\":" + itemId + ",\"start\":\"" + start + "\",\"end\":\"" + start.plusDays(1) + "\"}";
+    }
+
+    private static long id(HttpResponse<String> response) {
+        assertEquals(200, response.statusCode(), response.body());
+        Matcher matcher = ID.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("В ответе нет id: " + response.body());
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    record Fixture(long[] owners, long[] bookers, long[] items) {
+        /**
+         * Смесь: 45% карточка вещи, 20% вещи владельца, 15% поиск, 10% бронирования арендатора,
+         * 5% бронирования владельца, 5% новое бронирование.
+         */
+        int randomRequest(PoolSizingLoadTest test, String base) throws Exception {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long booker = bookers[random.nextInt(bookers.length)];
+            long owner = owners[random.nextInt(owners.length)];
+            int roll = random.nextInt(100);
+            HttpResponse<String> response;
+            if (roll < 45) {
+                response = test.send("GET", base + "/items/" + items[random.nextInt(items.length)], booker, null);
+            } else if (roll < 65) {
+                response = test.send("GET", base + "/items", owner, null);
+            } else if (roll < 80) {
+                response = test.send("GET", base + "/items/search?text=" + random.nextInt(OWNERS), booker, null);
+            } else if (roll < 90) {
+                response = test.send("GET", base + "/bookings?state=ALL", booker, null);
+            } else if (roll < 95) {
+                response = test.send("GET", base + "/bookings/owner?state=FUTURE", owner, null);
+            } else {
+                response = test.send("POST", base + "/bookings", booker,
+                        bookingBody(items[random.nextInt(items.length)], 30 + random.nextInt(300)));
+            }
+            return response.statusCode();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ru.practicum.shareit.load;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApplication;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сравнивает обработку чтений бронирований и вещей при большом числе одновременных клиентов:
+ * пул потоков Tomcat по умолчанию, урезанный пул из нескольких потоков и виртуальные потоки
+ * (spring.threads.virtual.enabled). Печатает пропускную способность, перцентили задержки, ошибки
+ * и пиковое число платформенных потоков JVM.
+ * <p>
+ * Запуск: {@code mvn test -Pbenchmark -Dtest=ReadThreadingBenchmarkTest [-Dshareit.load.clients=400
+ * -Dshareit.load.seconds=15]}. PostgreSQL не запускается от root.
+ */
+@Tag("benchmark")
+class ReadThreadingBenchmarkTest {
+    private static final int CLIENTS = Integer.getInteger("shareit.load.clients", 400);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("shareit.load.seconds", 15));
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+
+    private record Mode(String name, List<String> args) {
+    }
+
+    @Test
+    void compareThreadingModels() throws Exception {
+        List<Mode> modes = List.of(
+                new Mode("platform-200", List.of("--spring.threads.virtual.enabled=false")),
+                new Mode("platform-8", List.of("--spring.threads.virtual.enabled=false",
+                        "--server.tomcat.threads.max=8", "--server.tomcat.threads.min-spare=8")),
+                new Mode("virtual", List.of("--spring.threads.virtual.enabled=true")));
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            List<String> report = new ArrayList<>();
+            report.add(String.format("%-13s %10s %9s %9s %9s %8s %14s",
+                    "mode", "req/s", "p50 ms", "p95 ms", "p99 ms", "errors", "peak threads"));
+            for (Mode mode : modes) {
+                report.add(run(postgres, mode));
+            }
+            report.forEach(System.out::println);
+        }
+    }
+
+    private String run(EmbeddedPostgres postgres, Mode mode) throws Exception {
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.profiles.active=postgres",
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--spring.sql.init.mode=always",
+                "--server.tomcat.max-connections=" + (CLIENTS + 100),
+                "--shareit.admission.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--logging.level.ru.practicum.shareit=WARN"));
+        args.addAll(mode.args());
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItApplication.class)
+                .run(args.toArray(String[]::new))) {
+            String base = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            PoolSizingLoadTest client = new PoolSizingLoadTest();
+            PoolSizingLoadTest.Fixture fixture = client.seed(base);
+
+            load(client, fixture, base, WARMUP, new long[0], new AtomicLong(), new AtomicLong());
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            threads.resetPeakThreadCount();
+            long[] latencies = new long[1 << 22];
+            AtomicLong count = new AtomicLong();
+            AtomicLong errors = new AtomicLong();
+            load(client, fixture, base, DURATION, latencies, count, errors);
+
+            int samples = (int) Math.min(count.get(), latencies.length);
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            return String.format("%-13s %10.0f %9.2f %9.2f %9.2f %8d %14d",
+                    mode.name(), count.get() / (double) DURATION.toSeconds(),
+                    millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                    millis(percentile(sorted, 0.99)), errors.get(), threads.getPeakThreadCount());
+        }
+    }
+
+    private static void load(PoolSizingLoadTest client, PoolSizingLoadTest.Fixture fixture, String base,
+                             Duration duration, long[] latencies, AtomicLong count, AtomicLong errors) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long started = System.nanoTime();
+                        int status = randomRead(client, fixture, base).statusCode();
+                        long index = count.getAndIncrement();
+                        if (index < latencies.length) {
+                            latencies[(int) index] = System.nanoTime() - started;
+                        }
+                        if (status != 200) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    /**
+     * Только чтения: 50% карточка вещи, 30% бронирования арендатора, 20% бронирования владельца.
+     */
+    private static HttpResponse<String> randomRead(PoolSizingLoadTest client, PoolSizingLoadTest.Fixture fixture,
+                                                   String base) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long booker = fixture.bookers()[random.nextInt(fixture.bookers().length)];
+        int roll = random.nextInt(100);
+        if (roll < 50) {
+            long item = fixture.items()[random.nextInt(fixture.items().length)];
+            return client.send("GET", base + "/items/" + item, booker, null);
+        } else if (roll < 80) {
+            return client.send("GET", base + "/bookings?state=ALL", booker, null);
+        }
+        long owner = fixture.owners()[random.nextInt(fixture.owners().length)];
+        return client.send("GET", base + "/bookings/owner?state=ALL", owner, null);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,131 @@
+package ru.practicum.shareit.load;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApplication;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Флеш-нагрузка: все клиенты одновременно открывают одну и ту же вещь и ищут один и тот же текст.
+ * Сравнивает работу без схлопывания и с SingleFlight: пропускная способность, перцентили задержки,
+ * ошибки, сколько чтений дошло до БД и сколько запросов получили чужой результат.
+ * <p>
+ * Запуск: {@code mvn test -Pbenchmark -Dtest=SingleFlightBenchmarkTest [-Dshareit.load.clients=400
+ * -Dshareit.load.seconds=15]}. PostgreSQL не запускается от root.
+ */
+@Tag("benchmark")
+class SingleFlightBenchmarkTest {
+    private static final int CLIENTS = Integer.getInteger("shareit.load.clients", 400);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("shareit.load.seconds", 15));
+    private static final Duration WARMUP = Duration.ofSeconds(5);
+    private static final String TEXT = URLEncoder.encode("ударная", StandardCharsets.UTF_8);
+
+    @Test
+    void compareWithAndWithoutCoalescing() throws Exception {
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            List<String> report = new ArrayList<>();
+            report.add(String.format("%-10s %10s %9s %9s %9s %8s %10s %10s",
+                    "mode", "req/s", "p50 ms", "p95 ms", "p99 ms", "errors", "db reads", "coalesced"));
+            report.add(run(postgres, false));
+            report.add(run(postgres, true));
+            report.forEach(System.out::println);
+        }
+    }
+
+    private String run(EmbeddedPostgres postgres, boolean enabled) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItApplication.class).run(
+                "--spring.profiles.active=postgres",
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--spring.sql.init.mode=always",
+                "--server.tomcat.max-connections=" + (CLIENTS + 100),
+                "--shareit.admission.enabled=false",
+                "--shareit.single-flight.enabled=" + enabled,
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--logging.level.ru.practicum.shareit=WARN")) {
+            String base = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            PoolSizingLoadTest client = new PoolSizingLoadTest();
+            PoolSizingLoadTest.Fixture fixture = client.seed(base);
+            MeterRegistry registry = context.getBean(MeterRegistry.class);
+
+            load(client, fixture, base, WARMUP, new long[0], new AtomicLong(), new AtomicLong());
+            double executed = calls(registry, "executed");
+            double coalesced = calls(registry, "coalesced");
+            long[] latencies = new long[1 << 22];
+            AtomicLong count = new AtomicLong();
+            AtomicLong errors = new AtomicLong();
+            load(client, fixture, base, DURATION, latencies, count, errors);
+
+            int samples = (int) Math.min(count.get(), latencies.length);
+            long[] sorted = Arrays.copyOf(latencies, samples);
+            Arrays.sort(sorted);
+            return String.format("%-10s %10.0f %9.2f %9.2f %9.2f %8d %10.0f %10.0f",
+                    enabled ? "coalesced" : "plain", count.get() / (double) DURATION.toSeconds(),
+                    millis(percentile(sorted, 0.50)), millis(percentile(sorted, 0.95)),
+                    millis(percentile(sorted, 0.99)), errors.get(),
+                    calls(registry, "executed") - executed, calls(registry, "coalesced") - coalesced);
+        }
+    }
+
+    /**
+     * Пополам: карточка одной и той же вещи от разных пользователей и поиск одного и того же текста.
+     */
+    private static void load(PoolSizingLoadTest client, PoolSizingLoadTest.Fixture fixture, String base,
+                             Duration duration, long[] latencies, AtomicLong count, AtomicLong errors) {
+        long hot = fixture.items()[0];
+        long deadline = System.nanoTime() + duration.toNanos();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        long user = fixture.bookers()[random.nextInt(fixture.bookers().length)];
+                        String url = random.nextBoolean() ? base + "/items/" + hot : base + "/items/search?text=" + TEXT;
+                        long started = System.nanoTime();
+                        int status = client.send("GET", url, user, null).statusCode();
+                        long index = count.getAndIncrement();
+                        if (index < latencies.length) {
+                            latencies[(int) index] = System.nanoTime() - started;
+                        }
+                        if (status != 200) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+    }
+
+    private static double calls(MeterRegistry registry, String outcome) {
+        return registry.find("shareit.single_flight.calls").tag("outcome", outcome).counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, sorted.length * percentile)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,166 @@
+package ru.practicum.shareit.load;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Измеряет время от запуска JVM до первого успешного запроса в разных режимах старта:
+ * обычный jar, профиль fast (ленивые бины, хранилища в памяти грузятся в фоне), fast + AOT, fast + AOT + CDS.
+ * БД заполняется LoadDataSet, и отдельно замеряется, когда отвечают эндпоинты, которым нужны все хранилища.
+ * <p>
+ * Запуск: {@code mvn -Pfast package -DskipTests && mvn test -Pbenchmark -Dtest=StartupBenchmarkTest
+ * [-Dshareit.startup.runs=5] [-Dshareit.startup.bookings=200000]}. Нужен тот же JDK, что собирал CDS-архив.
+ */
+@Tag("benchmark")
+class StartupBenchmarkTest {
+    private static final Path TARGET = Path.of("target");
+    private static final Path FAST = TARGET.resolve("fast");
+    private static final Path ARCHIVE = FAST.resolve("shareit.jsa");
+    private static final int RUNS = Integer.getInteger("shareit.startup.runs", 3);
+    private static final int BOOKINGS = Integer.getInteger("shareit.startup.bookings", 200_000);
+    private static final int ITEMS = Math.max(1, BOOKINGS / 4);
+    private static final int USERS = Math.max(1, ITEMS / 5);
+    /**
+     * По эндпоинту на хранилище: статистика, подсказки, гео-индекс, таймлайны.
+     */
+    private static final List<String> STORE_PATHS = List.of("/items/stats", "/items/suggest?text=д",
+            "/items/search?text=&lat=55.75&lon=37.62&radiusKm=5", "/items/1");
+    private static final Pattern STARTED = Pattern.compile("Started ShareItApplication in ([\\d.]+) seconds");
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    private record Mode(String name, Path jar, List<String> jvmArgs, String profiles) {
+    }
+
+    @Test
+    void timeToFirstRequest() throws Exception {
+        assumeTrue(Files.exists(ARCHIVE), "нет " + ARCHIVE + ": сначала mvn -Pfast package -DskipTests");
+        Path fatJar;
+        try (var jars = Files.list(TARGET)) {
+            fatJar = jars.filter(path -> path.getFileName().toString().matches("shareit-.*\\.jar"))
+                    .findFirst().orElseThrow();
+        }
+        Path extractedJar = FAST.resolve(fatJar.getFileName());
+
+        List<Mode> modes = List.of(
+                new Mode("jvm", fatJar, List.of(), "postgres"),
+                new Mode("lazy+eager", fatJar, List.of("-Dshareit.stores.warmup=eager"), "postgres,fast"),
+                new Mode("lazy", fatJar, List.of(), "postgres,fast"),
+                new Mode("lazy+aot", extractedJar, List.of("-Dspring.aot.enabled=true"), "postgres,fast"),
+                new Mode("lazy+aot+cds", extractedJar,
+                        List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=" + ARCHIVE, "-Xlog:cds=off"),
+                        "postgres,fast"));
+
+        try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+            String url = postgres.getJdbcUrl("postgres", "postgres");
+            // схема и данные создаются один раз, замеряемые запуски их не трогают
+            System.out.println("seeded " + LoadDataSet.seed(url, "postgres", "", USERS, ITEMS, BOOKINGS, 42));
+
+            List<String> report = new ArrayList<>();
+            report.add(String.format("%-14s %16s %16s %16s %16s", "mode", "first req, ms", "min, ms",
+                    "stores, ms", "started in, s"));
+            for (Mode mode : modes) {
+                long[] firstRequest = new long[RUNS];
+                long[] storesReady = new long[RUNS];
+                double[] startedIn = new double[RUNS];
+                for (int run = 0; run < RUNS; run++) {
+                    Path log = Files.createTempFile("shareit-startup", ".log");
+                    long launched = System.nanoTime();
+                    int port = freePort();
+                    Process process = start(mode, url, "--server.port=" + port, log);
+                    try {
+                        firstRequest[run] = waitForFirstRequest(process, port) - launched;
+                        storesReady[run] = waitForStores(port) - launched;
+                    } finally {
+                        process.destroy();
+                        process.waitFor(30, TimeUnit.SECONDS);
+                    }
+                    startedIn[run] = startedIn(log);
+                    Files.delete(log);
+                }
+                Arrays.sort(firstRequest);
+                Arrays.sort(storesReady);
+                Arrays.sort(startedIn);
+                report.add(String.format("%-14s %16d %16d %16d %16.2f", mode.name(),
+                        firstRequest[RUNS / 2] / 1_000_000, firstRequest[0] / 1_000_000,
+                        storesReady[RUNS / 2] / 1_000_000, startedIn[RUNS / 2]));
+            }
+            report.forEach(System.out::println);
+        }
+    }
+
+    private Process start(Mode mode, String url, String arg, Path log) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(mode.jvmArgs());
+        command.addAll(List.of("-jar", mode.jar().toString(),
+                "--spring.profiles.active=" + mode.profiles(),
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                arg));
+        ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true);
+        builder.redirectOutput(log.toFile());
+        return builder.start();
+    }
+
+    private long waitForFirstRequest(Process process, int port) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users")).GET().build();
+        while (true) {
+            assertTrue(process.isAlive(), "приложение завершилось до первого запроса");
+            try {
+                HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                assertEquals(200, response.statusCode());
+                return System.nanoTime();
+            } catch (ConnectException e) {
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    /**
+     * Запросы к хранилищам ждут их загрузку (shareit.stores.load-wait), поэтому достаточно одного прохода.
+     */
+    private long waitForStores(int port) throws Exception {
+        for (String path : STORE_PATHS) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                    .header("X-Sharer-User-Id", "1").GET().build();
+            HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode(), path + ": " + response.body());
+        }
+        return System.nanoTime();
+    }
+
+    private static double startedIn(Path log) throws IOException {
+        Matcher matcher = STARTED.matcher(Files.readString(log));
+        return matcher.find() ? Double.parseDouble(matcher.group(1)) : Double.NaN;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package ru.practicum.shareit.load;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItApplication;
+import ru.practicum.shareit.item.service.ItemDashboardService;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Воспроизводит рабочий трафик: засевает БД данными с перекосом популярности (LoadDataSet), запускает приложение
+ * и прогоняет взвешенную смесь всех эндпоинтов ItemController, BookingController и UserController
+ * (кроме долгоживущего GET /bookings/stream — его нагружает BookingStreamLoadTest). Печатает пропускную способность
+ * и перцентили задержки по операциям, сохраняет их в CSV и падает при нарушении порогов или регрессии
+ * относительно сохранённого прогона.
+ * <p>
+ * Запуск: {@code mvn test -Pload -Dtest=TrafficMixLoadTest}. Параметры (-D):
+ * <ul>
+ *     <li>shareit.load.db=h2|postgres (PostgreSQL не запускается от root), shareit.load.clients, shareit.load.seconds;</li>
+ *     <li>shareit.load.users, shareit.load.items, shareit.load.bookings — объём данных;</li>
+ *     <li>shareit.load.mix=item.get=30,booking.create=5,... — смесь вместо DEFAULT_MIX;</li>
+ *     <li>shareit.load.max-error-rate, shareit.load.max-p99-ms — пороги прогона;</li>
+ *     <li>shareit.load.baseline=путь к CSV прошлого прогона, shareit.load.tolerance — допустимое ухудшение;</li>
+ *     <li>shareit.load.report — куда сохранить CSV (по умолчанию target/load/traffic-mix.csv).</li>
+ * </ul>
+ */
+@Tag("load")
+class TrafficMixLoadTest {
+    /**
+     * Доли операций в рабочем трафике: в основном чтения карточек, поиска и списков бронирований.
+     */
+    static final String DEFAULT_MIX = "item.get=22,item.owner-list=6,item.batch=3,item.search=8,item.nearby=3,"
+            + "item.suggest=8,item.stats=2,item.create=2,item.update=2,item.delete=1,item.comment=1,"
+            + "booking.get=5,booking.batch=2,booking.booker-list=10,booking.owner-list=6,booking.create=5,"
+            + "booking.decide=3,user.get=4,user.batch=1,user.list=1,user.create=1,user.update=1,user.delete=1";
+
+    private static final String USER_HEADER = "X-Sharer-User-Id";
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+    private static final String[] STATES = {"ALL", "CURRENT", "PAST", "FUTURE", "WAITING", "REJECTED"};
+
+    private static final String DB = System.getProperty("shareit.load.db", "h2");
+    private static final int CLIENTS = Integer.getInteger("shareit.load.clients", 32);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("shareit.load.seconds", 30));
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("shareit.load.warmup-seconds", 10));
+    private static final int USERS = Integer.getInteger("shareit.load.users", 2_000);
+    private static final int ITEMS = Integer.getInteger("shareit.load.items", 5_000);
+    private static final int BOOKINGS = Integer.getInteger("shareit.load.bookings", 50_000);
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("shareit.load.max-error-rate",
+            "0.01"));
+    private static final double MAX_P99_MS = Double.parseDouble(System.getProperty("shareit.load.max-p99-ms", "2000"));
+    private static final String BASELINE = System.getProperty("shareit.load.baseline");
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("shareit.load.tolerance", "0.3"));
+    private static final long MIN_COMPARED = 200;
+    private static final Path REPORT = Path.of(System.getProperty("shareit.load.report", "target/load/traffic-mix.csv"));
+
+    private final HttpClient http = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Map<String, Operation> operations = operations();
+    private final Queue<Long> createdUsers = new ConcurrentLinkedQueue<>();
+    private final Queue<long[]> createdItems = new ConcurrentLinkedQueue<>();
+    private final Queue<long[]> waitingBookings = new ConcurrentLinkedQueue<>();
+    private final AtomicLong unique = new AtomicLong();
+
+    private LoadDataSet data;
+    private String base;
+
+    @FunctionalInterface
+    private interface Operation {
+        /**
+         * Выполняет запрос; операция в ответе может отличаться от выбранной, если выбранной нечего делать.
+         */
+        Outcome run(ThreadLocalRandom random) throws Exception;
+    }
+
+    private record Outcome(String operation, boolean ok) {
+    }
+
+    @Test
+    void replayProductionMix() throws Exception {
+        Mix mix = Mix.parse(System.getProperty("shareit.load.mix", DEFAULT_MIX), operations.keySet());
+        if ("postgres".equals(DB)) {
+            try (EmbeddedPostgres postgres = EmbeddedPostgres.builder().start()) {
+                run(mix, postgres.getJdbcUrl("postgres", "postgres"), "postgres", "", "postgres");
+            }
+        } else {
+            run(mix, "jdbc:h2:mem:traffic;DB_CLOSE_DELAY=-1", "dbuser", "12345", "default");
+        }
+    }
+
+    private void run(Mix mix, String url, String username, String password, String profile) throws Exception {
+        long started = System.nanoTime();
+        data = LoadDataSet.seed(url, username, password, USERS, ITEMS, BOOKINGS, 42);
+        System.out.printf("seeded %s in %d ms%n", data, (System.nanoTime() - started) / 1_000_000);
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ShareItApplication.class).run(
+                "--spring.profiles.active=" + profile,
+                "--server.port=0",
+                "--spring.datasource.url=" + url,
+                "--spring.datasource.username=" + username,
+                "--spring.datasource.password=" + password,
+                "--spring.sql.init.mode=never",
+                "--server.tomcat.max-connections=" + (CLIENTS + 100),
+                "--shareit.admission.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--logging.level.org.springframework.transaction.interceptor=WARN",
+                "--logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN",
+                "--logging.level.org.hibernate.SQL=WARN",
+                "--logging.level.ru.practicum.shareit=WARN")) {
+            base = "http://localhost:" + ((ServletWebServerApplicationContext) context).getWebServer().getPort();
+            started = System.nanoTime();
+            ItemDashboardService dashboards = context.getBean(ItemDashboardService.class);
+            for (long item : data.items) {
+                dashboards.refresh(item);
+            }
+            System.out.printf("dashboards built in %d ms%n", (System.nanoTime() - started) / 1_000_000);
+
+            drive(mix, WARMUP);
+            LoadReport report = LoadReport.of(drive(mix, DURATION), DURATION);
+            report.table().forEach(System.out::println);
+            report.write(REPORT);
+            System.out.println("report: " + REPORT.toAbsolutePath());
+
+            LoadReport baseline = BASELINE == null ? null : LoadReport.read(Path.of(BASELINE));
+            if (BASELINE != null && !Files.exists(Path.of(BASELINE))) {
+                throw new IllegalArgumentException("Нет базового прогона " + BASELINE);
+            }
+            List<String> violations = report.violations(MAX_ERROR_RATE, MAX_P99_MS, baseline, TOLERANCE,
+                    MIN_COMPARED);
+            assertTrue(violations.isEmpty(), String.join("; ", violations));
+        }
+    }
+
+    private List<LoadReport.Recorder> drive(Mix mix, Duration duration) {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<LoadReport.Recorder> recorders = new ArrayList<>();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                LoadReport.Recorder recorder = new LoadReport.Recorder();
+                recorders.add(recorder);
+                clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        String name = mix.next(random);
+                        long begin = System.nanoTime();
+                        Outcome outcome;
+                        try {
+                            outcome = operations.get(name).run(random);
+                        } catch (Exception e) {
+                            outcome = new Outcome(name, false);
+                        }
+                        recorder.record(outcome.operation(), System.nanoTime() - begin, outcome.ok());
+                    }
+                    return null;
+                });
+            }
+        }
+        return recorders;
+    }
+
+    private Map<String, Operation> operations() {
+        Map<String, Operation> all = new LinkedHashMap<>();
+        all.put("item.get", random -> {
+            int item = data.popularItem(random);
+            long viewer = random.nextInt(10) == 0 ? data.itemOwners[item] : data.anyUser(random);
+            return ok("item.get", get("/items/" + data.items[item], viewer));
+        });
+        all.put("item.owner-list", random -> ok("item.owner-list", get("/items", data.popularOwner(random))));
+        all.put("item.batch", random -> ok("item.batch",
+                get("/items?ids=" + ids(random, 10, () -> data.items[data.popularItem(random)]), data.anyUser(random))));
+        all.put("item.search", random -> ok("item.search",
+                get("/items/search?text=" + encode(word(random)), data.anyUser(random))));
+        all.put("item.nearby", random -> {
+            double[] city = LoadDataSet.CITIES[random.nextInt(LoadDataSet.CITIES.length)];
+            String category = LoadDataSet.CATEGORIES[random.nextInt(LoadDataSet.CATEGORIES.length)];
+            return ok("item.nearby", get("/items/search?text=&category=" + encode(category) + "&lat=" + city[0]
+                    + "&lon=" + city[1] + "&radiusKm=" + (5 + random.nextInt(20)), data.anyUser(random)));
+        });
+        all.put("item.suggest", random -> {
+            String word = word(random);
+            return ok("item.suggest", get("/items/suggest?text=" + encode(word.substring(0, 2 + random.nextInt(3))),
+                    data.anyUser(random)));
+        });
+        all.put("item.stats", random -> ok("item.stats", get("/items/stats", data.popularOwner(random))));
+        all.put("item.create", this::createItem);
+        all.put("item.update", random -> {
+            int item = data.popularItem(random);
+            return ok("item.update", send("PATCH", "/items/" + data.items[item], data.itemOwners[item],
+                    "{\"description\":\"Обновлено " + unique.incrementAndGet() + "\"}"));
+        });
+        all.put("item.delete", random -> {
+            long[] created = createdItems.poll();
+            if (created == null) {
+                return createItem(random);
+            }
+            return ok("item.delete", send("DELETE", "/items/" + created[0], created[1], null));
+        });
+        all.put("item.comment", random -> {
+            long[] past = data.pastBookings[random.nextInt(data.pastBookings.length)];
+            return ok("item.comment", send("POST", "/items/" + past[1] + "/comment", past[0],
+                    "{\"text\":\"Повторно брал, рекомендую\"}"));
+        });
+        all.put("booking.get", random -> {
+            int booking = random.nextInt(data.bookings.length);
+            return ok("booking.get", get("/bookings/" + data.bookings[booking], data.bookingBookers[booking]));
+        });
+        all.put("booking.batch", random -> ok("booking.batch",
+                get("/bookings?ids=" + ids(random, 10, () -> data.bookings[random.nextInt(data.bookings.length)]),
+                        data.anyUser(random))));
+        all.put("booking.booker-list", random -> ok("booking.booker-list",
+                get("/bookings?state=" + STATES[random.nextInt(STATES.length)], data.anyUser(random))));
+        all.put("booking.owner-list", random -> ok("booking.owner-list",
+                get("/bookings/owner?state=" + STATES[random.nextInt(STATES.length)], data.popularOwner(random))));
+        all.put("booking.create", this::createBooking);
+        all.put("booking.decide", random -> {
+            long[] waiting = waitingBookings.poll();
+            if (waiting == null) {
+                return createBooking(random);
+            }
+            HttpResponse<String> response = send("PATCH", "/bookings/" + waiting[0] + "?approved="
+                    + random.nextBoolean(), waiting[1], null);
+            return new Outcome("booking.decide", success(response) || response.statusCode() == 409);
+        });
+        all.put("user.get", random -> ok("user.get", get("/users/" + data.anyUser(random), null)));
+        all.put("user.batch", random -> ok("user.batch",
+                get("/users?ids=" + ids(random, 10, () -> data.anyUser(random)), null)));
+        all.put("user.list", random -> ok("user.list", get("/users", null)));
+        all.put("user.create", random -> createUser());
+        all.put("user.update", random -> {
+            long user = data.anyUser(random);
+            return ok("user.update", send("PATCH", "/users/" + user, null,
+                    "{\"name\":\"Пользователь " + user + "-" + unique.incrementAndGet() + "\"}"));
+        });
+        all.put("user.delete", random -> {
+            Long user = createdUsers.poll();
+            if (user == null) {
+                return createUser();
+            }
+            return ok("user.delete", send("DELETE", "/users/" + user, null, null));
+        });
+        return all;
+    }
+
+    private Outcome createItem(ThreadLocalRandom random) throws Exception {
+        long owner = data.popularOwner(random);
+        double[] city = LoadDataSet.CITIES[random.nextInt(LoadDataSet.CITIES.length)];
+        String word = word(random);
+        HttpResponse<String> response = send("POST", "/items", owner, "{\"name\":\"" + word + " "
+                + unique.incrementAndGet() + "\",\"description\":\"Новая вещь\",\"available\":true,\"category\":\""
+                + LoadDataSet.CATEGORIES[Arrays.asList(LoadDataSet.WORDS).indexOf(word)] + "\",\"latitude\":"
+                + (city[0] + random.nextGaussian() * 0.1) + ",\"longitude\":" + (city[1] + random.nextGaussian() * 0.15)
+                + "}");
+        if (success(response)) {
+            createdItems.add(new long[]{id(response), owner});
+        }
+        return ok("item.create", response);
+    }
+
+    /**
+     * Даты на 100–400 дней вперёд; недоступная вещь (400) и занятое окно (409) — штатные ответы, не ошибки.
+     */
+    private Outcome createBooking(ThreadLocalRandom random) throws Exception {
+        int item = data.popularItem(random);
+        long booker;
+        do {
+            booker = data.anyUser(random);
+        } while (booker == data.itemOwners[item]);
+        LocalDateTime start = LocalDateTime.now().plusDays(100 + random.nextInt(300)).plusHours(random.nextInt(24));
+        HttpResponse<String> response = send("POST", "/bookings", booker, "{\"itemId\":" + data.items[item]
+                + ",\"start\":\"" + start + "\",\"end\":\"" + start.plusHours(4 + random.nextInt(72)) + "\"}");
+        if (success(response)) {
+            waitingBookings.add(new long[]{id(response), data.itemOwners[item]});
+        }
+        int status = response.statusCode();
+        return new Outcome("booking.create", success(response) || status == 400 || status == 409);
+    }
+
+    private Outcome createUser() throws Exception {
+        long n = unique.incrementAndGet();
+        HttpResponse<String> response = send("POST", "/users", null,
+                "{\"name\":\"Новый " + n + "\",\"email\":\"new" + n + "@load.test\"}");
+        if (success(response)) {
+            createdUsers.add(id(response));
+        }
+        return ok("user.create", response);
+    }
+
+    private HttpResponse<String> get(String path, Long userId) throws Exception {
+        return send("GET", path, userId, null);
+    }
+
+    private HttpResponse<String> send(String method, String path, Long userId, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (userId != null) {
+            request.header(USER_HEADER, userId.toString());
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static Outcome ok(String operation, HttpResponse<String> response) {
+        return new Outcome(operation, success(response));
+    }
+
+    private static boolean success(HttpResponse<String> response) {
+        return response.statusCode() / 100 == 2;
+    }
+
+    private static String word(ThreadLocalRandom random) {
+        return LoadDataSet.WORDS[random.nextInt(LoadDataSet.WORDS.length)];
+    }
+
+    private static String ids(ThreadLocalRandom random, int count, java.util.function.LongSupplier id) {
+        return LongStream.generate(id).limit(1 + random.nextInt(count)).distinct()
+                .mapToObj(Long::toString).collect(Collectors.joining(","));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private static long id(HttpResponse<String> response) {
+        Matcher matcher = ID.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("В ответе нет id: " + response.body());
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    /**
+     * Взвешенный выбор операции; веса — относительные, сумма не обязана быть 100.
+     */
+    private record Mix(String[] names, double[] cumulative) {
+        static Mix parse(String spec, java.util.Set<String> known) {
+            List<String> names = new ArrayList<>();
+            List<Double> weights = new ArrayList<>();
+            for (String part : spec.split(",")) {
+                String[] pair = part.trim().split("=");
+                if (pair.length != 2 || !known.contains(pair[0])) {
+                    throw new IllegalArgumentException("Неизвестная операция в смеси: " + part + ", есть: " + known);
+                }
+                names.add(pair[0]);
+                weights.add(Double.parseDouble(pair[1]));
+            }
+            double[] cumulative = new double[weights.size()];
+            double sum = 0;
+            for (int i = 0; i < cumulative.length; i++) {
+                sum += weights.get(i);
+                cumulative[i] = sum;
+            }
+            return new Mix(names.toArray(String[]::new), cumulative);
+        }
+
+        String next(ThreadLocalRandom random) {
+            double roll = random.nextDouble(cumulative[cumulative.length - 1]);
+            int index = Arrays.binarySearch(cumulative, roll);
+            return names[Math.min(names.length - 1, index >= 0 ? index + 1 : -index - 1)];
+        }
+    }
+}
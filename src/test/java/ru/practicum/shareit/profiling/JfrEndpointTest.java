@@ -0,0 +1,70 @@
+package ru.practicum.shareit.profiling;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:profiling",
+        "management.endpoints.web.exposure.include=health,metrics,jfr"})
+class JfrEndpointTest {
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Test
+    void summaryAttributesAllocationsToApplicationCode() throws Exception {
+        send("POST", "/users", "{\"name\":\"Профиль\",\"email\":\"profile@mail.ru\"}");
+        AtomicBoolean running = new AtomicBoolean(true);
+        CompletableFuture<Void> traffic = CompletableFuture.runAsync(() -> {
+            while (running.get()) {
+                send("GET", "/users", null);
+            }
+        });
+        try {
+            HttpResponse<String> summary = send("GET", "/actuator/jfr/summary?duration=2s", null);
+            assertEquals(200, summary.statusCode(), summary.body());
+            assertTrue(summary.body().contains("\"site\":\"ru.practicum.shareit."), summary.body());
+
+            HttpResponse<byte[]> file = http.send(HttpRequest.newBuilder(uri("/actuator/jfr?duration=1s")).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, file.statusCode());
+            assertArrayEquals("FLR\0".getBytes(StandardCharsets.US_ASCII), Arrays.copyOf(file.body(), 4));
+        } finally {
+            running.set(false);
+            traffic.join();
+        }
+
+        assertEquals(400, send("GET", "/actuator/jfr?duration=1h", null).statusCode());
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) {
+        try {
+            return http.send(HttpRequest.newBuilder(uri(path))
+                    .header("Content-Type", "application/json")
+                    .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                            : HttpRequest.BodyPublishers.ofString(body))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+}
@@ -0,0 +1,134 @@
+package ru.practicum.shareit.singleflight;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import ru.practicum.shareit.exception.NotFoundException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+    private static final int CALLERS = 16;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final SingleFlight singleFlight = new SingleFlight(new SingleFlightProperties(),
+            new NoOpTransactionManager(), registry);
+
+    @Test
+    void concurrentIdenticalReadsShareOneExecution() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        try (ExecutorService callers = Executors.newFixedThreadPool(CALLERS)) {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(callers.submit(() -> singleFlight.read("item", 1L, () -> {
+                    executions.incrementAndGet();
+                    await(release);
+                    return new Object();
+                })));
+            }
+            while (calls("coalesced") < CALLERS - 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            Object first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Object> result : results) {
+                assertSame(first, result.get(10, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1, executions.get());
+        assertEquals(1, calls("executed"));
+
+        singleFlight.read("item", 1L, executions::incrementAndGet);
+        singleFlight.read("item", 2L, executions::incrementAndGet);
+        assertEquals(3, executions.get());
+    }
+
+    @Test
+    void failureReachesEveryWaiter() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<Object>> results = new ArrayList<>();
+        try (ExecutorService callers = Executors.newFixedThreadPool(CALLERS)) {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(callers.submit(() -> singleFlight.read("item", 7L, () -> {
+                    await(release);
+                    throw new NotFoundException("Вещь с id 7 не найдена");
+                })));
+            }
+            while (calls("coalesced") < CALLERS - 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<Object> result : results) {
+                Exception e = assertThrows(Exception.class, () -> result.get(10, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof NotFoundException, e.toString());
+            }
+        }
+    }
+
+    @Test
+    void forgetAllStartsNewReadsOfOperation() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        try (ExecutorService callers = Executors.newSingleThreadExecutor()) {
+            Future<Integer> stale = callers.submit(() -> singleFlight.read("search", "дрель", () -> {
+                int execution = executions.incrementAndGet();
+                await(release);
+                return execution;
+            }));
+            while (executions.get() < 1) {
+                Thread.sleep(1);
+            }
+            singleFlight.forgetAll("search");
+            assertEquals(2, singleFlight.read("search", "дрель", executions::incrementAndGet));
+            release.countDown();
+            assertEquals(1, stale.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    private double calls(String outcome) {
+        return registry.counter("shareit.single_flight.calls", "operation", "item", "outcome", outcome).count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
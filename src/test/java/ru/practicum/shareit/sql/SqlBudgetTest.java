@@ -0,0 +1,157 @@
+package ru.practicum.shareit.sql;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Режим shareit.sql.fail-on-budget: сценарий проходит по всем эндпоинтам вещей, бронирований и пользователей,
+ * и любой обработчик, которому не хватило своего @SqlBudget, отвечает 500 вместо 2xx.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:sqlbudget",
+        "shareit.sql.fail-on-budget=true"})
+class SqlBudgetTest {
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Бюджеты проверяются на худших путях: у владельца несколько вещей, строка витрины устарела без записи
+     * (началось бронирование), строка без комментариев, как после миграции 01, автор комментариев к двум
+     * вещам меняет имя, у вещи больше комментариев, чем хранит витрина, у карточки комментарии двух
+     * авторов, а списки бронирований и поиск задевают вещи двух владельцев.
+     */
+    @Test
+    void everyEndpointStaysWithinItsStatementBudget() throws Exception {
+        long owner = id(call("POST", "/users", null, "{\"name\":\"Владелец\",\"email\":\"owner@budget.ru\"}"));
+        long booker = id(call("POST", "/users", null, "{\"name\":\"Арендатор\",\"email\":\"booker@budget.ru\"}"));
+        long rivalOwner = id(call("POST", "/users", null, "{\"name\":\"Сосед\",\"email\":\"rival@budget.ru\"}"));
+        long guest = id(call("POST", "/users", null, "{\"name\":\"Гость\",\"email\":\"guest@budget.ru\"}"));
+        long spare = id(call("POST", "/users", null, "{\"name\":\"Лишний\",\"email\":\"spare@budget.ru\"}"));
+        call("GET", "/users/" + owner, null, null);
+        call("GET", "/users", null, null);
+        call("GET", "/users?ids=" + owner + "," + booker, null, null);
+        call("DELETE", "/users/" + spare, null, null);
+
+        long item = id(call("POST", "/items", owner, "{\"name\":\"Дрель\",\"description\":\"Ударная\","
+                + "\"available\":true,\"category\":\"инструменты\",\"latitude\":55.75,\"longitude\":37.62}"));
+        long extra = id(call("POST", "/items", owner, "{\"name\":\"Лестница\",\"description\":\"Три метра\","
+                + "\"available\":true}"));
+        long rival = id(call("POST", "/items", rivalOwner, "{\"name\":\"Дрель поменьше\",\"description\":\"Лёгкая\","
+                + "\"available\":true,\"category\":\"инструменты\",\"latitude\":55.76,\"longitude\":37.61}"));
+        long last = 0;
+        for (int i = 0; i < 3; i++) {
+            last = id(call("POST", "/items", owner, "{\"name\":\"Вещь " + i + "\",\"description\":\"Ещё одна\","
+                    + "\"available\":true}"));
+        }
+        call("PATCH", "/items/" + item, owner, "{\"description\":\"Ударная, с кейсом\"}");
+
+        LocalDateTime start = LocalDateTime.now().plusSeconds(1);
+        long past = id(call("POST", "/bookings", booker, booking(item, start, start.plusSeconds(1))));
+        long future = id(call("POST", "/bookings", booker, booking(item, start.plusDays(3), start.plusDays(4))));
+        long pastExtra = id(call("POST", "/bookings", booker, booking(extra, start, start.plusSeconds(1))));
+        long soon = id(call("POST", "/bookings", booker,
+                booking(extra, start.plusSeconds(3), start.plusSeconds(4))));
+        long guestPast = id(call("POST", "/bookings", guest,
+                booking(item, start.plusSeconds(1), start.plusSeconds(2))));
+        long rivalPast = id(call("POST", "/bookings", booker, booking(rival, start, start.plusSeconds(1))));
+        call("PATCH", "/bookings/" + past + "?approved=true", owner, null);
+        call("PATCH", "/bookings/" + guestPast + "?approved=true", owner, null);
+        call("PATCH", "/bookings/" + rivalPast + "?approved=true", rivalOwner, null);
+        call("PATCH", "/bookings/" + future + "?approved=false", owner, null);
+        call("PATCH", "/bookings/" + pastExtra + "?approved=true", owner, null);
+        call("PATCH", "/bookings/" + soon + "?approved=true", owner, null);
+        call("GET", "/bookings/" + past, booker, null);
+        call("GET", "/bookings?ids=" + past + "," + future, owner, null);
+        call("GET", "/bookings?state=ALL", booker, null);
+        call("GET", "/bookings/owner?state=ALL", owner, null);
+        call("GET", "/bookings?state=PAST&includeArchived=true&expand=booker,item", booker, null);
+        call("GET", "/bookings/owner?state=ALL&includeArchived=true&expand=booker,item", owner, null);
+        Thread.sleep(2_500);
+        call("POST", "/items/" + item + "/comment", booker, "{\"text\":\"Отличная дрель\"}");
+        call("POST", "/items/" + extra + "/comment", booker, "{\"text\":\"Устойчивая\"}");
+        call("POST", "/items/" + item + "/comment", guest, "{\"text\":\"Тяжеловата\"}");
+        for (int i = 0; i < 10; i++) {
+            call("POST", "/items/" + item + "/comment", booker, "{\"text\":\"Отзыв " + i + "\"}");
+        }
+        call("PATCH", "/items/" + item, owner, "{\"available\":true}");
+        long late = id(call("POST", "/bookings", guest, booking(item, start.plusDays(5), start.plusDays(6))));
+        call("PATCH", "/bookings/" + late + "?approved=true", owner, null);
+        call("PATCH", "/users/" + booker, null, "{\"name\":\"Арендатор 2\"}");
+        Thread.sleep(1_500);
+        jdbcTemplate.update("UPDATE item_dashboards SET comments = NULL, refresh_after = LOCALTIMESTAMP "
+                + "WHERE item_id = ?", item);
+
+        call("GET", "/items/" + item, booker, null);
+        call("GET", "/items/" + item + "?expand=booker,item", owner, null);
+        call("GET", "/items", owner, null);
+        call("GET", "/items?expand=booker,item", owner, null);
+        call("GET", "/items?ids=" + item + "," + extra, booker, null);
+        call("GET", "/items?ids=" + item + "," + extra + "&expand=booker,item", owner, null);
+        call("GET", "/items/search?text=дрель", booker, null);
+        call("GET", "/items/search?text=&lat=55.75&lon=37.62&radiusKm=5", booker, null);
+        call("GET", "/items/suggest?text=дре", booker, null);
+        call("GET", "/items/stats", owner, null);
+        call("DELETE", "/items/" + last, owner, null);
+    }
+
+    @Test
+    void statementOverBudgetIsRejected() {
+        SqlRequestContext context = SqlRequestContext.open(1, true);
+        try {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE email = 'a@b.ru'", Long.class);
+            SqlBudgetExceededException e = assertThrows(SqlBudgetExceededException.class,
+                    () -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Long.class));
+            assertTrue(e.getMessage().contains("SELECT COUNT(*) FROM items"), e.getMessage());
+            assertEquals(1, context.statements());
+            assertEquals("SELECT COUNT(*) FROM users WHERE email = ?", context.slowestSql());
+        } finally {
+            context.close();
+        }
+    }
+
+    private HttpResponse<String> call(String method, String path, Long userId, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header("Content-Type", "application/json")
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (userId != null) {
+            request.header("X-Sharer-User-Id", userId.toString());
+        }
+        HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(2, response.statusCode() / 100, method + " " + path + ": " + response.body());
+        assertTrue(response.headers().firstValue(SqlAccountingFilter.STATEMENTS).isPresent(), method + " " + path);
+        return response;
+    }
+
+    private static String booking(long itemId, LocalDateTime start, LocalDateTime end) {
+        return "{\"itemId\":" + itemId + ",\"start\":\"" + start + "\",\"end\":\"" + end + "\"}";
+    }
+
+    private static long id(HttpResponse<String> response) {
+        Matcher matcher = ID.matcher(response.body());
+        assertTrue(matcher.find(), response.body());
+        return Long.parseLong(matcher.group(1));
+    }
+}
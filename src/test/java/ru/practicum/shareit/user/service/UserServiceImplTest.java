@@ -0,0 +1,61 @@
+package ru.practicum.shareit.user.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.exception.NotUniqueEmailException;
+import ru.practicum.shareit.user.model.UserDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class UserServiceImplTest {
+    private static final int THREADS = 16;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void concurrentRegistrationsWithSameEmailCreateOneUser() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<UserDto>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(THREADS)) {
+            for (int i = 0; i < THREADS; i++) {
+                String email = i % 2 == 0 ? "race@mail.ru" : "Race@Mail.ru";
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return userService.create(new UserDto(null, "racer", email));
+                }));
+            }
+            start.countDown();
+
+            int created = 0;
+            int rejected = 0;
+            for (Future<UserDto> result : results) {
+                try {
+                    result.get(30, TimeUnit.SECONDS);
+                    created++;
+                } catch (ExecutionException e) {
+                    assertEquals(NotUniqueEmailException.class, e.getCause().getClass(), e.getCause().toString());
+                    rejected++;
+                }
+            }
+            assertEquals(1, created);
+            assertEquals(THREADS - 1, rejected);
+        }
+    }
+
+    @Test
+    void updateToEmailDifferingOnlyInCaseIsRejected() {
+        userService.create(new UserDto(null, "first", "taken@mail.ru"));
+        UserDto second = userService.create(new UserDto(null, "second", "free@mail.ru"));
+
+        assertThrows(NotUniqueEmailException.class,
+                () -> userService.update(second.getId(), new UserDto(null, null, "TAKEN@mail.ru")));
+    }
+}